@@ -2,6 +2,7 @@ package com.sep.framework.codegen;
 
 import com.sep.framework.database.ColumnInfo;
 import com.sep.framework.database.DatabaseContext;
+import com.sep.framework.database.SchemaSnapshot;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
@@ -101,7 +102,13 @@ public class CodeGenerator {
     public void generateForTable(String tableName) throws Exception {
         List<ColumnInfo> columns = dbContext.getColumns(tableName);
         String primaryKey = dbContext.getPrimaryKey(tableName);
-        
+        generateForTable(tableName, columns, primaryKey);
+    }
+    
+    /**
+     * Generate code cho một bảng với cấu trúc đã đọc sẵn
+     */
+    private void generateForTable(String tableName, List<ColumnInfo> columns, String primaryKey) throws Exception {
         // Copy framework source code (chỉ copy 1 lần)
         if (!new File(outputPath, "src" + File.separator + "main" + File.separator + "java" + File.separator + "com" + File.separator + "sep" + File.separator + "framework").exists()) {
             copyFrameworkSource();
@@ -341,6 +348,10 @@ public class CodeGenerator {
             : "";
         return packageDecl +
                "import com.sep.framework.database.DatabaseContext;\n" +
+               "import java.util.ArrayList;\n" +
+               "import java.util.Collection;\n" +
+               "import java.util.Collections;\n" +
+               "import java.util.LinkedHashMap;\n" +
                "import java.util.List;\n" +
                "import java.util.Map;\n\n" +
                "/**\n" +
@@ -348,7 +359,8 @@ public class CodeGenerator {
                " * Auto-generated by SEP Framework Code Generator\n" +
                " */\n" +
                "public class ${className} {\n\n" +
-               "    private DatabaseContext dbContext;\n\n" +
+               "    private DatabaseContext dbContext;\n" +
+               "    private Map<String, Map<String, Object>> cache;\n\n" +
                "    /**\n" +
                "     * Constructor\n" +
                "     * @param dbContext Database context\n" +
@@ -357,6 +369,25 @@ public class CodeGenerator {
                "        this.dbContext = dbContext;\n" +
                "    }\n\n" +
                "    /**\n" +
+               "     * Enable an in-memory read-through cache for getById/getByIds\n" +
+               "     * The cache is cleared on every update and delete\n" +
+               "     * @param maxEntries Maximum number of cached records (least recently used are evicted)\n" +
+               "     */\n" +
+               "    public void enableCache(int maxEntries) {\n" +
+               "        cache = Collections.synchronizedMap(new LinkedHashMap<String, Map<String, Object>>(16, 0.75f, true) {\n" +
+               "            @Override\n" +
+               "            protected boolean removeEldestEntry(Map.Entry<String, Map<String, Object>> eldest) {\n" +
+               "                return size() > maxEntries;\n" +
+               "            }\n" +
+               "        });\n" +
+               "    }\n\n" +
+               "    /**\n" +
+               "     * Disable the read-through cache\n" +
+               "     */\n" +
+               "    public void disableCache() {\n" +
+               "        cache = null;\n" +
+               "    }\n\n" +
+               "    /**\n" +
                "     * Get all records from ${tableName}\n" +
                "     * @return List of records\n" +
                "     */\n" +
@@ -364,18 +395,58 @@ public class CodeGenerator {
                "        return dbContext.getAll(\"${tableName}\");\n" +
                "    }\n\n" +
                "    /**\n" +
+               "     * Get all records from ${tableName}, loading only the given columns\n" +
+               "     * @param columns Column names to load\n" +
+               "     * @return List of records\n" +
+               "     */\n" +
+               "    public List<Map<String, Object>> getAll(String... columns) throws Exception {\n" +
+               "        return dbContext.getAll(\"${tableName}\", columns);\n" +
+               "    }\n\n" +
+               "    /**\n" +
                "     * Get record by primary key\n" +
                "     * @param id Primary key value\n" +
                "     * @return Record data\n" +
                "     */\n" +
                "    public Map<String, Object> getById(Object id) throws Exception {\n" +
-               "        List<Map<String, Object>> records = dbContext.getAll(\"${tableName}\");\n" +
-               "        for (Map<String, Object> record : records) {\n" +
-               "            if (record.get(\"${primaryKey}\").equals(id)) {\n" +
-               "                return record;\n" +
+               "        Map<String, Map<String, Object>> currentCache = cache;\n" +
+               "        if (currentCache != null) {\n" +
+               "            Map<String, Object> cached = currentCache.get(String.valueOf(id));\n" +
+               "            if (cached != null) {\n" +
+               "                return new LinkedHashMap<>(cached);\n" +
                "            }\n" +
                "        }\n" +
-               "        return null;\n" +
+               "        Map<String, Object> record = dbContext.getById(\"${tableName}\", \"${primaryKey}\", id);\n" +
+               "        if (currentCache != null && record != null) {\n" +
+               "            currentCache.put(String.valueOf(id), new LinkedHashMap<>(record));\n" +
+               "        }\n" +
+               "        return record;\n" +
+               "    }\n\n" +
+               "    /**\n" +
+               "     * Get records by a batch of primary keys (IN lists instead of one query per key)\n" +
+               "     * @param ids Primary key values\n" +
+               "     * @return Records found, missing keys are skipped\n" +
+               "     */\n" +
+               "    public List<Map<String, Object>> getByIds(Collection<?> ids) throws Exception {\n" +
+               "        Map<String, Map<String, Object>> currentCache = cache;\n" +
+               "        List<Map<String, Object>> records = new ArrayList<>();\n" +
+               "        List<Object> missing = new ArrayList<>();\n" +
+               "        for (Object id : ids) {\n" +
+               "            Map<String, Object> cached = currentCache != null ? currentCache.get(String.valueOf(id)) : null;\n" +
+               "            if (cached != null) {\n" +
+               "                records.add(new LinkedHashMap<>(cached));\n" +
+               "            } else {\n" +
+               "                missing.add(id);\n" +
+               "            }\n" +
+               "        }\n" +
+               "        if (!missing.isEmpty()) {\n" +
+               "            for (Map<String, Object> record : dbContext.getByIds(\"${tableName}\", \"${primaryKey}\", missing)) {\n" +
+               "                if (currentCache != null) {\n" +
+               "                    currentCache.put(String.valueOf(record.get(\"${primaryKey}\")), new LinkedHashMap<>(record));\n" +
+               "                }\n" +
+               "                records.add(record);\n" +
+               "            }\n" +
+               "        }\n" +
+               "        return records;\n" +
                "    }\n\n" +
                "    /**\n" +
                "     * Insert new record\n" +
@@ -392,7 +463,9 @@ public class CodeGenerator {
                "     * @return Number of affected rows\n" +
                "     */\n" +
                "    public int update(Map<String, Object> data, String whereClause) throws Exception {\n" +
-               "        return dbContext.update(\"${tableName}\", data, whereClause);\n" +
+               "        int affected = dbContext.update(\"${tableName}\", data, whereClause);\n" +
+               "        clearCache();\n" +
+               "        return affected;\n" +
                "    }\n\n" +
                "    /**\n" +
                "     * Delete record\n" +
@@ -400,7 +473,15 @@ public class CodeGenerator {
                "     * @return Number of affected rows\n" +
                "     */\n" +
                "    public int delete(String whereClause) throws Exception {\n" +
-               "        return dbContext.delete(\"${tableName}\", whereClause);\n" +
+               "        int affected = dbContext.delete(\"${tableName}\", whereClause);\n" +
+               "        clearCache();\n" +
+               "        return affected;\n" +
+               "    }\n\n" +
+               "    private void clearCache() {\n" +
+               "        Map<String, Map<String, Object>> currentCache = cache;\n" +
+               "        if (currentCache != null) {\n" +
+               "            currentCache.clear();\n" +
+               "        }\n" +
                "    }\n" +
                "}\n";
     }
@@ -878,9 +959,11 @@ public class CodeGenerator {
         // Generate pom.xml trước
         generatePomXml();
         
-        List<String> tables = dbContext.getTables();
+        // Đọc schema của tất cả các bảng trong một lượt metadata
+        SchemaSnapshot snapshot = dbContext.getSchemaSnapshot();
+        List<String> tables = snapshot.getTables();
         for (String table : tables) {
-            generateForTable(table);
+            generateForTable(table, snapshot.getColumns(table), snapshot.getPrimaryKey(table));
         }
         
         // Generate README
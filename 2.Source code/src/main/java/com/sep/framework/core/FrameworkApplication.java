@@ -57,13 +57,24 @@ public class FrameworkApplication extends JFrame {
         
         // Connection string (không bao gồm credentials trong URL)
         // allowPublicKeyRetrieval=true: Cần thiết cho MySQL 8.0+
+        // useCursorFetch=true: đọc theo lô bằng server-side cursor với fetch size tự tính theo độ rộng row
         String connectionString = String.format(
-            "jdbc:mysql://localhost:%s/%s?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true",
+            "jdbc:mysql://localhost:%s/%s?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true&useCursorFetch=true",
             dbPort, dbName
         );
         dbContext.setConnectionString(connectionString);
         dbContext.setCredentials(dbUser, dbPassword);
         
+        // Mở sẵn connection ở background và kiểm tra định kỳ để người dùng không phải chờ kết nối lại
+        // SEP_DB_WARMUP: số connection giữ sẵn, SEP_DB_HEALTH_CHECK_SECONDS: chu kỳ health check
+        dbContext.startConnectionMaintenance(
+            parseIntEnv("SEP_DB_WARMUP", 2),
+            parseIntEnv("SEP_DB_HEALTH_CHECK_SECONDS", 30)
+        );
+        
+        // Giới hạn thời gian chạy của mỗi truy vấn (SEP_DB_QUERY_TIMEOUT_SECONDS, 0 là không giới hạn)
+        dbContext.setDefaultQueryTimeout(parseIntEnv("SEP_DB_QUERY_TIMEOUT_SECONDS", 60));
+        
         // Đăng ký services vào IoC container
         container.registerSingleton(DatabaseContext.class, dbContext);
         container.registerSingleton(DatabaseStrategy.class, strategy);
@@ -72,6 +83,9 @@ public class FrameworkApplication extends JFrame {
         membershipProvider = new DatabaseMembershipProvider(dbContext);
         container.registerSingleton(MembershipProvider.class, membershipProvider);
         
+        // Nạp schema đã cache trên đĩa để mở form ngay, kiểm tra lại ở background
+        dbContext.enableSchemaCache();
+        
         // Khởi tạo Authentication Manager
         authManager = AuthenticationManager.getInstance();
         authManager.setMembershipProvider(membershipProvider);
@@ -82,6 +96,21 @@ public class FrameworkApplication extends JFrame {
         container.registerSingleton(FormFactory.class, formFactory);
     }
     
+    /**
+     * Đọc số nguyên từ environment variable, dùng giá trị mặc định nếu không có hoặc sai định dạng
+     */
+    private static int parseIntEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+    
     /**
      * Setup UI
      */
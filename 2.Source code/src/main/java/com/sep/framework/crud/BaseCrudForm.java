@@ -1,17 +1,44 @@
 package com.sep.framework.crud;
 
+import com.sep.framework.database.CancellationToken;
 import com.sep.framework.database.ColumnInfo;
+import com.sep.framework.database.CsvExporter;
+import com.sep.framework.database.CsvImporter;
 import com.sep.framework.database.DatabaseContext;
+import com.sep.framework.database.ForeignKeyInfo;
+import com.sep.framework.database.LoadMode;
+import com.sep.framework.database.LobHandle;
+import com.sep.framework.database.QueryCriteria;
+import com.sep.framework.database.RowChange;
 
 import javax.swing.*;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.TableColumnModelEvent;
+import javax.swing.event.TableColumnModelListener;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
+import java.awt.datatransfer.DataFlavor;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Template Method Pattern: Base CRUD Form
@@ -20,6 +47,15 @@ import java.util.List;
  */
 public abstract class BaseCrudForm extends JFrame {
     
+    /** Số lựa chọn tối đa hiển thị trong combo box khóa ngoại khi lọc */
+    private static final int LOOKUP_DISPLAY_LIMIT = 200;
+    private static final String LOOKUP_ITEMS = "sep.lookupItems";
+    private static final Pattern FILTER_OPERATOR = Pattern.compile("^(<>|>=|<=|=|>|<)\\s*(.*)$");
+    private static final Color DIRTY_CELL_COLOR = new Color(255, 243, 205);
+    private static final int CONFLICT_KEYS_SHOWN = 20;
+    private static final int SEARCH_DEBOUNCE_MS = 250;
+    private static final int PASTE_ERRORS_SHOWN = 20;
+    
     protected DatabaseContext dbContext;
     protected String tableName;
     protected String primaryKeyColumn;
@@ -27,21 +63,67 @@ public abstract class BaseCrudForm extends JFrame {
     // UI Components
     protected JTable dataTable;
     protected DefaultTableModel tableModel;
+    protected PagedTableModel pagedModel;
     protected JScrollPane scrollPane;
     protected JButton btnAdd;
     protected JButton btnDelete;
     protected JButton btnRefresh;
+    protected JButton btnExport;
+    protected JButton btnImport;
+    protected JButton btnClearFilter;
+    protected JTextField searchField;
+    protected JPanel filterPanel;
+    protected JLabel lblRowCount;
+    protected JProgressBar loadProgress;
+    protected JButton btnCancelLoad;
+    protected JToggleButton btnInlineEdit;
+    protected JButton btnSaveAll;
+    protected JButton btnDiscardEdits;
     protected JPopupMenu contextMenu;
     
     // Data
     protected List<ColumnInfo> columns;
+    protected List<ColumnInfo> gridColumns;
+    protected Map<String, ForeignKeyInfo> foreignKeys;
     protected List<Map<String, Object>> data;
+    // Khóa chính (dạng chuỗi) -> vị trí dòng trong data/tableModel, cập nhật cùng data
+    private final Map<String, Integer> rowIndexByKey = new HashMap<>();
     protected Map<String, JComponent> inputFields;
+    protected Map<String, JTextField> filterFields;
+    
+    // Lọc và sắp xếp chạy trên database, kết quả được tải theo trang
+    protected QueryCriteria criteria = new QueryCriteria();
+    private volatile QueryCriteria pageCriteria = new QueryCriteria();
+    
+    // Cách tải dữ liệu, chọn theo kích thước bảng
+    protected LoadMode loadMode = LoadMode.EAGER;
+    protected int pageSize = 500;
+    
+    // Lượt tải dữ liệu hiện tại, lượt cũ hơn bị bỏ qua
+    private int loadGeneration;
+    private CancellationToken loadToken;
+    private boolean loadInProgress;
+    
+    // Sửa trực tiếp trên grid: khóa chính (dạng chuỗi) -> các cột đã sửa và giá trị mới
+    private boolean inlineEditing;
+    private final Map<String, Map<String, Object>> dirtyRows = new LinkedHashMap<>();
+    // Đang lưu ở background: khóa sửa ô và các nút lưu/bỏ cho tới khi xong
+    private boolean saveInProgress;
+    
+    // Tìm nhanh trên dữ liệu đã tải: sorter chỉ dùng để lọc theo kết quả tra chỉ mục
+    private TableRowSorter<TableModel> rowSorter;
+    private RowFilter<TableModel, Integer> searchFilter;
+    private SearchIndex searchIndex;
+    private SwingWorker<Void, Void> indexWorker;
+    private Set<String> searchMatches;
+    private Timer searchTimer;
     
     public BaseCrudForm(DatabaseContext dbContext, String tableName) {
         this.dbContext = dbContext;
         this.tableName = tableName;
         this.inputFields = new LinkedHashMap<>();
+        this.filterFields = new LinkedHashMap<>();
+        this.foreignKeys = new HashMap<>();
         
         initialize();
         loadTableStructure();
@@ -71,170 +153,1570 @@ public abstract class BaseCrudForm extends JFrame {
                 // Nếu không có primary key, dùng cột đầu tiên
                 primaryKeyColumn = columns.get(0).getName();
             }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Lỗi khi tải cấu trúc bảng: " + e.getMessage(), 
-                "Lỗi", 
-                JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
+            
+            // Chỉ hiển thị (và tải) các cột cần thiết trên grid
+            gridColumns = new ArrayList<>();
+            for (ColumnInfo column : columns) {
+                if (column.getName().equals(primaryKeyColumn) || isGridColumn(column)) {
+                    gridColumns.add(column);
+                }
+            }
+            
+            for (ForeignKeyInfo foreignKey : dbContext.getForeignKeys(tableName)) {
+                foreignKeys.put(foreignKey.getColumnName(), foreignKey);
+            }
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, 
+                "Lỗi khi tải cấu trúc bảng: " + e.getMessage(), 
+                "Lỗi", 
+                JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Hook method: Cột có được hiển thị trên grid hay không
+     * Mặc định ẩn các cột lớn (TEXT/BLOB), các cột này chỉ được tải khi mở form cập nhật
+     */
+    protected boolean isGridColumn(ColumnInfo column) {
+        return !column.isLargeObject();
+    }
+    
+    /**
+     * Template Method: Setup UI components
+     */
+    private void setupUI() {
+        setLayout(new BorderLayout());
+        
+        // Toolbar
+        JToolBar toolBar = createToolBar();
+        add(toolBar, BorderLayout.NORTH);
+        
+        // Table kèm hàng ô lọc phía trên
+        setupTable();
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(createFilterPanel(), BorderLayout.NORTH);
+        tablePanel.add(scrollPane, BorderLayout.CENTER);
+        add(tablePanel, BorderLayout.CENTER);
+        
+        // Context menu
+        setupContextMenu();
+    }
+    
+    /**
+     * Template Method: Tạo toolbar
+     */
+    protected JToolBar createToolBar() {
+        JToolBar toolBar = new JToolBar();
+        toolBar.setFloatable(false);
+        
+        btnAdd = new JButton("Thêm");
+        btnAdd.addActionListener(e -> showAddForm());
+        toolBar.add(btnAdd);
+        
+        btnDelete = new JButton("Xóa");
+        btnDelete.addActionListener(e -> deleteSelected());
+        toolBar.add(btnDelete);
+        
+        toolBar.addSeparator();
+        
+        btnRefresh = new JButton("Làm mới");
+        btnRefresh.addActionListener(e -> {
+            if (confirmDiscardEdits()) {
+                loadData();
+            }
+        });
+        toolBar.add(btnRefresh);
+        
+        btnExport = new JButton("Xuất CSV");
+        btnExport.addActionListener(e -> exportCsv());
+        toolBar.add(btnExport);
+        
+        btnImport = new JButton("Nhập CSV");
+        btnImport.addActionListener(e -> importCsv());
+        toolBar.add(btnImport);
+        
+        btnClearFilter = new JButton("Bỏ lọc");
+        btnClearFilter.addActionListener(e -> clearFilters());
+        toolBar.add(btnClearFilter);
+        
+        toolBar.addSeparator();
+        toolBar.add(new JLabel("Tìm: "));
+        searchField = new JTextField(15);
+        searchField.setMaximumSize(new Dimension(200, 25));
+        searchField.setToolTipText("Tìm theo đầu từ trong các cột chữ của dữ liệu đã tải");
+        // Chỉ tìm khi người dùng ngừng gõ một lúc
+        searchTimer = new Timer(SEARCH_DEBOUNCE_MS, e -> applySearch());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        toolBar.add(searchField);
+        
+        toolBar.addSeparator();
+        
+        btnInlineEdit = new JToggleButton("Sửa trực tiếp");
+        btnInlineEdit.addActionListener(e -> setInlineEditing(btnInlineEdit.isSelected()));
+        toolBar.add(btnInlineEdit);
+        
+        btnSaveAll = new JButton("Lưu tất cả");
+        btnSaveAll.addActionListener(e -> saveAllEdits());
+        btnSaveAll.setEnabled(false);
+        toolBar.add(btnSaveAll);
+        
+        btnDiscardEdits = new JButton("Bỏ thay đổi");
+        btnDiscardEdits.addActionListener(e -> discardEdits());
+        btnDiscardEdits.setEnabled(false);
+        toolBar.add(btnDiscardEdits);
+        
+        toolBar.addSeparator();
+        lblRowCount = new JLabel();
+        lblRowCount.setBorder(BorderFactory.createEmptyBorder(0, 8, 0, 8));
+        toolBar.add(lblRowCount);
+        
+        loadProgress = new JProgressBar(0, 100);
+        loadProgress.setStringPainted(true);
+        loadProgress.setMaximumSize(new Dimension(200, 20));
+        loadProgress.setVisible(false);
+        toolBar.add(loadProgress);
+        
+        btnCancelLoad = new JButton("Hủy tải");
+        btnCancelLoad.addActionListener(e -> cancelLoad());
+        btnCancelLoad.setVisible(false);
+        toolBar.add(btnCancelLoad);
+        
+        return toolBar;
+    }
+    
+    /**
+     * Template Method: Setup table
+     */
+    protected void setupTable() {
+        // Tạo table model với các cột
+        String[] columnNames = gridColumns.stream()
+            .map(ColumnInfo::getName)
+            .toArray(String[]::new);
+        
+        tableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                // Chỉ sửa trực tiếp khi bật chế độ sửa, còn lại sửa qua form
+                return inlineEditing && !saveInProgress && isInlineEditable(gridColumns.get(column));
+            }
+            
+            @Override
+            public void setValueAt(Object value, int row, int column) {
+                if (!inlineEditing) {
+                    super.setValueAt(value, row, column);
+                    return;
+                }
+                try {
+                    super.setValueAt(trackEdit(row, column, value), row, column);
+                } catch (IllegalArgumentException e) {
+                    JOptionPane.showMessageDialog(BaseCrudForm.this, 
+                        "Giá trị không hợp lệ: " + e.getMessage(), 
+                        "Lỗi", 
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        
+        // Bảng lớn dùng model ảo, chỉ tải các trang đang được xem
+        pagedModel = new PagedTableModel(columnNames, new PagedTableModel.PageLoader() {
+            @Override
+            public long countRows() throws Exception {
+                return dbContext.countRows(tableName, pageCriteria);
+            }
+            
+            @Override
+            public List<Map<String, Object>> loadPage(long offset, int limit) throws Exception {
+                return dbContext.getPage(tableName, pageCriteria, primaryKeyColumn, offset, limit, columnNames);
+            }
+        }, pageSize, 40);
+        pagedModel.setErrorHandler(e -> {
+            JOptionPane.showMessageDialog(this, 
+                "Lỗi khi tải dữ liệu: " + e.getMessage(), 
+                "Lỗi", 
+                JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        });
+        pagedModel.addTableModelListener(e -> updateRowCount());
+        tableModel.addTableModelListener(e -> updateRowCount());
+        
+        dataTable = new JTable(tableModel) {
+            @Override
+            public Component prepareRenderer(TableCellRenderer renderer, int row, int column) {
+                // Tô màu các ô đã sửa nhưng chưa lưu
+                Component component = super.prepareRenderer(renderer, row, column);
+                if (!isRowSelected(row)) {
+                    boolean dirty = isDirtyCell(convertRowIndexToModel(row), convertColumnIndexToModel(column));
+                    component.setBackground(dirty ? DIRTY_CELL_COLOR : getBackground());
+                }
+                return component;
+            }
+        };
+        dataTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        
+        // Sorter chỉ để lọc kết quả tìm nhanh, sắp xếp vẫn do database làm khi click tiêu đề
+        rowSorter = new TableRowSorter<TableModel>(tableModel) {
+            @Override
+            public void toggleSortOrder(int column) {
+            }
+        };
+        searchFilter = new RowFilter<TableModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
+                Set<String> matches = searchMatches;
+                return matches == null 
+                    || matches.contains(String.valueOf(data.get(entry.getIdentifier()).get(primaryKeyColumn)));
+            }
+        };
+        dataTable.setRowSorter(rowSorter);
+        dataTable.setRowHeight(25);
+        
+        // Auto resize columns
+        dataTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
+        
+        // Double click để edit
+        dataTable.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && !inlineEditing) {
+                    showEditForm();
+                }
+            }
+        });
+        
+        // Click tiêu đề cột để sắp xếp trên database, ô lọc bám theo thứ tự cột nên không cho kéo cột
+        dataTable.getTableHeader().setReorderingAllowed(false);
+        dataTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = dataTable.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    toggleSort(gridColumns.get(dataTable.convertColumnIndexToModel(column)).getName());
+                }
+            }
+        });
+        
+        // Ctrl+V dán nhiều dòng từ bảng tính thay cho thao tác dán mặc định của JTable
+        dataTable.getInputMap(JComponent.WHEN_FOCUSED).put(
+            KeyStroke.getKeyStroke(KeyEvent.VK_V, Toolkit.getDefaultToolkit().getMenuShortcutKeyMask()), "pasteRows");
+        dataTable.getActionMap().put("pasteRows", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                pasteRows();
+            }
+        });
+        
+        scrollPane = new JScrollPane(dataTable);
+        adjustColumnWidths();
+    }
+    
+    /**
+     * Template Method: Tạo hàng ô lọc, mỗi ô nằm thẳng dưới cột tương ứng
+     * Nhấn Enter trong một ô để áp dụng bộ lọc
+     */
+    protected JPanel createFilterPanel() {
+        filterPanel = new JPanel();
+        filterPanel.setLayout(new BoxLayout(filterPanel, BoxLayout.X_AXIS));
+        filterFields.clear();
+        for (ColumnInfo column : gridColumns) {
+            JTextField field = new JTextField();
+            field.setToolTipText(column.getJavaType() == String.class 
+                ? "Lọc theo giá trị bắt đầu bằng, thêm * ở đầu để tìm chuỗi con" 
+                : "Lọc theo giá trị, có thể bắt đầu bằng =, <>, >, >=, <, <=");
+            field.addActionListener(e -> applyFilters());
+            filterFields.put(column.getName(), field);
+            filterPanel.add(field);
+        }
+        filterPanel.add(Box.createHorizontalGlue());
+        
+        dataTable.getColumnModel().addColumnModelListener(new TableColumnModelListener() {
+            @Override
+            public void columnAdded(TableColumnModelEvent e) {
+                syncFilterWidths();
+            }
+            
+            @Override
+            public void columnRemoved(TableColumnModelEvent e) {
+            }
+            
+            @Override
+            public void columnMoved(TableColumnModelEvent e) {
+            }
+            
+            @Override
+            public void columnMarginChanged(ChangeEvent e) {
+                syncFilterWidths();
+            }
+            
+            @Override
+            public void columnSelectionChanged(ListSelectionEvent e) {
+            }
+        });
+        syncFilterWidths();
+        return filterPanel;
+    }
+    
+    private void syncFilterWidths() {
+        if (filterPanel == null) {
+            return;
+        }
+        int count = Math.min(dataTable.getColumnCount(), gridColumns.size());
+        for (int i = 0; i < count; i++) {
+            JTextField field = filterFields.get(gridColumns.get(dataTable.convertColumnIndexToModel(i)).getName());
+            Dimension size = new Dimension(dataTable.getColumnModel().getColumn(i).getWidth(), 
+                field.getPreferredSize().height);
+            field.setPreferredSize(size);
+            field.setMaximumSize(size);
+        }
+        filterPanel.revalidate();
+    }
+    
+    /**
+     * Đọc các ô lọc thành điều kiện của criteria rồi tải lại dữ liệu
+     */
+    protected void applyFilters() {
+        if (!confirmDiscardEdits()) {
+            return;
+        }
+        QueryCriteria filters = new QueryCriteria();
+        try {
+            for (ColumnInfo column : gridColumns) {
+                String text = filterFields.get(column.getName()).getText().trim();
+                if (!text.isEmpty()) {
+                    addFilter(filters, column, text);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, 
+                "Giá trị lọc không hợp lệ: " + e.getMessage(), 
+                "Lỗi", 
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        criteria.clearFilters();
+        for (QueryCriteria.Filter filter : filters.getFilters()) {
+            criteria.where(filter.getColumn(), filter.getOperator(), filter.getValue());
+        }
+        loadData();
+    }
+    
+    protected void clearFilters() {
+        for (JTextField field : filterFields.values()) {
+            field.setText("");
+        }
+        if (criteria.hasFilters() && confirmDiscardEdits()) {
+            criteria.clearFilters();
+            loadData();
+        }
+    }
+    
+    /**
+     * Hook method: Chuyển nội dung ô lọc thành điều kiện
+     * Cột chuỗi: lọc theo tiền tố (dùng được index), bắt đầu bằng * để tìm chuỗi con.
+     * Cột khác: so sánh với giá trị đã đổi kiểu, mặc định là bằng
+     * @throws IllegalArgumentException nếu giá trị không đúng kiểu của cột
+     */
+    protected void addFilter(QueryCriteria criteria, ColumnInfo column, String text) {
+        Class<?> javaType = column.getJavaType();
+        if (javaType == String.class) {
+            if (text.startsWith("*")) {
+                criteria.where(column.getName(), QueryCriteria.Operator.CONTAINS, text.substring(1));
+            } else {
+                criteria.where(column.getName(), QueryCriteria.Operator.STARTS_WITH, text);
+            }
+            return;
+        }
+        
+        QueryCriteria.Operator operator = QueryCriteria.Operator.EQUALS;
+        Matcher matcher = FILTER_OPERATOR.matcher(text);
+        if (matcher.matches()) {
+            for (QueryCriteria.Operator candidate : QueryCriteria.Operator.values()) {
+                if (candidate.getSql().equals(matcher.group(1))) {
+                    operator = candidate;
+                    break;
+                }
+            }
+            text = matcher.group(2).trim();
+        }
+        
+        criteria.where(column.getName(), operator, convertValue(column, text));
+    }
+    
+    /**
+     * Hook method: Đổi chuỗi người dùng nhập sang kiểu Java của cột, chuỗi rỗng thành null
+     * @throws IllegalArgumentException nếu giá trị không đúng kiểu của cột
+     */
+    protected Object convertValue(ColumnInfo column, String text) {
+        return column.parseValue(text);
+    }
+    
+    /**
+     * Sắp xếp theo cột: tăng dần, giảm dần rồi bỏ sắp xếp sau mỗi lần click
+     */
+    protected void toggleSort(String columnName) {
+        if (!confirmDiscardEdits()) {
+            return;
+        }
+        List<QueryCriteria.Sort> sorts = criteria.getSorts();
+        QueryCriteria.Sort current = sorts.isEmpty() ? null : sorts.get(0);
+        criteria.clearSorts();
+        if (current == null || !current.getColumn().equals(columnName)) {
+            criteria.orderBy(columnName, true);
+        } else if (current.isAscending()) {
+            criteria.orderBy(columnName, false);
+        }
+        updateSortIndicators();
+        loadData();
+    }
+    
+    private void updateSortIndicators() {
+        List<QueryCriteria.Sort> sorts = criteria.getSorts();
+        QueryCriteria.Sort current = sorts.isEmpty() ? null : sorts.get(0);
+        for (int i = 0; i < dataTable.getColumnCount(); i++) {
+            String name = gridColumns.get(dataTable.convertColumnIndexToModel(i)).getName();
+            String indicator = current != null && current.getColumn().equals(name) 
+                ? (current.isAscending() ? " \u25B2" : " \u25BC") 
+                : "";
+            dataTable.getColumnModel().getColumn(i).setHeaderValue(name + indicator);
+        }
+        dataTable.getTableHeader().repaint();
+    }
+    
+    /**
+     * Template Method: Setup context menu
+     */
+    protected void setupContextMenu() {
+        contextMenu = new JPopupMenu();
+        
+        JMenuItem addItem = new JMenuItem("Thêm mới");
+        addItem.addActionListener(e -> showAddForm());
+        contextMenu.add(addItem);
+        
+        JMenuItem editItem = new JMenuItem("Cập nhật");
+        editItem.addActionListener(e -> showEditForm());
+        contextMenu.add(editItem);
+        
+        JMenuItem deleteItem = new JMenuItem("Xóa");
+        deleteItem.addActionListener(e -> deleteSelected());
+        contextMenu.add(deleteItem);
+        
+        JMenuItem pasteItem = new JMenuItem("Dán từ clipboard");
+        pasteItem.addActionListener(e -> pasteRows());
+        contextMenu.add(pasteItem);
+        
+        dataTable.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (e.isPopupTrigger()) {
+                    showContextMenu(e);
+                }
+            }
+            
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (e.isPopupTrigger()) {
+                    showContextMenu(e);
+                }
+            }
+        });
+    }
+    
+    private void showContextMenu(MouseEvent e) {
+        int row = dataTable.rowAtPoint(e.getPoint());
+        if (row >= 0) {
+            // Giữ nguyên vùng chọn nhiều dòng nếu click vào một dòng trong đó
+            if (!dataTable.isRowSelected(row)) {
+                dataTable.setRowSelectionInterval(row, row);
+            }
+            contextMenu.show(dataTable, e.getX(), e.getY());
+        }
+    }
+    
+    /**
+     * Template Method: Load data từ database
+     * Truy vấn chạy ở background, các dòng được đưa lên grid theo từng lô trong lúc tải.
+     * Gọi lại trong khi đang tải sẽ hủy lượt tải cũ.
+     */
+    protected void loadData() {
+        int generation = ++loadGeneration;
+        if (loadToken != null) {
+            loadToken.cancel();
+        }
+        CancellationToken token = new CancellationToken();
+        loadToken = token;
+        loadInProgress = true;
+        
+        String[] columnNames = gridColumns.stream()
+            .map(ColumnInfo::getName)
+            .toArray(String[]::new);
+        if (dataTable.isEditing()) {
+            dataTable.getCellEditor().cancelCellEditing();
+        }
+        dirtyRows.clear();
+        updateEditButtons();
+        resetSearchIndex();
+        data = new ArrayList<>();
+        rowIndexByKey.clear();
+        tableModel.setRowCount(0);
+        // Có lọc/sắp xếp thì để database làm và chỉ tải các trang đang xem
+        boolean serverSide = !criteria.isEmpty();
+        pageCriteria = criteria.copy();
+        long[] expectedRows = new long[1];
+        showLoadProgress(true);
+        
+        SwingWorker<LoadMode, Map<String, Object>> worker = new SwingWorker<LoadMode, Map<String, Object>>() {
+            @Override
+            protected LoadMode doInBackground() throws Exception {
+                LoadMode mode = serverSide ? LoadMode.PAGED : chooseLoadMode();
+                if (mode == LoadMode.PAGED) {
+                    return mode;
+                }
+                return dbContext.withCancellation(token, () -> {
+                    if (mode == LoadMode.STREAMING) {
+                        expectedRows[0] = dbContext.estimateRowCount(tableName);
+                        dbContext.stream(tableName, row -> publish(row), columnNames);
+                    } else {
+                        for (Map<String, Object> row : dbContext.getAll(tableName, columnNames)) {
+                            publish(row);
+                        }
+                    }
+                    return mode;
+                });
+            }
+            
+            @Override
+            protected void process(List<Map<String, Object>> rows) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                useModel(tableModel);
+                appendRows(rows);
+                updateLoadProgress(data.size(), expectedRows[0]);
+            }
+            
+            @Override
+            protected void done() {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                loadInProgress = false;
+                showLoadProgress(false);
+                try {
+                    loadMode = get();
+                    if (loadMode == LoadMode.PAGED) {
+                        useModel(pagedModel);
+                        pagedModel.refresh();
+                    } else {
+                        useModel(tableModel);
+                        buildSearchIndex();
+                    }
+                } catch (Exception e) {
+                    if (token.isCancelled()) {
+                        // Người dùng bấm hủy: giữ các dòng đã tải
+                        return;
+                    }
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(BaseCrudForm.this, 
+                        "Lỗi khi tải dữ liệu: " + cause.getMessage(), 
+                        "Lỗi", 
+                        JOptionPane.ERROR_MESSAGE);
+                    cause.printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+    
+    /**
+     * Hủy lượt tải dữ liệu đang chạy (truy vấn được hủy qua Statement.cancel)
+     */
+    protected void cancelLoad() {
+        if (loadToken != null) {
+            loadToken.cancel();
+        }
+    }
+    
+    /**
+     * Thêm một lô dòng vào grid với một event duy nhất
+     */
+    @SuppressWarnings("unchecked")
+    private void appendRows(List<Map<String, Object>> rows) {
+        int first = tableModel.getRowCount();
+        for (Map<String, Object> row : rows) {
+            tableModel.getDataVector().add(toRowVector(row));
+            data.add(row);
+            rowIndexByKey.put(keyOf(row), data.size() - 1);
+        }
+        if (!rows.isEmpty()) {
+            tableModel.fireTableRowsInserted(first, tableModel.getRowCount() - 1);
+            updateSearchIndex(Collections.emptyList(), rows);
+        }
+    }
+    
+    private Vector<Object> toRowVector(Map<String, Object> row) {
+        Vector<Object> rowData = new Vector<>(gridColumns.size());
+        for (ColumnInfo column : gridColumns) {
+            rowData.add(row.get(column.getName()));
+        }
+        return rowData;
+    }
+    
+    /**
+     * Cập nhật grid sau khi lưu một dòng: chỉ tải lại dòng đó theo khóa chính (ở background) thay vì cả bảng
+     * Dòng được chọn và vị trí cuộn được giữ nguyên
+     * @param oldKey Khóa trước khi sửa, null khi thêm mới
+     * @param newKey Khóa sau khi lưu, null nếu không xác định được (khi đó tải lại cả bảng)
+     */
+    protected void refreshRow(Object oldKey, Object newKey) {
+        if (newKey == null || loadInProgress) {
+            loadData();
+            return;
+        }
+        String[] columnNames = gridColumns.stream().map(ColumnInfo::getName).toArray(String[]::new);
+        Object keyValue = toKeyValue(newKey);
+        int generation = loadGeneration;
+        
+        SwingWorker<Map<String, Object>, Void> worker = new SwingWorker<Map<String, Object>, Void>() {
+            @Override
+            protected Map<String, Object> doInBackground() throws Exception {
+                return dbContext.getById(tableName, primaryKeyColumn, keyValue, columnNames);
+            }
+            
+            @Override
+            protected void done() {
+                // Grid đã được tải lại trong lúc chờ thì dòng mới đã có trong lượt tải đó
+                if (generation != loadGeneration) {
+                    return;
+                }
+                try {
+                    applyRefreshedRow(oldKey, get());
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Không tải lại được dòng " + newKey + ": " + cause.getMessage());
+                    loadData();
+                }
+            }
+        };
+        worker.execute();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void applyRefreshedRow(Object oldKey, Map<String, Object> row) {
+        if (dataTable.getModel() == pagedModel) {
+            // Thêm/xóa làm lệch vị trí các trang phía sau nên phải tải lại các trang đang xem
+            boolean sameKey = oldKey != null && row != null && String.valueOf(oldKey).equals(keyOf(row));
+            if (!sameKey || !pagedModel.updateRow(primaryKeyColumn, oldKey, row)) {
+                pagedModel.refresh();
+            }
+            return;
+        }
+        
+        int index = oldKey != null ? indexOfKey(oldKey) : -1;
+        if (row == null) {
+            if (index >= 0) {
+                data.remove(index);
+                rowIndexByKey.remove(String.valueOf(oldKey));
+                reindexRows(index);
+                tableModel.removeRow(index);
+                updateSearchIndex(Collections.singletonList(oldKey), Collections.emptyList());
+            }
+        } else if (index >= 0) {
+            data.set(index, row);
+            rowIndexByKey.remove(String.valueOf(oldKey));
+            rowIndexByKey.put(keyOf(row), index);
+            tableModel.getDataVector().set(index, toRowVector(row));
+            tableModel.fireTableRowsUpdated(index, index);
+            updateSearchIndex(Collections.singletonList(oldKey), Collections.singletonList(row));
+        } else {
+            appendRows(Collections.singletonList(row));
+        }
+    }
+    
+    /**
+     * Bỏ một dòng khỏi grid sau khi xóa, không tải lại cả bảng
+     */
+    protected void removeRowByKey(Object key) {
+        removeRowsByKey(Collections.singletonList(key));
+    }
+    
+    /**
+     * Bỏ các dòng đã xóa khỏi grid bằng một lượt duyệt và một event, không tải lại cả bảng
+     */
+    @SuppressWarnings("unchecked")
+    protected void removeRowsByKey(Collection<?> keys) {
+        if (loadInProgress) {
+            loadData();
+            return;
+        }
+        if (dataTable.getModel() == pagedModel) {
+            pagedModel.refresh();
+            return;
+        }
+        Set<String> removed = new HashSet<>();
+        int firstRemoved = data.size();
+        for (Object key : keys) {
+            removed.add(String.valueOf(key));
+            dirtyRows.remove(String.valueOf(key));
+            Integer index = rowIndexByKey.remove(String.valueOf(key));
+            if (index != null) {
+                firstRemoved = Math.min(firstRemoved, index);
+            }
+        }
+        
+        // Xóa từng đoạn liên tiếp từ cuối lên và báo đúng đoạn đó, để selection, scroll và sorter được giữ
+        Vector<Vector<Object>> rows = (Vector<Vector<Object>>) (Vector<?>) tableModel.getDataVector();
+        boolean changed = false;
+        int end = data.size() - 1;
+        while (end >= 0) {
+            if (!removed.contains(String.valueOf(data.get(end).get(primaryKeyColumn)))) {
+                end--;
+                continue;
+            }
+            int start = end;
+            while (start > 0 && removed.contains(String.valueOf(data.get(start - 1).get(primaryKeyColumn)))) {
+                start--;
+            }
+            data.subList(start, end + 1).clear();
+            rows.subList(start, end + 1).clear();
+            tableModel.fireTableRowsDeleted(start, end);
+            changed = true;
+            end = start - 1;
+        }
+        if (changed) {
+            reindexRows(firstRemoved);
+            updateSearchIndex(keys, Collections.emptyList());
+        }
+        updateEditButtons();
+    }
+    
+    private int indexOfKey(Object key) {
+        Integer index = rowIndexByKey.get(String.valueOf(key));
+        return index != null ? index : -1;
+    }
+    
+    private String keyOf(Map<String, Object> row) {
+        return String.valueOf(row.get(primaryKeyColumn));
+    }
+    
+    /**
+     * Ghi lại vị trí của các dòng từ from trở đi (sau khi xóa dòng làm dịch vị trí)
+     */
+    private void reindexRows(int from) {
+        for (int i = from; i < data.size(); i++) {
+            rowIndexByKey.put(keyOf(data.get(i)), i);
+        }
+    }
+    
+    /**
+     * Giá trị khóa người dùng nhập (chuỗi) được đổi sang số nếu cột khóa là kiểu số
+     */
+    private Object toKeyValue(Object value) {
+        if (!(value instanceof String)) {
+            return value;
+        }
+        for (ColumnInfo column : columns) {
+            if (column.getName().equals(primaryKeyColumn)) {
+                Class<?> javaType = column.getJavaType();
+                if (javaType == Integer.class || javaType == Long.class) {
+                    try {
+                        return Long.valueOf(((String) value).trim());
+                    } catch (NumberFormatException e) {
+                        return value;
+                    }
+                }
+            }
+        }
+        return value;
+    }
+    
+    private void showLoadProgress(boolean loading) {
+        // Subclass có thể tự tạo toolbar không có thanh tiến trình
+        if (loadProgress == null || btnCancelLoad == null) {
+            return;
+        }
+        loadProgress.setVisible(loading);
+        btnCancelLoad.setVisible(loading);
+        if (loading) {
+            loadProgress.setIndeterminate(true);
+            loadProgress.setString("Đang tải...");
+        }
+    }
+    
+    private void updateLoadProgress(int loadedRows, long expectedRows) {
+        if (loadProgress == null) {
+            return;
+        }
+        loadProgress.setString("Đã tải " + loadedRows + " dòng");
+        if (expectedRows > 0) {
+            loadProgress.setIndeterminate(false);
+            loadProgress.setValue((int) Math.min(100, loadedRows * 100 / expectedRows));
+        }
+    }
+    
+    /**
+     * Xuất bảng (theo bộ lọc và sắp xếp hiện tại) ra file CSV ở background
+     * Dữ liệu đi thẳng từ cursor ra file, không qua grid
+     */
+    protected void exportCsv() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setSelectedFile(new java.io.File(tableName + ".csv"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = fileChooser.getSelectedFile().toPath();
+        List<String> exportColumns = getExportColumns();
+        QueryCriteria exportCriteria = criteria.copy();
+        CancellationToken token = new CancellationToken();
+        AtomicLong expectedRows = new AtomicLong();
+        
+        ProgressMonitor monitor = new ProgressMonitor(this, "Đang xuất " + tableName + " ra CSV", "", 0, 100);
+        Timer cancelWatcher = new Timer(200, e -> {
+            if (monitor.isCanceled()) {
+                token.cancel();
+            }
+        });
+        cancelWatcher.start();
+        
+        SwingWorker<Long, Long> worker = new SwingWorker<Long, Long>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return dbContext.withCancellation(token, () -> {
+                    expectedRows.set(dbContext.countRows(tableName, exportCriteria));
+                    return new CsvExporter(dbContext).export(tableName, exportCriteria, exportColumns, file, 
+                        rows -> publish(rows));
+                });
+            }
+            
+            @Override
+            protected void process(List<Long> counts) {
+                long rows = counts.get(counts.size() - 1);
+                monitor.setNote("Đã xuất " + rows + " dòng");
+                if (expectedRows.get() > 0) {
+                    monitor.setProgress((int) Math.min(99, rows * 100 / expectedRows.get()));
+                }
+            }
+            
+            @Override
+            protected void done() {
+                cancelWatcher.stop();
+                monitor.close();
+                try {
+                    JOptionPane.showMessageDialog(BaseCrudForm.this, 
+                        "Đã xuất " + get() + " dòng ra " + file, 
+                        "Thông báo", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    if (token.isCancelled()) {
+                        return;
+                    }
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(BaseCrudForm.this, 
+                        "Lỗi khi xuất dữ liệu: " + cause.getMessage(), 
+                        "Lỗi", 
+                        JOptionPane.ERROR_MESSAGE);
+                    cause.printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+    
+    /**
+     * Nhập file CSV (dòng đầu là tên cột) vào bảng ở background
+     * File được phân tích song song và ghi theo lô, dòng lỗi bị bỏ qua và được liệt kê khi xong
+     */
+    protected void importCsv() {
+        // Grid được tải lại sau khi nhập
+        if (!confirmDiscardEdits()) {
+            return;
+        }
+        JFileChooser fileChooser = new JFileChooser();
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = fileChooser.getSelectedFile().toPath();
+        CancellationToken token = new CancellationToken();
+        long started = System.currentTimeMillis();
+        
+        ProgressMonitor monitor = new ProgressMonitor(this, "Đang nhập " + file.getFileName() + " vào " + tableName, "", 0, 100);
+        Timer cancelWatcher = new Timer(200, e -> {
+            if (monitor.isCanceled()) {
+                token.cancel();
+            }
+        });
+        cancelWatcher.start();
+        
+        SwingWorker<CsvImporter.Result, long[]> worker = new SwingWorker<CsvImporter.Result, long[]>() {
+            @Override
+            protected CsvImporter.Result doInBackground() throws Exception {
+                return dbContext.withCancellation(token, () -> new CsvImporter(dbContext).importFile(tableName, file, 
+                    (rows, processedBytes, totalBytes) -> publish(new long[]{rows, processedBytes, totalBytes})));
+            }
+            
+            @Override
+            protected void process(List<long[]> chunks) {
+                long[] latest = chunks.get(chunks.size() - 1);
+                long elapsed = Math.max(1, System.currentTimeMillis() - started);
+                monitor.setNote("Đã nhập " + latest[0] + " dòng (" + latest[0] * 1000 / elapsed + " dòng/giây)");
+                monitor.setProgress((int) Math.min(99, latest[1] * 100 / Math.max(1, latest[2])));
+            }
+            
+            @Override
+            protected void done() {
+                cancelWatcher.stop();
+                monitor.close();
+                try {
+                    showImportResult(get());
+                } catch (Exception e) {
+                    if (!token.isCancelled()) {
+                        Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                        JOptionPane.showMessageDialog(BaseCrudForm.this, 
+                            "Lỗi khi nhập dữ liệu: " + cause.getMessage(), 
+                            "Lỗi", 
+                            JOptionPane.ERROR_MESSAGE);
+                        cause.printStackTrace();
+                    }
+                }
+                // Các khối đã ghi vẫn được giữ kể cả khi hủy hoặc lỗi
+                ForeignKeyLookupCache.getInstance(dbContext).invalidate(tableName);
+                loadData();
+            }
+        };
+        worker.execute();
+    }
+    
+    private void showImportResult(CsvImporter.Result result) {
+        String summary = String.format("Đã nhập %d dòng trong %.1f giây (%.0f dòng/giây)", 
+            result.getImportedRows(), result.getElapsedMillis() / 1000.0, result.getRowsPerSecond());
+        if (result.getErrorCount() == 0) {
+            JOptionPane.showMessageDialog(this, summary, "Thông báo", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        StringBuilder details = new StringBuilder();
+        for (CsvImporter.LineError error : result.getErrors()) {
+            details.append(error).append('\n');
+        }
+        if (result.getErrors().size() < result.getErrorCount()) {
+            details.append("...");
+        }
+        JTextArea errorArea = new JTextArea(details.toString(), 15, 60);
+        errorArea.setEditable(false);
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.add(new JLabel("<html>" + summary + "<br>" + result.getErrorCount() + " dòng lỗi đã bị bỏ qua:</html>"), 
+            BorderLayout.NORTH);
+        panel.add(new JScrollPane(errorArea), BorderLayout.CENTER);
+        JOptionPane.showMessageDialog(this, panel, "Kết quả nhập dữ liệu", JOptionPane.WARNING_MESSAGE);
+    }
+    
+    /**
+     * Thêm các dòng dán từ bảng tính (phân cách bằng tab, dòng đầu là tên cột) trong một transaction ở background
+     * Dữ liệu được kiểm tra hết trước khi ghi (cùng quy tắc với nhập CSV), có lỗi thì không thêm dòng nào.
+     * Các dòng mới được nối vào grid, không tải lại cả bảng.
+     */
+    protected void pasteRows() {
+        String text;
+        try {
+            text = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, 
+                "Clipboard không chứa dữ liệu dạng văn bản", 
+                "Thông báo", 
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        List<List<String>> records = CsvImporter.parseText(text, '\t');
+        if (records.size() < 2) {
+            JOptionPane.showMessageDialog(this, 
+                "Dữ liệu dán cần có dòng tiêu đề là tên cột và ít nhất một dòng dữ liệu", 
+                "Thông báo", 
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        List<String> errors = new ArrayList<>();
+        List<ColumnInfo> pasteColumns = CsvImporter.mapColumns(columns, records.get(0), errors);
+        List<Object[]> rows = new ArrayList<>();
+        for (int r = 1; r < records.size() && errors.isEmpty(); r++) {
+            int line = r + 1;
+            Object[] row = CsvImporter.toRow(pasteColumns, records.get(r), this::convertValue, 
+                message -> errors.add("Dòng " + line + ": " + message));
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        if (!errors.isEmpty()) {
+            StringBuilder message = new StringBuilder("Dữ liệu dán không hợp lệ, chưa thêm dòng nào:\n");
+            for (int i = 0; i < Math.min(errors.size(), PASTE_ERRORS_SHOWN); i++) {
+                message.append(errors.get(i)).append('\n');
+            }
+            if (errors.size() > PASTE_ERRORS_SHOWN) {
+                message.append("... và ").append(errors.size() - PASTE_ERRORS_SHOWN).append(" lỗi khác");
+            }
+            JOptionPane.showMessageDialog(this, message.toString(), "Lỗi", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        int confirm = JOptionPane.showConfirmDialog(this, 
+            "Thêm " + rows.size() + " dòng vào " + tableName + "?", 
+            "Xác nhận", 
+            JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+        
+        List<String> columnNames = pasteColumns.stream().map(ColumnInfo::getName).collect(Collectors.toList());
+        // Grid phân trang tự tải lại trang, không cần đọc lại các dòng vừa thêm
+        String[] gridColumnNames = dataTable.getModel() == pagedModel ? null
+            : gridColumns.stream().map(ColumnInfo::getName).toArray(String[]::new);
+        int generation = loadGeneration;
+        SwingWorker<List<Object>, Void> worker = new SwingWorker<List<Object>, Void>() {
+            private List<Map<String, Object>> inserted;
+            
+            @Override
+            protected List<Object> doInBackground() throws Exception {
+                List<Object> keys = dbContext.insertBatchAndGetKeys(tableName, columnNames, rows);
+                if (gridColumnNames != null && !keys.contains(null)) {
+                    try {
+                        inserted = dbContext.getByIds(tableName, primaryKeyColumn, keys, gridColumnNames);
+                    } catch (Exception e) {
+                        // Dữ liệu đã được thêm, grid sẽ tải lại toàn bộ
+                        System.err.println("Không tải lại được các dòng vừa thêm: " + e.getMessage());
+                    }
+                }
+                return keys;
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    List<Object> keys = get();
+                    ForeignKeyLookupCache.getInstance(dbContext).invalidate(tableName);
+                    appendInsertedRows(keys, generation == loadGeneration ? inserted : null);
+                    JOptionPane.showMessageDialog(BaseCrudForm.this, 
+                        "Đã thêm " + rows.size() + " dòng!", 
+                        "Thông báo", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(BaseCrudForm.this, 
+                        "Lỗi khi thêm dữ liệu: " + cause.getMessage(), 
+                        "Lỗi", 
+                        JOptionPane.ERROR_MESSAGE);
+                    cause.printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+    
+    /**
+     * Nối các dòng vừa thêm vào grid (đã đọc lại theo khóa ở thread nền) rồi chọn các dòng đó
+     * @param fetched null nếu không đọc lại được hoặc grid đã được tải lại trong lúc thêm, khi đó tải lại toàn bộ
+     */
+    private void appendInsertedRows(List<Object> keys, List<Map<String, Object>> fetched) {
+        if (dataTable.getModel() == pagedModel) {
+            pagedModel.refresh();
+            return;
+        }
+        if (loadInProgress || fetched == null) {
+            loadData();
+            return;
+        }
+        
+        // Giữ thứ tự như dữ liệu dán
+        Map<String, Map<String, Object>> rowsByKey = new HashMap<>();
+        for (Map<String, Object> row : fetched) {
+            rowsByKey.put(String.valueOf(row.get(primaryKeyColumn)), row);
+        }
+        List<Map<String, Object>> ordered = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            Map<String, Object> row = rowsByKey.get(String.valueOf(key));
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        int first = tableModel.getRowCount();
+        appendRows(ordered);
+        
+        dataTable.clearSelection();
+        for (int i = first; i < tableModel.getRowCount(); i++) {
+            int viewRow = dataTable.convertRowIndexToView(i);
+            if (viewRow >= 0) {
+                dataTable.addRowSelectionInterval(viewRow, viewRow);
+            }
+        }
+        int firstView = first < tableModel.getRowCount() ? dataTable.convertRowIndexToView(first) : -1;
+        if (firstView >= 0) {
+            dataTable.scrollRectToVisible(dataTable.getCellRect(firstView, 0, true));
+        }
+    }
+    
+    /**
+     * Hook method: Các cột được xuất ra CSV
+     * Mặc định là mọi cột trừ BLOB/CLOB
+     */
+    protected List<String> getExportColumns() {
+        return columns.stream()
+            .filter(column -> !column.isLargeObject())
+            .map(ColumnInfo::getName)
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Hook method: Chọn cách tải dữ liệu
+     * Mặc định dựa trên số dòng ước lượng của bảng (DatabaseContext.chooseLoadMode)
+     */
+    protected LoadMode chooseLoadMode() {
+        try {
+            return dbContext.chooseLoadMode(tableName);
+        } catch (Exception e) {
+            System.err.println("Không ước lượng được số dòng của " + tableName + ": " + e.getMessage());
+            return LoadMode.EAGER;
+        }
+    }
+    
+    /**
+     * Gắn model cho grid, cột được tạo lại nên cần đặt lại độ rộng
+     */
+    private void useModel(TableModel model) {
+        if (dataTable.getModel() != model) {
+            // Sorter gắn với model trong bộ nhớ, bỏ ra trước khi đổi model
+            dataTable.setRowSorter(null);
+            dataTable.setModel(model);
+            if (model == tableModel) {
+                dataTable.setRowSorter(rowSorter);
+            }
+            adjustColumnWidths();
+            updateSortIndicators();
+        }
+        if (model == pagedModel) {
+            // Model ảo không giữ dữ liệu gốc của các dòng nên chỉ sửa qua form
+            inlineEditing = false;
+        }
+        if (searchField != null) {
+            // Bảng lớn dùng hàng ô lọc trên database thay cho tìm nhanh
+            searchField.setEnabled(model != pagedModel);
+        }
+        updateEditButtons();
+    }
+    
+    private void updateRowCount() {
+        // Subclass có thể tự tạo toolbar không có nhãn số dòng
+        if (lblRowCount != null) {
+            int total = dataTable.getModel().getRowCount();
+            int shown = dataTable.getRowCount();
+            lblRowCount.setText(shown == total 
+                ? "Tổng số: " + total + " dòng" 
+                : "Tìm thấy: " + shown + "/" + total + " dòng");
+        }
+    }
+    
+    /**
+     * Hook method: Cột có được sửa trực tiếp trên grid hay không
+     * Mặc định không cho sửa khóa chính
+     */
+    protected boolean isInlineEditable(ColumnInfo column) {
+        return !column.getName().equals(primaryKeyColumn);
+    }
+    
+    /**
+     * Bật/tắt chế độ sửa trực tiếp trên grid (chỉ khi dữ liệu được tải hết vào bộ nhớ)
+     * Tắt khi còn thay đổi chưa lưu sẽ hỏi người dùng có bỏ các thay đổi đó không
+     */
+    protected void setInlineEditing(boolean enabled) {
+        if (enabled && dataTable.getModel() == pagedModel) {
+            JOptionPane.showMessageDialog(this, 
+                "Bảng lớn chỉ hỗ trợ cập nhật qua form", 
+                "Thông báo", 
+                JOptionPane.INFORMATION_MESSAGE);
+            enabled = false;
+        } else if (!enabled && !confirmDiscardEdits()) {
+            enabled = true;
+        }
+        inlineEditing = enabled;
+        updateEditButtons();
+    }
+    
+    /**
+     * Ghi nhận giá trị vừa sửa trong ô: đổi kiểu theo cột và đánh dấu cột đã sửa của dòng
+     * Sửa về đúng giá trị gốc thì bỏ đánh dấu
+     * @return Giá trị đã đổi kiểu để đặt vào ô
+     */
+    private Object trackEdit(int row, int column, Object value) {
+        ColumnInfo info = gridColumns.get(column);
+        Object converted = value instanceof String ? convertValue(info, ((String) value).trim()) : value;
+        if (converted == null && !info.isNullable()) {
+            throw new IllegalArgumentException("Trường " + info.getName() + " là bắt buộc");
+        }
+        
+        Map<String, Object> original = data.get(row);
+        String key = String.valueOf(original.get(primaryKeyColumn));
+        Map<String, Object> changes = dirtyRows.computeIfAbsent(key, k -> new LinkedHashMap<>());
+        if (sameValue(original.get(info.getName()), converted)) {
+            changes.remove(info.getName());
+            if (changes.isEmpty()) {
+                dirtyRows.remove(key);
+            }
+        } else {
+            changes.put(info.getName(), converted);
+        }
+        updateEditButtons();
+        return converted;
+    }
+    
+    private static boolean sameValue(Object a, Object b) {
+        // Giá trị từ database và giá trị đã đổi kiểu có thể khác lớp (Integer/Long), so theo chuỗi
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return String.valueOf(a).equals(String.valueOf(b));
+    }
+    
+    private boolean isDirtyCell(int row, int column) {
+        if (dirtyRows.isEmpty() || dataTable.getModel() != tableModel || row >= data.size()) {
+            return false;
+        }
+        Map<String, Object> changes = dirtyRows.get(String.valueOf(data.get(row).get(primaryKeyColumn)));
+        return changes != null && changes.containsKey(gridColumns.get(column).getName());
+    }
+    
+    private void updateEditButtons() {
+        // Subclass có thể tự tạo toolbar không có các nút sửa trực tiếp
+        if (btnInlineEdit == null || btnSaveAll == null || btnDiscardEdits == null) {
+            return;
+        }
+        btnInlineEdit.setSelected(inlineEditing);
+        btnInlineEdit.setEnabled(dataTable.getModel() != pagedModel);
+        btnSaveAll.setEnabled(!dirtyRows.isEmpty() && !saveInProgress);
+        btnDiscardEdits.setEnabled(!dirtyRows.isEmpty() && !saveInProgress);
+        btnSaveAll.setText(dirtyRows.isEmpty() ? "Lưu tất cả" : "Lưu tất cả (" + dirtyRows.size() + ")");
+    }
+    
+    /**
+     * Hỏi người dùng trước khi bỏ các thay đổi chưa lưu
+     * @return true nếu không có thay đổi nào hoặc người dùng đồng ý bỏ
+     */
+    protected boolean confirmDiscardEdits() {
+        if (dataTable.isEditing()) {
+            dataTable.getCellEditor().stopCellEditing();
+        }
+        if (dirtyRows.isEmpty()) {
+            return true;
+        }
+        int confirm = JOptionPane.showConfirmDialog(this, 
+            "Có " + dirtyRows.size() + " dòng đã sửa nhưng chưa lưu. Bỏ các thay đổi này?", 
+            "Xác nhận", 
+            JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return false;
+        }
+        discardEdits();
+        return true;
+    }
+    
+    /**
+     * Trả các ô đã sửa về giá trị gốc
+     */
+    @SuppressWarnings("unchecked")
+    protected void discardEdits() {
+        if (dataTable.isEditing()) {
+            dataTable.getCellEditor().cancelCellEditing();
+        }
+        for (String key : dirtyRows.keySet()) {
+            int index = indexOfKey(key);
+            if (index >= 0) {
+                tableModel.getDataVector().set(index, toRowVector(data.get(index)));
+                tableModel.fireTableRowsUpdated(index, index);
+            }
         }
+        dirtyRows.clear();
+        updateEditButtons();
     }
     
     /**
-     * Template Method: Setup UI components
+     * Lưu mọi dòng đã sửa trong một transaction ở background, mỗi dòng chỉ cập nhật các cột đã sửa
+     * Dòng đã bị người khác sửa/xóa kể từ lúc tải được báo là xung đột, khi đó không dòng nào được lưu
      */
-    private void setupUI() {
-        setLayout(new BorderLayout());
+    protected void saveAllEdits() {
+        if (dataTable.isEditing() && !dataTable.getCellEditor().stopCellEditing()) {
+            return;
+        }
+        if (dirtyRows.isEmpty()) {
+            return;
+        }
         
-        // Toolbar
-        JToolBar toolBar = createToolBar();
-        add(toolBar, BorderLayout.NORTH);
+        List<RowChange> changes = new ArrayList<>();
+        List<Object> keys = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : dirtyRows.entrySet()) {
+            int index = indexOfKey(entry.getKey());
+            if (index < 0) {
+                continue;
+            }
+            Map<String, Object> original = data.get(index);
+            Map<String, Object> originalValues = new LinkedHashMap<>();
+            for (String column : entry.getValue().keySet()) {
+                originalValues.put(column, original.get(column));
+            }
+            Object key = original.get(primaryKeyColumn);
+            changes.add(new RowChange(key, originalValues, new LinkedHashMap<>(entry.getValue())));
+            keys.add(key);
+        }
         
-        // Table
-        setupTable();
-        add(scrollPane, BorderLayout.CENTER);
+        String[] columnNames = gridColumns.stream().map(ColumnInfo::getName).toArray(String[]::new);
+        int generation = loadGeneration;
+        saveInProgress = true;
+        updateEditButtons();
         
-        // Context menu
-        setupContextMenu();
+        SwingWorker<List<Map<String, Object>>, Void> worker = new SwingWorker<List<Map<String, Object>>, Void>() {
+            private List<Object> conflicts = Collections.emptyList();
+            
+            @Override
+            protected List<Map<String, Object>> doInBackground() throws Exception {
+                conflicts = dbContext.updateBatch(tableName, changes);
+                if (!conflicts.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                return dbContext.getByIds(tableName, primaryKeyColumn, keys, columnNames);
+            }
+            
+            @Override
+            protected void done() {
+                saveInProgress = false;
+                try {
+                    List<Map<String, Object>> rows = get();
+                    if (!conflicts.isEmpty()) {
+                        showConflicts(conflicts);
+                        return;
+                    }
+                    ForeignKeyLookupCache.getInstance(dbContext).invalidate(tableName);
+                    dirtyRows.clear();
+                    if (generation == loadGeneration) {
+                        applyReloadedRows(keys, rows);
+                    }
+                    JOptionPane.showMessageDialog(BaseCrudForm.this, 
+                        "Đã lưu " + changes.size() + " dòng!", 
+                        "Thông báo", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(BaseCrudForm.this, 
+                        "Lỗi khi lưu dữ liệu: " + cause.getMessage(), 
+                        "Lỗi", 
+                        JOptionPane.ERROR_MESSAGE);
+                    cause.printStackTrace();
+                } finally {
+                    updateEditButtons();
+                }
+            }
+        };
+        worker.execute();
     }
     
     /**
-     * Template Method: Tạo toolbar
+     * Báo các dòng xung đột, người dùng có thể tải lại các dòng đó (bỏ phần đã sửa) rồi lưu lại phần còn lại
      */
-    protected JToolBar createToolBar() {
-        JToolBar toolBar = new JToolBar();
-        toolBar.setFloatable(false);
-        
-        btnAdd = new JButton("Thêm");
-        btnAdd.addActionListener(e -> showAddForm());
-        toolBar.add(btnAdd);
-        
-        btnDelete = new JButton("Xóa");
-        btnDelete.addActionListener(e -> deleteSelected());
-        toolBar.add(btnDelete);
-        
-        toolBar.addSeparator();
-        
-        btnRefresh = new JButton("Làm mới");
-        btnRefresh.addActionListener(e -> loadData());
-        toolBar.add(btnRefresh);
-        
-        return toolBar;
+    private void showConflicts(List<Object> conflicts) {
+        StringBuilder keys = new StringBuilder();
+        for (int i = 0; i < Math.min(conflicts.size(), CONFLICT_KEYS_SHOWN); i++) {
+            keys.append(i > 0 ? ", " : "").append(conflicts.get(i));
+        }
+        if (conflicts.size() > CONFLICT_KEYS_SHOWN) {
+            keys.append(", ...");
+        }
+        int choice = JOptionPane.showConfirmDialog(this, 
+            "Chưa lưu được vì " + conflicts.size() + " dòng đã bị thay đổi hoặc xóa kể từ lúc tải (" 
+                + primaryKeyColumn + ": " + keys + ").\n" 
+                + "Tải lại các dòng này và bỏ phần đã sửa của chúng?", 
+            "Xung đột dữ liệu", 
+            JOptionPane.YES_NO_OPTION, 
+            JOptionPane.WARNING_MESSAGE);
+        if (choice == JOptionPane.YES_OPTION) {
+            for (Object key : conflicts) {
+                dirtyRows.remove(String.valueOf(key));
+            }
+            reloadRows(conflicts);
+        }
     }
     
     /**
-     * Template Method: Setup table
+     * Tải lại các dòng theo khóa chính bằng một truy vấn (ở background) và cập nhật chúng trên grid
+     * Dòng không còn trong database bị bỏ khỏi grid
      */
-    protected void setupTable() {
-        // Tạo table model với các cột
-        String[] columnNames = columns.stream()
-            .map(ColumnInfo::getName)
-            .toArray(String[]::new);
+    protected void reloadRows(Collection<Object> keys) {
+        String[] columnNames = gridColumns.stream().map(ColumnInfo::getName).toArray(String[]::new);
+        int generation = loadGeneration;
         
-        tableModel = new DefaultTableModel(columnNames, 0) {
+        SwingWorker<List<Map<String, Object>>, Void> worker = new SwingWorker<List<Map<String, Object>>, Void>() {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Không cho edit trực tiếp trên table
+            protected List<Map<String, Object>> doInBackground() throws Exception {
+                return dbContext.getByIds(tableName, primaryKeyColumn, keys, columnNames);
             }
-        };
-        
-        dataTable = new JTable(tableModel);
-        dataTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        dataTable.setRowHeight(25);
-        
-        // Auto resize columns
-        dataTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
-        
-        // Double click để edit
-        dataTable.addMouseListener(new MouseAdapter() {
+            
             @Override
-            public void mouseClicked(MouseEvent e) {
-                if (e.getClickCount() == 2) {
-                    showEditForm();
+            protected void done() {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                try {
+                    applyReloadedRows(keys, get());
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Không tải lại được các dòng đã sửa: " + cause.getMessage());
+                    loadData();
                 }
             }
-        });
-        
-        scrollPane = new JScrollPane(dataTable);
+        };
+        worker.execute();
     }
     
     /**
-     * Template Method: Setup context menu
+     * Thay các dòng đã tải lại vào grid theo vị trí tra từ khóa, xóa dòng không còn trong database
      */
-    protected void setupContextMenu() {
-        contextMenu = new JPopupMenu();
-        
-        JMenuItem addItem = new JMenuItem("Thêm mới");
-        addItem.addActionListener(e -> showAddForm());
-        contextMenu.add(addItem);
-        
-        JMenuItem editItem = new JMenuItem("Cập nhật");
-        editItem.addActionListener(e -> showEditForm());
-        contextMenu.add(editItem);
-        
-        JMenuItem deleteItem = new JMenuItem("Xóa");
-        deleteItem.addActionListener(e -> deleteSelected());
-        contextMenu.add(deleteItem);
-        
-        dataTable.addMouseListener(new MouseAdapter() {
+    @SuppressWarnings("unchecked")
+    private void applyReloadedRows(Collection<Object> keys, List<Map<String, Object>> rows) {
+        Map<String, Map<String, Object>> rowsByKey = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            rowsByKey.put(keyOf(row), row);
+        }
+        // Từ cuối lên để các lần xóa không làm lệch vị trí còn lại
+        Set<Integer> indexes = new TreeSet<>(Collections.reverseOrder());
+        for (Object key : keys) {
+            int index = indexOfKey(key);
+            if (index >= 0) {
+                indexes.add(index);
+            }
+        }
+        int firstRemoved = data.size();
+        for (int i : indexes) {
+            String key = keyOf(data.get(i));
+            Map<String, Object> row = rowsByKey.get(key);
+            if (row == null) {
+                data.remove(i);
+                rowIndexByKey.remove(key);
+                tableModel.removeRow(i);
+                firstRemoved = i;
+            } else {
+                data.set(i, row);
+                tableModel.getDataVector().set(i, toRowVector(row));
+                tableModel.fireTableRowsUpdated(i, i);
+            }
+        }
+        reindexRows(firstRemoved);
+        updateSearchIndex(keys, rows);
+    }
+    
+    /**
+     * Hook method: Các cột được đánh chỉ mục cho ô tìm nhanh
+     * Mặc định là các cột chuỗi trên grid
+     */
+    protected List<String> getSearchColumns() {
+        return gridColumns.stream()
+            .filter(column -> column.getJavaType() == String.class)
+            .map(ColumnInfo::getName)
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Lập chỉ mục tìm kiếm cho dữ liệu vừa tải ở background
+     * Các dòng thay đổi trong lúc lập được cập nhật thẳng vào chỉ mục
+     */
+    private void buildSearchIndex() {
+        List<String> searchColumns = getSearchColumns();
+        if (searchColumns.isEmpty()) {
+            return;
+        }
+        SearchIndex index = new SearchIndex(primaryKeyColumn, searchColumns);
+        List<Map<String, Object>> rows = new ArrayList<>(data);
+        searchIndex = index;
+        indexWorker = new SwingWorker<Void, Void>() {
             @Override
-            public void mousePressed(MouseEvent e) {
-                if (e.isPopupTrigger()) {
-                    showContextMenu(e);
-                }
+            protected Void doInBackground() throws Exception {
+                index.load(rows);
+                return null;
             }
             
             @Override
-            public void mouseReleased(MouseEvent e) {
-                if (e.isPopupTrigger()) {
-                    showContextMenu(e);
+            protected void done() {
+                if (searchIndex == index && !isCancelled()) {
+                    applySearch();
                 }
             }
-        });
+        };
+        indexWorker.execute();
     }
     
-    private void showContextMenu(MouseEvent e) {
-        int row = dataTable.rowAtPoint(e.getPoint());
-        if (row >= 0) {
-            dataTable.setRowSelectionInterval(row, row);
-            contextMenu.show(dataTable, e.getX(), e.getY());
+    private void resetSearchIndex() {
+        if (indexWorker != null) {
+            indexWorker.cancel(true);
+            indexWorker = null;
+        }
+        searchIndex = null;
+        searchMatches = null;
+        if (rowSorter != null) {
+            rowSorter.setRowFilter(null);
         }
     }
     
     /**
-     * Template Method: Load data từ database
+     * Cập nhật chỉ mục theo các dòng vừa đổi trên grid rồi lọc lại nếu đang tìm
      */
-    protected void loadData() {
-        try {
-            data = dbContext.getAll(tableName);
-            tableModel.setRowCount(0);
-            
-            for (Map<String, Object> row : data) {
-                Object[] rowData = new Object[columns.size()];
-                for (int i = 0; i < columns.size(); i++) {
-                    rowData[i] = row.get(columns.get(i).getName());
-                }
-                tableModel.addRow(rowData);
-            }
-            
-            // Adjust column widths
-            adjustColumnWidths();
-            
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Lỗi khi tải dữ liệu: " + e.getMessage(), 
-                "Lỗi", 
-                JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
+    private void updateSearchIndex(Collection<?> removedKeys, Collection<Map<String, Object>> changedRows) {
+        SearchIndex index = searchIndex;
+        if (index == null) {
+            return;
+        }
+        for (Object key : removedKeys) {
+            index.remove(key);
+        }
+        for (Map<String, Object> row : changedRows) {
+            index.put(row);
+        }
+        if (searchMatches != null) {
+            applySearch();
+        }
+    }
+    
+    /**
+     * Lọc grid theo nội dung ô tìm nhanh bằng cách tra chỉ mục
+     * Chưa có chỉ mục (đang tải/lập chỉ mục, bảng lớn) thì hiển thị tất cả
+     */
+    protected void applySearch() {
+        if (searchField == null || rowSorter == null) {
+            return;
+        }
+        SearchIndex index = searchIndex;
+        Set<String> matches = index != null && index.isLoaded() ? index.search(searchField.getText()) : null;
+        if (matches == null && searchMatches == null) {
+            return;
         }
+        searchMatches = matches;
+        rowSorter.setRowFilter(matches != null ? searchFilter : null);
+        updateRowCount();
     }
     
     /**
      * Hook method: Có thể override để điều chỉnh độ rộng cột
      */
     protected void adjustColumnWidths() {
-        for (int i = 0; i < columns.size(); i++) {
-            int width = Math.max(100, columns.get(i).getSize() * 8);
+        for (int i = 0; i < gridColumns.size(); i++) {
+            int width = Math.max(100, gridColumns.get(i).getSize() * 8);
             dataTable.getColumnModel().getColumn(i).setPreferredWidth(Math.min(width, 300));
         }
     }
@@ -259,11 +1741,80 @@ public abstract class BaseCrudForm extends JFrame {
                 JOptionPane.INFORMATION_MESSAGE);
             return;
         }
+        selectedRow = dataTable.convertRowIndexToModel(selectedRow);
+        if (!isRowLoaded(selectedRow)) {
+            return;
+        }
         
-        Map<String, Object> rowData = data.get(selectedRow);
+        Map<String, Object> gridRow = getRowData(selectedRow);
+        Map<String, Object> rowData;
+        try {
+            rowData = loadFullRow(gridRow);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, 
+                "Lỗi khi tải dữ liệu: " + e.getMessage(), 
+                "Lỗi", 
+                JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+            return;
+        }
+        
+        if (rowData == null) {
+            JOptionPane.showMessageDialog(this, 
+                "Dòng này không còn tồn tại trong database", 
+                "Thông báo", 
+                JOptionPane.INFORMATION_MESSAGE);
+            removeRowByKey(gridRow.get(primaryKeyColumn));
+            return;
+        }
         showDataForm(rowData, false);
     }
     
+    /**
+     * Dữ liệu (các cột trên grid) của dòng tại vị trí trong bảng
+     * Với model ảo, trả về null nếu trang chứa dòng chưa được tải
+     */
+    protected Map<String, Object> getRowData(int row) {
+        if (dataTable.getModel() == pagedModel) {
+            return pagedModel.getRow(row);
+        }
+        return data.get(row);
+    }
+    
+    /**
+     * Kiểm tra dữ liệu của dòng đã có trên grid, báo cho người dùng nếu trang còn đang tải
+     */
+    private boolean isRowLoaded(int row) {
+        if (getRowData(row) != null) {
+            return true;
+        }
+        JOptionPane.showMessageDialog(this, 
+            "Dữ liệu của dòng đang được tải, vui lòng thử lại", 
+            "Thông báo", 
+            JOptionPane.INFORMATION_MESSAGE);
+        return false;
+    }
+    
+    @Override
+    public void dispose() {
+        cancelLoad();
+        if (pagedModel != null) {
+            pagedModel.close();
+        }
+        super.dispose();
+    }
+    
+    /**
+     * Tải đầy đủ các cột của một dòng khi mở form cập nhật
+     * Grid chỉ chứa các cột hiển thị nên cần lấy lại record theo khóa chính
+     */
+    protected Map<String, Object> loadFullRow(Map<String, Object> gridRow) throws Exception {
+        if (gridColumns.size() == columns.size()) {
+            return gridRow;
+        }
+        return dbContext.getById(tableName, primaryKeyColumn, gridRow.get(primaryKeyColumn));
+    }
+    
     /**
      * Template Method: Hiển thị form nhập liệu
      */
@@ -286,7 +1837,6 @@ public abstract class BaseCrudForm extends JFrame {
         btnSave.addActionListener(e -> {
             if (saveData(dialog, data, isNew)) {
                 dialog.dispose();
-                loadData();
             }
         });
         
@@ -332,6 +1882,12 @@ public abstract class BaseCrudForm extends JFrame {
             gbc.weightx = 1.0;
             gbc.fill = GridBagConstraints.HORIZONTAL;
             
+            // Cột BLOB/CLOB: không nạp nội dung, chỉ cho phép xuất/nhập file
+            if (data.get(columnName) instanceof LobHandle) {
+                panel.add(createLobField((LobHandle) data.get(columnName)), gbc);
+                continue;
+            }
+            
             JComponent inputField = createInputField(column, data.get(columnName));
             inputFields.put(columnName, inputField);
             panel.add(inputField, gbc);
@@ -348,6 +1904,14 @@ public abstract class BaseCrudForm extends JFrame {
         Class<?> javaType = column.getJavaType();
         String columnName = column.getName();
         
+        ForeignKeyInfo foreignKey = foreignKeys.get(columnName);
+        if (foreignKey != null) {
+            JComponent lookupField = createLookupField(foreignKey, value);
+            if (lookupField != null) {
+                return lookupField;
+            }
+        }
+        
         if (javaType == Boolean.class) {
             JCheckBox checkBox = new JCheckBox();
             if (value != null) {
@@ -376,6 +1940,119 @@ public abstract class BaseCrudForm extends JFrame {
         }
     }
     
+    /**
+     * Hook method: Tạo combo box chọn giá trị cho cột khóa ngoại
+     * Dữ liệu lấy từ ForeignKeyLookupCache, gõ để lọc theo nhãn
+     * @return null nếu không tải được danh sách (dùng text field thông thường)
+     */
+    protected JComponent createLookupField(ForeignKeyInfo foreignKey, Object value) {
+        List<LookupItem> items;
+        LookupItem selected;
+        try {
+            ForeignKeyLookupCache cache = ForeignKeyLookupCache.getInstance(dbContext);
+            items = cache.getItems(foreignKey);
+            selected = cache.find(foreignKey, value);
+        } catch (Exception e) {
+            System.err.println("Lỗi khi tải danh sách " + foreignKey.getReferencedTable() + ": " + e.getMessage());
+            return null;
+        }
+        
+        JComboBox<LookupItem> comboBox = new JComboBox<>();
+        comboBox.setEditable(true);
+        comboBox.putClientProperty(LOOKUP_ITEMS, items);
+        filterLookupItems(comboBox, items, "");
+        comboBox.setSelectedItem(selected != null ? selected : (value != null ? value.toString() : null));
+        
+        // Lọc danh sách theo nội dung đang gõ
+        JTextField editor = (JTextField) comboBox.getEditor().getEditorComponent();
+        editor.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyReleased(KeyEvent e) {
+                int keyCode = e.getKeyCode();
+                if (keyCode == KeyEvent.VK_UP || keyCode == KeyEvent.VK_DOWN 
+                        || keyCode == KeyEvent.VK_ENTER || keyCode == KeyEvent.VK_ESCAPE) {
+                    return;
+                }
+                String text = editor.getText();
+                filterLookupItems(comboBox, items, text);
+                editor.setText(text);
+                if (comboBox.isShowing()) {
+                    comboBox.showPopup();
+                }
+            }
+        });
+        return comboBox;
+    }
+    
+    private void filterLookupItems(JComboBox<LookupItem> comboBox, List<LookupItem> items, String text) {
+        String filter = text.trim().toLowerCase();
+        DefaultComboBoxModel<LookupItem> model = new DefaultComboBoxModel<>();
+        for (LookupItem item : items) {
+            if (filter.isEmpty() || item.getLabel().toLowerCase().contains(filter)) {
+                model.addElement(item);
+                if (model.getSize() >= LOOKUP_DISPLAY_LIMIT) {
+                    break;
+                }
+            }
+        }
+        model.setSelectedItem(text.isEmpty() ? null : text);
+        comboBox.setModel(model);
+    }
+    
+    /**
+     * Hook method: Tạo field cho cột BLOB/CLOB
+     * Nội dung được stream trực tiếp giữa database và file
+     */
+    protected JComponent createLobField(LobHandle handle) {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        panel.add(new JLabel(handle.toString()));
+        
+        JButton btnExport = new JButton("Lưu ra file...");
+        btnExport.addActionListener(e -> {
+            JFileChooser fileChooser = new JFileChooser();
+            if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    long size = dbContext.readLob(handle, fileChooser.getSelectedFile().toPath());
+                    JOptionPane.showMessageDialog(this, 
+                        "Đã lưu " + Math.max(size, 0) + (handle.isCharacter() ? " ký tự" : " byte"), 
+                        "Thông báo", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(this, 
+                        "Lỗi khi lưu file: " + ex.getMessage(), 
+                        "Lỗi", 
+                        JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace();
+                }
+            }
+        });
+        panel.add(btnExport);
+        
+        JButton btnImport = new JButton("Nạp từ file...");
+        btnImport.setEnabled(!handle.isCharacter());
+        btnImport.addActionListener(e -> {
+            JFileChooser fileChooser = new JFileChooser();
+            if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    dbContext.writeLob(handle, fileChooser.getSelectedFile().toPath());
+                    JOptionPane.showMessageDialog(this, 
+                        "Nạp file thành công!", 
+                        "Thông báo", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(this, 
+                        "Lỗi khi nạp file: " + ex.getMessage(), 
+                        "Lỗi", 
+                        JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace();
+                }
+            }
+        });
+        panel.add(btnImport);
+        
+        return panel;
+    }
+    
     /**
      * Template Method: Lưu dữ liệu
      */
@@ -398,7 +2075,9 @@ public abstract class BaseCrudForm extends JFrame {
             
             // Save to database
             if (isNew) {
-                dbContext.insert(tableName, newData);
+                Object newKey = dbContext.insertAndGetKey(tableName, newData);
+                ForeignKeyLookupCache.getInstance(dbContext).invalidate(tableName);
+                refreshRow(null, newKey);
                 JOptionPane.showMessageDialog(dialog, 
                     "Thêm mới thành công!", 
                     "Thông báo", 
@@ -407,6 +2086,10 @@ public abstract class BaseCrudForm extends JFrame {
                 Object primaryKeyValue = oldData.get(primaryKeyColumn);
                 String whereClause = primaryKeyColumn + " = '" + primaryKeyValue + "'";
                 dbContext.update(tableName, newData, whereClause);
+                ForeignKeyLookupCache.getInstance(dbContext).invalidate(tableName);
+                // Khóa chính có thể đã được sửa trên form
+                Object newKey = newData.get(primaryKeyColumn) != null ? newData.get(primaryKeyColumn) : primaryKeyValue;
+                refreshRow(primaryKeyValue, newKey);
                 JOptionPane.showMessageDialog(dialog, 
                     "Cập nhật thành công!", 
                     "Thông báo", 
@@ -434,7 +2117,27 @@ public abstract class BaseCrudForm extends JFrame {
         } else if (component instanceof JCheckBox) {
             return ((JCheckBox) component).isSelected();
         } else if (component instanceof JComboBox) {
-            return ((JComboBox<?>) component).getSelectedItem();
+            Object selected = ((JComboBox<?>) component).getSelectedItem();
+            if (selected instanceof LookupItem) {
+                return ((LookupItem) selected).getId();
+            }
+            Object items = component.getClientProperty(LOOKUP_ITEMS);
+            if (items instanceof List && selected != null) {
+                // Người dùng gõ tay: khớp theo nhãn hoặc giá trị khóa
+                String text = selected.toString().trim();
+                if (text.isEmpty()) {
+                    return null;
+                }
+                for (Object item : (List<?>) items) {
+                    LookupItem lookupItem = (LookupItem) item;
+                    if (lookupItem.getLabel().equalsIgnoreCase(text) 
+                            || String.valueOf(lookupItem.getId()).equals(text)) {
+                        return lookupItem.getId();
+                    }
+                }
+                return text;
+            }
+            return selected;
         }
         return null;
     }
@@ -446,6 +2149,10 @@ public abstract class BaseCrudForm extends JFrame {
     protected boolean validateData(Map<String, Object> data) {
         // Kiểm tra required fields
         for (ColumnInfo column : columns) {
+            // Cột không có trên form (ví dụ BLOB/CLOB) thì giữ nguyên giá trị cũ
+            if (!inputFields.containsKey(column.getName())) {
+                continue;
+            }
             if (!column.isNullable() && !column.isPrimaryKey()) {
                 Object value = data.get(column.getName());
                 if (value == null || value.toString().trim().isEmpty()) {
@@ -461,36 +2168,45 @@ public abstract class BaseCrudForm extends JFrame {
     }
     
     /**
-     * Template Method: Xóa dòng được chọn
+     * Template Method: Xóa các dòng được chọn
+     * Các dòng được xóa theo lô (DELETE ... IN) trong một transaction
      */
     protected void deleteSelected() {
-        int selectedRow = dataTable.getSelectedRow();
-        if (selectedRow < 0) {
+        int[] selectedRows = dataTable.getSelectedRows();
+        if (selectedRows.length == 0) {
             JOptionPane.showMessageDialog(this, 
-                "Vui lòng chọn một dòng để xóa", 
+                "Vui lòng chọn dòng để xóa", 
                 "Thông báo", 
                 JOptionPane.INFORMATION_MESSAGE);
             return;
         }
+        if (dataTable.isEditing()) {
+            dataTable.getCellEditor().cancelCellEditing();
+        }
+        
+        List<Object> keys = new ArrayList<>(selectedRows.length);
+        for (int row : selectedRows) {
+            if (!isRowLoaded(dataTable.convertRowIndexToModel(row))) {
+                return;
+            }
+            keys.add(getRowData(dataTable.convertRowIndexToModel(row)).get(primaryKeyColumn));
+        }
         
         int confirm = JOptionPane.showConfirmDialog(this, 
-            "Bạn có chắc chắn muốn xóa dòng này?", 
+            keys.size() == 1 ? "Bạn có chắc chắn muốn xóa dòng này?" 
+                : "Bạn có chắc chắn muốn xóa " + keys.size() + " dòng đã chọn?", 
             "Xác nhận", 
             JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                Map<String, Object> rowData = data.get(selectedRow);
-                Object primaryKeyValue = rowData.get(primaryKeyColumn);
-                String whereClause = primaryKeyColumn + " = '" + primaryKeyValue + "'";
-                
-                dbContext.delete(tableName, whereClause);
+                int deleted = dbContext.deleteByIds(tableName, keys);
+                ForeignKeyLookupCache.getInstance(dbContext).invalidate(tableName);
+                removeRowsByKey(keys);
                 JOptionPane.showMessageDialog(this, 
-                    "Xóa thành công!", 
+                    keys.size() == 1 ? "Xóa thành công!" : "Đã xóa " + deleted + " dòng!", 
                     "Thông báo", 
                     JOptionPane.INFORMATION_MESSAGE);
-                
-                loadData();
             } catch (Exception e) {
                 JOptionPane.showMessageDialog(this, 
                     "Lỗi khi xóa: " + e.getMessage(), 
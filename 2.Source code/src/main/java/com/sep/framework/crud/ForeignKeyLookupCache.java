@@ -0,0 +1,123 @@
+package com.sep.framework.crud;
+
+import com.sep.framework.database.ColumnInfo;
+import com.sep.framework.database.DatabaseContext;
+import com.sep.framework.database.ForeignKeyInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache dùng chung các lựa chọn (id, nhãn) của bảng được tham chiếu bởi khóa ngoại
+ * Mỗi bảng tham chiếu chỉ được đọc một lần, các form sau dùng lại dữ liệu trong bộ nhớ
+ * cho tới khi bảng đó thay đổi (invalidate)
+ */
+public class ForeignKeyLookupCache {
+    
+    /** Mỗi DatabaseContext (database chính, bản sao, shard...) có cache riêng */
+    private static final Map<DatabaseContext, ForeignKeyLookupCache> instances = new ConcurrentHashMap<>();
+    private final DatabaseContext dbContext;
+    private final Map<String, List<LookupItem>> items = new ConcurrentHashMap<>();
+    private final Map<String, String> labelColumns = new ConcurrentHashMap<>();
+    
+    private ForeignKeyLookupCache(DatabaseContext dbContext) {
+        this.dbContext = dbContext;
+    }
+    
+    /**
+     * Singleton Pattern: Lấy instance của database context
+     */
+    public static ForeignKeyLookupCache getInstance(DatabaseContext dbContext) {
+        return instances.computeIfAbsent(dbContext, ForeignKeyLookupCache::new);
+    }
+    
+    /**
+     * Bỏ cache của context không còn dùng (sau khi đóng context)
+     */
+    public static void release(DatabaseContext dbContext) {
+        instances.remove(dbContext);
+    }
+    
+    /**
+     * Chỉ định cột dùng làm nhãn hiển thị cho bảng
+     * Mặc định là cột chuỗi đầu tiên không phải khóa chính
+     */
+    public void setLabelColumn(String tableName, String column) {
+        labelColumns.put(tableName, column);
+        invalidate(tableName);
+    }
+    
+    /**
+     * Lấy các lựa chọn cho khóa ngoại, đọc từ database ở lần đầu
+     */
+    public List<LookupItem> getItems(ForeignKeyInfo foreignKey) throws Exception {
+        String key = foreignKey.getReferencedTable() + "." + foreignKey.getReferencedColumn();
+        List<LookupItem> cached = items.get(key);
+        if (cached == null) {
+            cached = load(foreignKey.getReferencedTable(), foreignKey.getReferencedColumn());
+            items.put(key, cached);
+        }
+        return cached;
+    }
+    
+    /**
+     * Tìm lựa chọn theo giá trị khóa, null nếu không có
+     */
+    public LookupItem find(ForeignKeyInfo foreignKey, Object id) throws Exception {
+        if (id == null) {
+            return null;
+        }
+        String text = id.toString();
+        for (LookupItem item : getItems(foreignKey)) {
+            if (String.valueOf(item.getId()).equals(text)) {
+                return item;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Bỏ cache của một bảng (gọi sau khi thêm/sửa/xóa dữ liệu bảng đó)
+     */
+    public void invalidate(String tableName) {
+        items.keySet().removeIf(key -> key.startsWith(tableName + "."));
+    }
+    
+    public void invalidateAll() {
+        items.clear();
+    }
+    
+    private List<LookupItem> load(String tableName, String idColumn) throws Exception {
+        String labelColumn = labelColumns.get(tableName);
+        if (labelColumn == null) {
+            labelColumn = chooseLabelColumn(dbContext.getColumns(tableName), idColumn);
+        }
+        
+        // Chỉ đọc cột khóa và cột nhãn
+        String[] projection = labelColumn.equals(idColumn) 
+            ? new String[]{idColumn} 
+            : new String[]{idColumn, labelColumn};
+        List<LookupItem> result = new ArrayList<>();
+        for (Map<String, Object> row : dbContext.getAll(tableName, projection)) {
+            Object id = row.get(idColumn);
+            Object label = row.get(labelColumn);
+            result.add(new LookupItem(id, labelColumn.equals(idColumn) || label == null 
+                ? String.valueOf(id) 
+                : id + " - " + label));
+        }
+        return Collections.unmodifiableList(result);
+    }
+    
+    private static String chooseLabelColumn(List<ColumnInfo> columns, String idColumn) {
+        for (ColumnInfo column : columns) {
+            if (!column.isPrimaryKey() && !column.getName().equals(idColumn) 
+                    && column.getJavaType() == String.class && !column.isLargeObject()) {
+                return column.getName();
+            }
+        }
+        return idColumn;
+    }
+}
@@ -0,0 +1,27 @@
+package com.sep.framework.crud;
+
+/**
+ * Một lựa chọn trong combo box khóa ngoại: giá trị khóa và nhãn hiển thị
+ */
+public class LookupItem {
+    private final Object id;
+    private final String label;
+    
+    public LookupItem(Object id, String label) {
+        this.id = id;
+        this.label = label;
+    }
+    
+    public Object getId() {
+        return id;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,216 @@
+package com.sep.framework.crud;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Table model ảo cho bảng lớn: chỉ giữ các trang đang được xem
+ * Tổng số dòng được đếm trước để thanh cuộn đúng kích thước, các trang được tải ở background
+ * khi JTable cần vẽ (kèm trang liền kề để cuộn mượt) và giữ trong một LRU có giới hạn.
+ * Ô của trang chưa tải trả về null, bảng được vẽ lại khi trang về tới.
+ *
+ * Mọi truy cập tới model (getValueAt, refresh...) phải diễn ra trên EDT như các model Swing khác
+ */
+public class PagedTableModel extends AbstractTableModel {
+    
+    /**
+     * Nguồn dữ liệu theo trang của model
+     */
+    public interface PageLoader {
+        long countRows() throws Exception;
+        
+        List<Map<String, Object>> loadPage(long offset, int limit) throws Exception;
+    }
+    
+    private static final int PREFETCH_PAGES = 1;
+    
+    private final String[] columnNames;
+    private final PageLoader loader;
+    private final int pageSize;
+    private final int maxPages;
+    private final Map<Integer, List<Map<String, Object>>> pages;
+    private final Set<Integer> loading = new HashSet<>();
+    private final ExecutorService executor;
+    private Consumer<Exception> errorHandler = e -> System.err.println("Lỗi khi tải trang dữ liệu: " + e.getMessage());
+    private volatile int generation;
+    private volatile int lastRequestedPage;
+    private int rowCount;
+    
+    public PagedTableModel(String[] columnNames, PageLoader loader) {
+        this(columnNames, loader, 200, 50);
+    }
+    
+    /**
+     * @param pageSize Số dòng mỗi lần tải
+     * @param maxPages Số trang tối đa giữ trong bộ nhớ
+     */
+    public PagedTableModel(String[] columnNames, PageLoader loader, int pageSize, int maxPages) {
+        this.columnNames = columnNames.clone();
+        this.loader = loader;
+        this.pageSize = Math.max(1, pageSize);
+        this.maxPages = Math.max(2 * PREFETCH_PAGES + 1, maxPages);
+        this.pages = new LinkedHashMap<Integer, List<Map<String, Object>>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Map<String, Object>>> eldest) {
+                return size() > PagedTableModel.this.maxPages;
+            }
+        };
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sep-page-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Xử lý lỗi khi đếm/tải trang (được gọi trên EDT)
+     */
+    public void setErrorHandler(Consumer<Exception> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+    
+    /**
+     * Bỏ các trang đã tải, đếm lại số dòng rồi tải lại những trang đang hiển thị
+     */
+    public void refresh() {
+        int current = ++generation;
+        pages.clear();
+        loading.clear();
+        executor.execute(() -> {
+            try {
+                long count = loader.countRows();
+                SwingUtilities.invokeLater(() -> {
+                    if (current == generation) {
+                        rowCount = (int) Math.min(count, Integer.MAX_VALUE);
+                        fireTableDataChanged();
+                    }
+                });
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> errorHandler.accept(e));
+            }
+        });
+    }
+    
+    /**
+     * Dừng luồng tải trang, gọi khi đóng form
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+    
+    public int getPageSize() {
+        return pageSize;
+    }
+    
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+    
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+    
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Map<String, Object> row = getRow(rowIndex);
+        return row != null ? row.get(columnNames[columnIndex]) : null;
+    }
+    
+    /**
+     * Dữ liệu của một dòng, null nếu trang chứa dòng chưa được tải (khi đó trang sẽ được yêu cầu tải)
+     */
+    public Map<String, Object> getRow(int rowIndex) {
+        int page = rowIndex / pageSize;
+        lastRequestedPage = page;
+        List<Map<String, Object>> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+        }
+        for (int i = 1; i <= PREFETCH_PAGES; i++) {
+            requestPage(page + i);
+            requestPage(page - i);
+        }
+        int index = rowIndex % pageSize;
+        return rows != null && index < rows.size() ? rows.get(index) : null;
+    }
+    
+    /**
+     * Thay dữ liệu của dòng có khóa tương ứng trong các trang đang giữ
+     * @return false nếu dòng không nằm trong trang nào đã tải
+     */
+    public boolean updateRow(String keyColumn, Object keyValue, Map<String, Object> row) {
+        String key = String.valueOf(keyValue);
+        for (Map.Entry<Integer, List<Map<String, Object>>> entry : pages.entrySet()) {
+            List<Map<String, Object>> rows = entry.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (key.equals(String.valueOf(rows.get(i).get(keyColumn)))) {
+                    rows.set(i, row);
+                    int rowIndex = entry.getKey() * pageSize + i;
+                    fireTableRowsUpdated(rowIndex, rowIndex);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private void requestPage(int page) {
+        if (page < 0 || (long) page * pageSize >= rowCount || pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+        int current = generation;
+        executor.execute(() -> {
+            // Trang đã bị cuộn qua khi tới lượt tải thì bỏ qua, sẽ được yêu cầu lại nếu cần
+            if (current != generation || Math.abs(page - lastRequestedPage) > maxPages / 2) {
+                SwingUtilities.invokeLater(() -> {
+                    if (current == generation) {
+                        loading.remove(page);
+                    }
+                });
+                return;
+            }
+            try {
+                List<Map<String, Object>> rows = loader.loadPage((long) page * pageSize, pageSize);
+                SwingUtilities.invokeLater(() -> {
+                    if (current != generation) {
+                        return;
+                    }
+                    loading.remove(page);
+                    pages.put(page, rows);
+                    int first = page * pageSize;
+                    int last = Math.min(first + pageSize, rowCount) - 1;
+                    if (first <= last) {
+                        fireTableRowsUpdated(first, last);
+                    }
+                });
+            } catch (Exception e) {
+                // Giữ trang trong danh sách đang tải để không thử lại liên tục, refresh() sẽ thử lại
+                SwingUtilities.invokeLater(() -> {
+                    if (current == generation) {
+                        errorHandler.accept(e);
+                    }
+                });
+            }
+        });
+    }
+}
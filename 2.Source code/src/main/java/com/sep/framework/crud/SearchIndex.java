@@ -0,0 +1,181 @@
+package com.sep.framework.crud;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Chỉ mục tìm kiếm theo tiền tố từ trên các cột chuỗi của những dòng đã tải
+ * Mỗi từ (chữ thường, bỏ dấu tiếng Việt) trỏ tới tập khóa chính của các dòng chứa nó,
+ * tìm kiếm là tra khoảng các từ bắt đầu bằng tiền tố trong TreeMap thay vì quét từng dòng.
+ * Nhiều từ trong câu tìm được nối bằng AND.
+ *
+ * Các phương thức được đồng bộ: có thể nạp ở background trong khi EDT cập nhật từng dòng
+ */
+public class SearchIndex {
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    
+    private final String keyColumn;
+    private final List<String> columns;
+    private final TreeMap<String, Set<String>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> tokensByKey = new HashMap<>();
+    // Khóa đã được put/remove trong lúc load() chạy, load() không ghi đè các dòng này
+    private Set<String> touchedKeys = new HashSet<>();
+    
+    /**
+     * @param keyColumn Cột khóa chính, dùng để nhận diện dòng
+     * @param columns Các cột chuỗi được đánh chỉ mục
+     */
+    public SearchIndex(String keyColumn, Collection<String> columns) {
+        this.keyColumn = keyColumn;
+        this.columns = new ArrayList<>(columns);
+    }
+    
+    /**
+     * Nạp toàn bộ các dòng (chạy ở background)
+     * Dòng nào đã được put/remove kể từ khi tạo chỉ mục thì giữ phiên bản mới hơn đó
+     */
+    public void load(Collection<Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            synchronized (this) {
+                String key = String.valueOf(row.get(keyColumn));
+                if (!touchedKeys.contains(key)) {
+                    index(key, row);
+                }
+            }
+        }
+        synchronized (this) {
+            touchedKeys = null;
+        }
+    }
+    
+    /**
+     * Đã nạp xong (kết quả tìm kiếm trước đó có thể thiếu dòng)
+     */
+    public synchronized boolean isLoaded() {
+        return touchedKeys == null;
+    }
+    
+    /**
+     * Thêm hoặc cập nhật một dòng
+     */
+    public synchronized void put(Map<String, Object> row) {
+        String key = String.valueOf(row.get(keyColumn));
+        markTouched(key);
+        unindex(key);
+        index(key, row);
+    }
+    
+    public synchronized void remove(Object keyValue) {
+        String key = String.valueOf(keyValue);
+        markTouched(key);
+        unindex(key);
+    }
+    
+    /**
+     * Khóa (dạng chuỗi) của các dòng khớp với mọi từ trong câu tìm, mỗi từ khớp theo tiền tố
+     * @return null nếu câu tìm không có từ nào (không lọc)
+     */
+    public synchronized Set<String> search(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        Set<String> result = null;
+        for (String term : terms) {
+            Set<String> matches = new HashSet<>();
+            for (Set<String> keys : prefixRange(term).values()) {
+                if (result == null) {
+                    matches.addAll(keys);
+                } else {
+                    // Chỉ giữ các khóa đã khớp các từ trước
+                    for (String key : keys) {
+                        if (result.contains(key)) {
+                            matches.add(key);
+                        }
+                    }
+                }
+            }
+            result = matches;
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Tách chuỗi thành các từ: chữ thường, bỏ dấu, tách theo ký tự không phải chữ/số
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String normalized = Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD);
+        normalized = COMBINING_MARKS.matcher(normalized).replaceAll("").replace('đ', 'd');
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    private NavigableMap<String, Set<String>> prefixRange(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+    
+    private void index(String key, Map<String, Object> row) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String column : columns) {
+            Object value = row.get(column);
+            if (value != null) {
+                tokens.addAll(tokenize(value.toString()));
+            }
+        }
+        if (tokens.isEmpty()) {
+            return;
+        }
+        tokensByKey.put(key, tokens);
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, t -> new HashSet<>()).add(key);
+        }
+    }
+    
+    private void unindex(String key) {
+        Set<String> tokens = tokensByKey.remove(key);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Set<String> keys = postings.get(token);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+    
+    private void markTouched(String key) {
+        if (touchedKeys != null) {
+            touchedKeys.add(key);
+        }
+    }
+}
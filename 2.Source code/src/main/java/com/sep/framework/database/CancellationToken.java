@@ -0,0 +1,91 @@
+package com.sep.framework.database;
+
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token hủy truy vấn theo kiểu cooperative
+ * Các statement tạo ra trong phạm vi QueryControl được đăng ký vào token,
+ * gọi cancel() từ thread khác (ví dụ nút "Hủy" trên UI) sẽ gọi Statement.cancel cho chúng
+ */
+public class CancellationToken {
+    private final Set<Statement> statements = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Set<CancellationToken> children = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private volatile boolean cancelled;
+    
+    /**
+     * Hủy tất cả truy vấn đang chạy và không cho chạy thêm truy vấn mới với token này
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Statement statement : statements) {
+            try {
+                if (!statement.isClosed()) {
+                    statement.cancel();
+                }
+            } catch (Exception e) {
+                System.err.println("Lỗi khi hủy truy vấn: " + e.getMessage());
+            }
+        }
+        statements.clear();
+        for (CancellationToken child : children) {
+            child.cancel();
+        }
+    }
+    
+    /**
+     * Token con bị hủy cùng token này, hủy token con không ảnh hưởng token này
+     * Gọi removeChild khi không dùng token con nữa
+     */
+    CancellationToken newChild() {
+        CancellationToken child = new CancellationToken();
+        children.add(child);
+        // cancel() có thể chạy xen giữa lúc tạo và lúc thêm vào
+        if (cancelled) {
+            child.cancel();
+        }
+        return child;
+    }
+    
+    void removeChild(CancellationToken child) {
+        children.remove(child);
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Ném CancellationException nếu token đã bị hủy
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Thao tác đã bị hủy");
+        }
+    }
+    
+    /**
+     * Đăng ký statement sắp thực thi, bỏ các statement đã đóng
+     */
+    void register(Statement statement) {
+        throwIfCancelled();
+        statements.removeIf(CancellationToken::isClosed);
+        statements.add(statement);
+        // cancel() có thể chạy xen giữa lúc kiểm tra và lúc thêm vào
+        if (cancelled) {
+            statements.remove(statement);
+            throwIfCancelled();
+        }
+    }
+    
+    private static boolean isClosed(Statement statement) {
+        try {
+            return statement.isClosed();
+        } catch (Exception e) {
+            return true;
+        }
+    }
+}
@@ -4,6 +4,8 @@ package com.sep.framework.database;
  * Thông tin về một cột trong database
  */
 public class ColumnInfo {
+    private static final int MAX_ESTIMATED_WIDTH = 65536;
+    
     private String name;
     private String type;
     private int size;
@@ -44,6 +46,150 @@ public class ColumnInfo {
         return defaultValue;
     }
     
+    /**
+     * Kiểm tra cột có kiểu dữ liệu lớn (TEXT/BLOB/CLOB/bytea) hay không
+     */
+    public boolean isLargeObject() {
+        return isLargeObjectType(type);
+    }
+    
+    /**
+     * Cột lớn chứa ký tự (TEXT/CLOB), nội dung đọc ra theo UTF-8
+     */
+    public boolean isCharacterLob() {
+        String lowerType = type.toLowerCase();
+        return lowerType.contains("clob") || lowerType.contains("text");
+    }
+    
+    /**
+     * Cột nhị phân (BLOB/bytea/binary/varbinary/raw), CsvExporter ghi giá trị dạng Base64
+     */
+    public boolean isBinary() {
+        String lowerType = type.toLowerCase();
+        return lowerType.contains("blob") || lowerType.contains("bytea") || lowerType.contains("binary")
+            || lowerType.equals("raw") || lowerType.endsWith(" raw");
+    }
+    
+    /**
+     * Cột cờ đúng/sai không khai báo là boolean: bit(1) và tinyint(1) của MySQL (driver đọc ra Boolean)
+     */
+    private boolean isFlag() {
+        String lowerType = type.toLowerCase();
+        return (lowerType.equals("bit") && size <= 1)
+            || (lowerType.startsWith("tinyint") && (size == 1 || lowerType.contains("(1)")));
+    }
+    
+    /**
+     * Quy tắc chung theo tên kiểu của database, dùng cả cho ColumnInfo và metadata của ResultSet
+     */
+    static boolean isLargeObjectType(String typeName) {
+        if (typeName == null) {
+            return false;
+        }
+        String lowerType = typeName.toLowerCase();
+        return lowerType.contains("blob") || lowerType.contains("clob") 
+            || lowerType.contains("bytea") || lowerType.contains("binary")
+            || lowerType.contains("text");
+    }
+    
+    /**
+     * Ước lượng số byte của một giá trị trong cột, dùng để tính fetch size
+     * Cột chuỗi lấy theo kích thước khai báo, cột lớn được giới hạn ở 64KB
+     */
+    public int estimateByteWidth() {
+        int declared = size > 0 ? Math.min(size, MAX_ESTIMATED_WIDTH) : MAX_ESTIMATED_WIDTH;
+        if (isLargeObject()) {
+            return declared;
+        }
+        
+        String lowerType = type.toLowerCase();
+        if (lowerType.contains("bigint") || lowerType.contains("double") || lowerType.contains("float8")) {
+            return 8;
+        } else if (lowerType.contains("int") || lowerType.contains("serial") || lowerType.contains("float") 
+                || lowerType.contains("real")) {
+            return 4;
+        } else if (lowerType.contains("bool") || lowerType.equals("bit")) {
+            return 1;
+        } else if (lowerType.contains("decimal") || lowerType.contains("numeric")) {
+            return declared / 2 + 2;
+        } else if (lowerType.contains("date") || lowerType.contains("time")) {
+            return 12;
+        }
+        return Math.max(16, declared);
+    }
+    
+    /**
+     * Đổi chuỗi (người dùng nhập, file CSV...) sang kiểu Java của cột, chuỗi rỗng thành null
+     * Số nguyên thành Long, số thực thành BigDecimal, ngày/giờ theo đúng kiểu cột:
+     * date yyyy-MM-dd, time HH:mm[:ss], datetime/timestamp yyyy-MM-dd[ HH:mm[:ss[.f]]] (chấp nhận cả dấu T của ISO)
+     * Cột nhị phân giải mã Base64, bit(1)/tinyint(1) nhận thêm true/false như file CsvExporter xuất ra
+     * @throws IllegalArgumentException nếu giá trị không đúng kiểu của cột
+     */
+    public Object parseValue(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        if (isBinary()) {
+            try {
+                return java.util.Base64.getDecoder().decode(text.trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("'" + text + "' không phải chuỗi Base64", e);
+            }
+        }
+        if (isFlag()) {
+            if (type.equalsIgnoreCase("bit")) {
+                return parseBoolean(text);
+            }
+            // tinyint(1) vẫn là số, chứa được cả giá trị khác 0/1
+            if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+                return parseBoolean(text) ? 1L : 0L;
+            }
+            return Long.valueOf(text);
+        }
+        Class<?> javaType = getJavaType();
+        if (javaType == Integer.class || javaType == Long.class) {
+            return Long.valueOf(text);
+        } else if (javaType == Double.class) {
+            return new java.math.BigDecimal(text);
+        } else if (javaType == Boolean.class) {
+            return parseBoolean(text);
+        } else if (javaType == java.util.Date.class) {
+            return parseTemporal(text);
+        }
+        return text;
+    }
+    
+    private static Boolean parseBoolean(String text) {
+        if (text.equalsIgnoreCase("true") || text.equals("1")) {
+            return Boolean.TRUE;
+        } else if (text.equalsIgnoreCase("false") || text.equals("0")) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("'" + text + "' không phải giá trị đúng/sai");
+    }
+    
+    private Object parseTemporal(String text) {
+        String lowerType = type.toLowerCase();
+        try {
+            if (lowerType.contains("timestamp") || lowerType.contains("datetime")) {
+                return parseTimestamp(text);
+            } else if (lowerType.contains("date")) {
+                // Cột date nhận cả giá trị có giờ (vd. Oracle DATE), phần giờ được giữ nguyên
+                return text.length() <= 10 ? java.sql.Date.valueOf(text) : parseTimestamp(text);
+            }
+            return java.sql.Time.valueOf(java.time.LocalTime.parse(text));
+        } catch (java.time.DateTimeException e) {
+            throw new IllegalArgumentException("'" + text + "' không đúng định dạng " + type, e);
+        }
+    }
+    
+    private static java.sql.Timestamp parseTimestamp(String text) {
+        if (text.length() <= 10) {
+            return java.sql.Timestamp.valueOf(java.sql.Date.valueOf(text).toLocalDate().atStartOfDay());
+        }
+        return java.sql.Timestamp.valueOf(java.time.LocalDateTime.parse(text.replace(' ', 'T')));
+    }
+    
     /**
      * Chuyển đổi database type sang Java type
      */
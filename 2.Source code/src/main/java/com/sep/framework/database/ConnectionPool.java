@@ -0,0 +1,220 @@
+package com.sep.framework.database;
+
+import java.sql.Connection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool kết nối đơn giản dùng cho các tác vụ chạy song song
+ * (parallel scan, backup, import...). Mỗi luồng mượn một connection riêng
+ * rồi trả lại sau khi dùng xong.
+ */
+public class ConnectionPool {
+    /** Chu kỳ kiểm tra lại khi chờ: pool đóng hoặc có chỗ trống do connection hỏng bị loại bỏ */
+    private static final long WAIT_INTERVAL_MILLIS = 100;
+    
+    private final DatabaseStrategy strategy;
+    private final String connectionString;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final BlockingQueue<Connection> idleConnections = new LinkedBlockingQueue<>();
+    /** Mỗi connection đang mở (rảnh hoặc đang được mượn) giữ một permit */
+    private final Semaphore capacity;
+    private volatile int minIdle;
+    private volatile boolean closed;
+    
+    public ConnectionPool(DatabaseStrategy strategy, String connectionString, 
+                          String username, String password, int maxSize) {
+        this.strategy = strategy;
+        this.connectionString = connectionString;
+        this.username = username;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.capacity = new Semaphore(this.maxSize);
+    }
+    
+    /**
+     * Mượn một connection, tạo mới nếu pool chưa đầy, ngược lại chờ connection được trả lại
+     * hoặc chờ tới khi có chỗ trống (connection hỏng bị loại bỏ)
+     * @throws IllegalStateException nếu pool đóng trong lúc chờ
+     */
+    public Connection borrow() throws Exception {
+        while (true) {
+            ensureOpen();
+            Connection connection = idleConnections.poll();
+            if (connection == null) {
+                if (capacity.tryAcquire()) {
+                    try {
+                        return openConnection();
+                    } catch (Exception e) {
+                        capacity.release();
+                        throw e;
+                    }
+                }
+                connection = idleConnections.poll(WAIT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (connection == null) {
+                    continue;
+                }
+            }
+            if (isAlive(connection)) {
+                return connection;
+            }
+            discard(connection);
+        }
+    }
+    
+    /**
+     * Trả connection về pool
+     */
+    public void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            if (closed || connection.isClosed()) {
+                discard(connection);
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            idleConnections.offer(connection);
+            // close() có thể chạy xen giữa lúc kiểm tra và lúc trả vào
+            if (closed && idleConnections.remove(connection)) {
+                discard(connection);
+            }
+        } catch (Exception e) {
+            discard(connection);
+        }
+    }
+    
+    /**
+     * Lấy một connection đang rảnh (đã kết nối sẵn) mà không chờ và không tạo mới
+     * Connection được tách khỏi pool, người gọi tự quản lý việc đóng
+     * @return null nếu không có connection rảnh
+     */
+    public Connection takeIdle() {
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            if (isAlive(connection)) {
+                // Connection không còn thuộc pool, nhường chỗ cho người mượn khác
+                capacity.release();
+                return connection;
+            }
+            discard(connection);
+        }
+        return null;
+    }
+    
+    /**
+     * Số connection rảnh tối thiểu được giữ sẵn (warm-up và health check sẽ bù vào)
+     */
+    public void setMinIdle(int minIdle) {
+        this.minIdle = Math.min(Math.max(0, minIdle), maxSize);
+    }
+    
+    /**
+     * Mở sẵn connection cho tới khi đủ minIdle connection rảnh
+     * Chạy ở background để request đầu tiên không phải chờ handshake TCP/TLS/auth
+     */
+    public void warmUp() {
+        while (!closed && idleConnections.size() < minIdle) {
+            if (!capacity.tryAcquire()) {
+                return;
+            }
+            try {
+                idleConnections.offer(openConnection());
+            } catch (Exception e) {
+                capacity.release();
+                System.err.println("Lỗi khi mở sẵn connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Kiểm tra các connection đang rảnh bằng isValid, đóng connection chết và mở connection mới thay thế
+     */
+    public void validateIdle(int timeoutSeconds) {
+        int count = idleConnections.size();
+        for (int i = 0; i < count && !closed; i++) {
+            Connection connection = idleConnections.poll();
+            if (connection == null) {
+                break;
+            }
+            boolean valid;
+            try {
+                valid = connection.isValid(timeoutSeconds);
+            } catch (Exception e) {
+                valid = false;
+            }
+            if (valid) {
+                idleConnections.offer(connection);
+            } else {
+                discard(connection);
+            }
+        }
+        warmUp();
+    }
+    
+    /**
+     * Đóng tất cả connection đang rảnh và không cho mượn thêm
+     * Các lời gọi borrow() đang chờ nhận IllegalStateException, connection đang được mượn bị đóng khi trả lại
+     */
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            discard(connection);
+        }
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public int getOpenConnections() {
+        return maxSize - capacity.availablePermits();
+    }
+    
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+    
+    private Connection openConnection() throws Exception {
+        if (username != null && password != null) {
+            return strategy.connect(connectionString, username, password);
+        }
+        return strategy.connect(connectionString);
+    }
+    
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Connection pool đã đóng");
+        }
+    }
+    
+    private static boolean isAlive(Connection connection) {
+        try {
+            return !connection.isClosed();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Đóng connection và trả lại chỗ trống cho các lời gọi borrow() đang chờ
+     */
+    private void discard(Connection connection) {
+        capacity.release();
+        try {
+            strategy.disconnect(connection);
+        } catch (Exception e) {
+            // Connection đã hỏng, bỏ qua
+        }
+    }
+}
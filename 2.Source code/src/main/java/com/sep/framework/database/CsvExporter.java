@@ -0,0 +1,232 @@
+package com.sep.framework.database;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Xuất dữ liệu một bảng (có thể kèm điều kiện lọc/sắp xếp) ra file CSV (RFC 4180, UTF-8)
+ * Dòng đi thẳng từ cursor forward-only ra file qua FileChannel với một buffer cố định,
+ * bộ nhớ dùng không phụ thuộc số dòng được xuất.
+ *
+ * Ví dụ:
+ *   long rows = new CsvExporter(dbContext).export("orders", criteria, columns, Paths.get("orders.csv"), null);
+ */
+public class CsvExporter {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 1000;
+    // BOM để Excel nhận đúng UTF-8 (tiếng Việt có dấu)
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    
+    private final DatabaseContext dbContext;
+    
+    public CsvExporter(DatabaseContext dbContext) {
+        this.dbContext = dbContext;
+    }
+    
+    /**
+     * Xuất các dòng thỏa criteria ra file, file đích chỉ bị thay khi xuất thành công
+     * Chạy trong DatabaseContext.withCancellation để có thể hủy giữa chừng
+     * @param criteria Điều kiện lọc/sắp xếp, null để xuất cả bảng theo thứ tự lưu trữ
+     * @param columns Các cột được xuất theo thứ tự, rỗng để xuất tất cả
+     * @param progress Nhận số dòng đã xuất sau mỗi lô (có thể null), được gọi trên luồng đang xuất
+     * @return Số dòng đã xuất
+     */
+    public long export(String tableName, QueryCriteria criteria, List<String> columns, Path file,
+                       LongConsumer progress) throws Exception {
+        DatabaseStrategy strategy = dbContext.getStrategy();
+        List<Object> params = new ArrayList<>();
+        StringBuilder query = new StringBuilder("SELECT ")
+            .append(strategy.buildSelectList(columns.toArray(new String[0])))
+            .append(" FROM ").append(strategy.quoteIdentifier(tableName))
+            .append(strategy.buildWhereClause(criteria, params));
+        if (criteria != null && !criteria.getSorts().isEmpty()) {
+            query.append(strategy.buildOrderBy(criteria, dbContext.getPrimaryKey(tableName)));
+        }
+        
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        long[] rowCount = {0};
+        ConnectionPool pool = dbContext.getPool();
+        Connection connection = pool.borrow();
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CsvWriter out = new CsvWriter(channel);
+            out.append(BYTE_ORDER_MARK);
+            boolean[] headerWritten = {false};
+            
+            dbContext.inScope(() -> {
+                strategy.streamResultSet(connection, query.toString(), params, rs -> {
+                    ResultSetMetaData metaData = rs.getMetaData();
+                    int columnCount = metaData.getColumnCount();
+                    // Strategy sharding gọi handler một lần cho mỗi shard, header chỉ ghi một lần
+                    if (!headerWritten[0]) {
+                        for (int i = 1; i <= columnCount; i++) {
+                            out.writeField(metaData.getColumnLabel(i), i == 1);
+                        }
+                        out.endRow();
+                        headerWritten[0] = true;
+                    }
+                    
+                    while (rs.next()) {
+                        QueryControl.checkCancelled();
+                        for (int i = 1; i <= columnCount; i++) {
+                            out.writeField(format(rs, i), i == 1);
+                        }
+                        out.endRow();
+                        if (++rowCount[0] % PROGRESS_INTERVAL == 0 && progress != null) {
+                            progress.accept(rowCount[0]);
+                        }
+                    }
+                });
+                return null;
+            });
+            out.flush();
+        } catch (Exception e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        } finally {
+            pool.release(connection);
+        }
+        
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        if (progress != null) {
+            progress.accept(rowCount[0]);
+        }
+        return rowCount[0];
+    }
+    
+    /**
+     * Giá trị của một ô dạng chuỗi CSV, null thành ô rỗng
+     */
+    private static String format(ResultSet rs, int column) throws Exception {
+        Object value = rs.getObject(column);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof byte[]) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        }
+        // Kiểu java.time in theo dạng của java.sql (yyyy-MM-dd HH:mm:ss) để ColumnInfo.parseValue đọc lại được
+        if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value).toString();
+        }
+        if (value instanceof OffsetDateTime) {
+            return Timestamp.from(((OffsetDateTime) value).toInstant()).toString();
+        }
+        if (value instanceof LocalDate) {
+            return java.sql.Date.valueOf((LocalDate) value).toString();
+        }
+        if (value instanceof LocalTime) {
+            return Time.valueOf((LocalTime) value).toString();
+        }
+        return value.toString();
+    }
+    
+    /**
+     * Ghi CSV qua ByteBuffer cố định vào channel, ký tự được mã hóa UTF-8 trực tiếp vào buffer
+     */
+    private static class CsvWriter {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final StringBuilder row = new StringBuilder();
+        
+        CsvWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+        
+        void append(char value) {
+            row.append(value);
+        }
+        
+        /**
+         * Thêm một ô vào dòng hiện tại, chỉ đặt trong ngoặc kép khi cần
+         */
+        void writeField(String value, boolean first) {
+            if (!first) {
+                row.append(',');
+            }
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                row.append(value);
+                return;
+            }
+            row.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    row.append('"');
+                }
+                row.append(c);
+            }
+            row.append('"');
+        }
+        
+        void endRow() throws IOException {
+            row.append("\r\n");
+            encodeRow();
+        }
+        
+        void flush() throws IOException {
+            encodeRow();
+            writeBuffer();
+        }
+        
+        private void encodeRow() throws IOException {
+            CharBuffer chars = CharBuffer.wrap(row);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, false);
+                if (result.isOverflow()) {
+                    writeBuffer();
+                } else if (result.isError()) {
+                    result.throwException();
+                } else {
+                    break;
+                }
+            }
+            row.setLength(0);
+        }
+        
+        private void writeBuffer() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
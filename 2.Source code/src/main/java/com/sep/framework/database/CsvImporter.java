@@ -0,0 +1,489 @@
+package com.sep.framework.database;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Nhập dữ liệu từ file CSV (RFC 4180, UTF-8, dòng đầu là tên cột) vào một bảng
+ * File được memory-map và chia thành các khối kết thúc đúng ranh giới bản ghi (bỏ qua xuống dòng
+ * trong ngoặc kép). Mỗi khối được phân tích, đổi kiểu theo ColumnInfo và ghi bằng insert theo lô
+ * trên một connection của pool, các khối chạy song song trên nhiều thread.
+ *
+ * Dòng sai kiểu/thiếu giá trị bắt buộc bị bỏ qua và được báo lỗi theo số thứ tự bản ghi,
+ * mỗi khối được ghi trong transaction riêng nên các khối đã ghi không bị hủy khi khối khác lỗi.
+ */
+public class CsvImporter {
+    
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final long SCAN_WINDOW = 256L * 1024 * 1024;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final byte COMMA = ',';
+    
+    /**
+     * Nhận tiến độ nhập, được gọi từ các thread ghi dữ liệu
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(long importedRows, long processedBytes, long totalBytes);
+    }
+    
+    /**
+     * Lỗi của một bản ghi trong file (bản ghi 1 là dòng tiêu đề)
+     */
+    public static class LineError {
+        private final long line;
+        private final String message;
+        
+        public LineError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+        
+        public long getLine() {
+            return line;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        @Override
+        public String toString() {
+            return "Dòng " + line + ": " + message;
+        }
+    }
+    
+    /**
+     * Kết quả của một lần nhập
+     */
+    public static class Result {
+        private final long importedRows;
+        private final long errorCount;
+        private final List<LineError> errors;
+        private final long elapsedMillis;
+        
+        Result(long importedRows, long errorCount, List<LineError> errors, long elapsedMillis) {
+            this.importedRows = importedRows;
+            this.errorCount = errorCount;
+            this.errors = errors;
+            this.elapsedMillis = elapsedMillis;
+        }
+        
+        public long getImportedRows() {
+            return importedRows;
+        }
+        
+        /**
+         * Tổng số bản ghi bị bỏ qua do lỗi
+         */
+        public long getErrorCount() {
+            return errorCount;
+        }
+        
+        /**
+         * Chi tiết lỗi theo thứ tự bản ghi, chỉ giữ tối đa MAX_REPORTED_ERRORS lỗi
+         */
+        public List<LineError> getErrors() {
+            return errors;
+        }
+        
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+        
+        public double getRowsPerSecond() {
+            return elapsedMillis > 0 ? importedRows * 1000.0 / elapsedMillis : importedRows;
+        }
+    }
+    
+    private final DatabaseContext dbContext;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    
+    public CsvImporter(DatabaseContext dbContext) {
+        this.dbContext = dbContext;
+    }
+    
+    /**
+     * Số thread phân tích/ghi song song (bị giới hạn thêm bởi kích thước pool)
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Nhập file vào bảng, các cột được ghép theo tên ở dòng tiêu đề (không phân biệt hoa thường)
+     * Chạy trong DatabaseContext.withCancellation để có thể hủy giữa chừng
+     * @throws IllegalArgumentException nếu tiêu đề có cột không thuộc bảng hoặc thiếu cột bắt buộc
+     */
+    public Result importFile(String tableName, Path file, ProgressListener listener) throws Exception {
+        long started = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                throw new IllegalArgumentException("File rỗng");
+            }
+            
+            // Tiêu đề: bỏ BOM, đọc bản ghi đầu tiên
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, CHUNK_SIZE));
+            int headerStart = head.limit() >= 3 && (head.get(0) & 0xFF) == 0xEF 
+                && (head.get(1) & 0xFF) == 0xBB && (head.get(2) & 0xFF) == 0xBF ? 3 : 0;
+            int headerEnd = findRecordEnd(head, headerStart);
+            byte[] headerBytes = new byte[headerEnd - headerStart];
+            for (int i = 0; i < headerBytes.length; i++) {
+                headerBytes[i] = head.get(headerStart + i);
+            }
+            List<String> header = new ArrayList<>();
+            parseRecord(headerBytes, 0, headerBytes.length, COMMA, header, new ByteArrayOutputStream());
+            List<ColumnInfo> targetColumns = mapColumns(tableName, header);
+            
+            ImportJob job = new ImportJob(tableName, targetColumns, size, listener);
+            ConnectionPool pool = dbContext.getPool();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, pool.getMaxSize()), runnable -> {
+                Thread thread = new Thread(runnable, "sep-csv-import");
+                thread.setDaemon(true);
+                return thread;
+            });
+            List<Future<?>> futures = new ArrayList<>();
+            try {
+                // Quét tuần tự tìm ranh giới khối, các khối được phân tích song song ngay khi tìm thấy
+                long chunkStart = headerEnd;
+                long firstRecord = 2;
+                long records = 0;
+                boolean quoted = false;
+                for (long position = headerEnd; position < size; position += SCAN_WINDOW) {
+                    QueryControl.checkCancelled();
+                    long length = Math.min(SCAN_WINDOW, size - position);
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    for (int i = 0; i < length; i++) {
+                        byte b = window.get(i);
+                        if (b == '"') {
+                            // Dấu "" trong ô được đảo trạng thái hai lần nên vẫn đúng
+                            quoted = !quoted;
+                        } else if (b == '\n' && !quoted) {
+                            records++;
+                            long end = position + i + 1;
+                            if (end - chunkStart >= CHUNK_SIZE) {
+                                futures.add(submitChunk(executor, job, channel, chunkStart, end, firstRecord));
+                                chunkStart = end;
+                                firstRecord += records;
+                                records = 0;
+                            }
+                        }
+                    }
+                }
+                if (chunkStart < size) {
+                    futures.add(submitChunk(executor, job, channel, chunkStart, size, firstRecord));
+                }
+                
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        futures.forEach(f -> f.cancel(true));
+                        throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            return job.toResult(System.currentTimeMillis() - started);
+        }
+    }
+    
+    private Future<?> submitChunk(ExecutorService executor, ImportJob job, FileChannel channel,
+                                  long start, long end, long firstRecord) {
+        return executor.submit(QueryControl.propagate(() -> {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            byte[] bytes = new byte[(int) (end - start)];
+            mapped.get(bytes);
+            job.importChunk(bytes, firstRecord);
+            return null;
+        }));
+    }
+    
+    /**
+     * Ghép tiêu đề với các cột của bảng (lấy từ schema đã cache)
+     */
+    private List<ColumnInfo> mapColumns(String tableName, List<String> header) throws Exception {
+        List<String> errors = new ArrayList<>();
+        List<ColumnInfo> mapped = mapColumns(dbContext.getColumns(tableName), header, errors);
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("File không khớp bảng " + tableName + ": " + String.join("; ", errors));
+        }
+        return mapped;
+    }
+    
+    /**
+     * Ghép dòng tiêu đề với các cột của bảng (không phân biệt hoa thường), dùng chung cho nhập file và dán dữ liệu
+     * Cột lạ, cột lặp và cột bắt buộc bị thiếu được thêm vào errors
+     */
+    public static List<ColumnInfo> mapColumns(List<ColumnInfo> tableColumns, List<String> header, List<String> errors) {
+        Map<String, ColumnInfo> byName = new HashMap<>();
+        for (ColumnInfo column : tableColumns) {
+            byName.put(column.getName().toLowerCase(), column);
+        }
+        List<ColumnInfo> mapped = new ArrayList<>();
+        for (String name : header) {
+            ColumnInfo column = byName.remove(name.trim().toLowerCase());
+            if (column == null) {
+                errors.add("Cột '" + name.trim() + "' không có trong bảng hoặc bị lặp");
+            } else {
+                mapped.add(column);
+            }
+        }
+        for (ColumnInfo missing : byName.values()) {
+            if (isRequired(missing) && missing.getDefaultValue() == null) {
+                errors.add("Thiếu cột bắt buộc '" + missing.getName() + "'");
+            }
+        }
+        return mapped;
+    }
+    
+    /**
+     * Đổi các ô của một bản ghi sang kiểu của cột qua converter (vd. hook convertValue của form)
+     * Bản ghi ngắn hơn tiêu đề (bảng tính bỏ các ô trống cuối dòng) được coi là các ô còn lại rỗng
+     * @param onError Nhận thông báo lỗi (chưa kèm số dòng)
+     * @return null nếu bản ghi có lỗi
+     */
+    public static Object[] toRow(List<ColumnInfo> columns, List<String> fields,
+                                 BiFunction<ColumnInfo, String, Object> converter, Consumer<String> onError) {
+        if (fields.size() > columns.size()) {
+            onError.accept("Có " + fields.size() + " cột, tiêu đề chỉ có " + columns.size() + " cột");
+            return null;
+        }
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            ColumnInfo column = columns.get(i);
+            String text = i < fields.size() ? fields.get(i) : "";
+            try {
+                row[i] = converter.apply(column, column.getJavaType() == String.class ? text : text.trim());
+            } catch (IllegalArgumentException e) {
+                onError.accept("Cột " + column.getName() + ": giá trị '" + text + "' không hợp lệ");
+                return null;
+            }
+            if (row[i] == null && isRequired(column)) {
+                onError.accept("Cột " + column.getName() + " là bắt buộc");
+                return null;
+            }
+            if (row[i] instanceof String && column.getSize() > 0 && text.length() > column.getSize()) {
+                onError.accept("Cột " + column.getName() + " dài quá " + column.getSize() + " ký tự");
+                return null;
+            }
+        }
+        return row;
+    }
+    
+    private static boolean isRequired(ColumnInfo column) {
+        return !column.isNullable() && !column.isPrimaryKey();
+    }
+    
+    /**
+     * Vị trí ngay sau ký tự xuống dòng kết thúc bản ghi bắt đầu tại start (hoặc cuối buffer)
+     */
+    private static int findRecordEnd(MappedByteBuffer buffer, int start) {
+        boolean quoted = false;
+        for (int i = start; i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                return i + 1;
+            }
+        }
+        return buffer.limit();
+    }
+    
+    /**
+     * Tách văn bản dạng CSV/TSV (ví dụ dữ liệu dán từ bảng tính) thành các bản ghi, bỏ qua dòng trống
+     * Ô chứa dấu phân cách hoặc xuống dòng được đặt trong ngoặc kép như CSV
+     */
+    public static List<List<String>> parseText(String text, char delimiter) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        List<List<String>> records = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        ByteArrayOutputStream quotedValue = new ByteArrayOutputStream();
+        int position = 0;
+        while (position < bytes.length) {
+            position = parseRecord(bytes, position, bytes.length, (byte) delimiter, fields, quotedValue);
+            if (fields.size() > 1 || !fields.get(0).isEmpty()) {
+                records.add(new ArrayList<>(fields));
+            }
+        }
+        return records;
+    }
+    
+    /**
+     * Đọc một bản ghi bắt đầu tại start vào fields
+     * @return Vị trí bắt đầu bản ghi kế tiếp
+     */
+    static int parseRecord(byte[] data, int start, int end, byte delimiter, List<String> fields,
+                           ByteArrayOutputStream quotedValue) {
+        fields.clear();
+        int i = start;
+        while (true) {
+            if (i < end && data[i] == '"') {
+                quotedValue.reset();
+                i++;
+                while (i < end) {
+                    if (data[i] == '"') {
+                        if (i + 1 < end && data[i + 1] == '"') {
+                            quotedValue.write('"');
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    quotedValue.write(data[i++]);
+                }
+                // Ký tự thừa sau dấu đóng ngoặc được nối vào giá trị
+                int extra = i;
+                while (i < end && data[i] != delimiter && data[i] != '\n' && data[i] != '\r') {
+                    i++;
+                }
+                quotedValue.write(data, extra, i - extra);
+                fields.add(new String(quotedValue.toByteArray(), StandardCharsets.UTF_8));
+            } else {
+                int fieldStart = i;
+                while (i < end && data[i] != delimiter && data[i] != '\n' && data[i] != '\r') {
+                    i++;
+                }
+                fields.add(new String(data, fieldStart, i - fieldStart, StandardCharsets.UTF_8));
+            }
+            
+            if (i < end && data[i] == delimiter) {
+                i++;
+                continue;
+            }
+            if (i < end && data[i] == '\r') {
+                i++;
+            }
+            if (i < end && data[i] == '\n') {
+                i++;
+            }
+            return i;
+        }
+    }
+    
+    /**
+     * Trạng thái dùng chung của một lần nhập giữa các thread
+     */
+    private class ImportJob {
+        private final String tableName;
+        private final List<ColumnInfo> columns;
+        private final List<String> columnNames = new ArrayList<>();
+        private final long totalBytes;
+        private final ProgressListener listener;
+        private final AtomicLong importedRows = new AtomicLong();
+        private final AtomicLong processedBytes = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final List<LineError> errors = new ArrayList<>();
+        
+        ImportJob(String tableName, List<ColumnInfo> columns, long totalBytes, ProgressListener listener) {
+            this.tableName = tableName;
+            this.columns = columns;
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+            for (ColumnInfo column : columns) {
+                columnNames.add(column.getName());
+            }
+        }
+        
+        void importChunk(byte[] bytes, long firstRecord) throws Exception {
+            List<Object[]> rows = new ArrayList<>();
+            List<Long> lines = new ArrayList<>();
+            List<String> fields = new ArrayList<>(columns.size());
+            ByteArrayOutputStream quotedValue = new ByteArrayOutputStream();
+            long record = firstRecord;
+            int position = 0;
+            while (position < bytes.length) {
+                QueryControl.checkCancelled();
+                int next = parseRecord(bytes, position, bytes.length, COMMA, fields, quotedValue);
+                position = next;
+                long line = record++;
+                // Bỏ qua dòng trống
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    continue;
+                }
+                if (fields.size() != columns.size()) {
+                    addError(line, "Có " + fields.size() + " cột, cần " + columns.size() + " cột");
+                    continue;
+                }
+                Object[] row = toRow(columns, fields, ColumnInfo::parseValue, message -> addError(line, message));
+                if (row != null) {
+                    rows.add(row);
+                    lines.add(line);
+                }
+            }
+            
+            if (!rows.isEmpty()) {
+                insertRows(rows, lines);
+            }
+            long processed = processedBytes.addAndGet(bytes.length);
+            if (listener != null) {
+                listener.onProgress(importedRows.get(), processed, totalBytes);
+            }
+        }
+        
+        /**
+         * Ghi một lô trong một transaction; lô lỗi bị rollback nên được chia đôi và ghi lại
+         * cho tới khi chỉ còn các dòng hỏng, mỗi dòng hỏng được báo kèm số dòng của nó
+         */
+        private void insertRows(List<Object[]> rows, List<Long> lines) throws Exception {
+            try {
+                importedRows.addAndGet(dbContext.insertBatch(tableName, columnNames, rows));
+            } catch (Exception e) {
+                QueryControl.checkCancelled();
+                if (rows.size() == 1) {
+                    addError(lines.get(0), "Lỗi ghi dữ liệu: " + e.getMessage());
+                } else if (e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException) {
+                    // Mất kết nối thì ghi lại từng phần cũng lỗi, báo cả khoảng dòng
+                    addError(lines.get(0), "Lỗi ghi dữ liệu các dòng " + lines.get(0) + "-" + lines.get(lines.size() - 1)
+                        + ": " + e.getMessage());
+                    errorCount.addAndGet(rows.size() - 1);
+                } else {
+                    int middle = rows.size() / 2;
+                    insertRows(rows.subList(0, middle), lines.subList(0, middle));
+                    insertRows(rows.subList(middle, rows.size()), lines.subList(middle, lines.size()));
+                }
+            }
+        }
+        
+        private void addError(long line, String message) {
+            errorCount.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(new LineError(line, message));
+                }
+            }
+        }
+        
+        Result toResult(long elapsedMillis) {
+            List<LineError> sorted;
+            synchronized (errors) {
+                sorted = new ArrayList<>(errors);
+            }
+            sorted.sort(Comparator.comparingLong(LineError::getLine));
+            return new Result(importedRows.get(), errorCount.get(), Collections.unmodifiableList(sorted), elapsedMillis);
+        }
+    }
+}
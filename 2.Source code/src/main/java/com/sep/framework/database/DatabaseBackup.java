@@ -0,0 +1,834 @@
+package com.sep.framework.database;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sao lưu và khôi phục dữ liệu các bảng dưới dạng nhị phân gọn (length-prefixed)
+ * Mỗi bảng được ghi ra một file <table>.sepb, mọi bảng được đọc trong cùng một snapshot nhất quán:
+ * PostgreSQL xuất song song trên connection của pool với snapshot dùng chung (pg_export_snapshot),
+ * các database khác xuất tuần tự trong một transaction REPEATABLE READ trên một connection.
+ * Dữ liệu đi thẳng từ cursor ra file qua FileChannel (và ngược lại khi khôi phục),
+ * BLOB/CLOB được ghi theo từng khối nên bộ nhớ không phụ thuộc kích thước dữ liệu.
+ * Với strategy sharding không có snapshot chung giữa các shard, cần dừng ghi trong lúc sao lưu.
+ */
+public class DatabaseBackup {
+    
+    public static final String FILE_EXTENSION = ".sepb";
+    
+    private static final int MAGIC = 0x53455042; // "SEPB"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BATCH_SIZE = 1000;
+    private static final long BATCH_BYTES = 8L * 1024 * 1024;
+    
+    // Đánh dấu row và kiểu giá trị trong file
+    private static final byte END = 0;
+    private static final byte ROW = 1;
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte STRING = 3;
+    private static final byte DECIMAL = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte DATE = 6;
+    private static final byte TIME = 7;
+    private static final byte TIMESTAMP = 8;
+    private static final byte BYTES = 9;
+    private static final byte BINARY_STREAM = 10;
+    private static final byte CHARACTER_STREAM = 11;
+    
+    private final DatabaseContext dbContext;
+    
+    public DatabaseBackup(DatabaseContext dbContext) {
+        this.dbContext = dbContext;
+    }
+    
+    /**
+     * Sao lưu tất cả các bảng vào thư mục
+     * @return Số dòng đã ghi của từng bảng
+     */
+    public Map<String, Long> backup(Path directory) throws Exception {
+        return backup(directory, dbContext.getTables());
+    }
+    
+    /**
+     * Sao lưu các bảng chỉ định trong một snapshot nhất quán (không có dòng con thiếu dòng cha)
+     * Nếu database chia sẻ được snapshot, mỗi bảng chạy trên một thread với connection riêng của pool
+     */
+    public Map<String, Long> backup(Path directory, List<String> tables) throws Exception {
+        Files.createDirectories(directory);
+        if (tables.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        
+        DatabaseStrategy strategy = dbContext.getStrategy();
+        ConnectionPool pool = dbContext.getPool();
+        Connection snapshotConnection = pool.borrow();
+        int isolation = snapshotConnection.getTransactionIsolation();
+        try {
+            snapshotConnection.setAutoCommit(false);
+            String snapshotId = strategy.beginSnapshot(snapshotConnection);
+            if (snapshotId != null) {
+                // Transaction giữ snapshot phải mở cho tới khi các connection khác đọc xong
+                return exportParallel(pool, snapshotId, directory, tables);
+            }
+            
+            Map<String, Long> rowCounts = new LinkedHashMap<>();
+            for (String table : tables) {
+                rowCounts.put(table, exportTable(snapshotConnection, table, directory.resolve(table + FILE_EXTENSION)));
+            }
+            return rowCounts;
+        } finally {
+            endSnapshot(snapshotConnection, isolation);
+            pool.release(snapshotConnection);
+        }
+    }
+    
+    private Map<String, Long> exportParallel(ConnectionPool pool, String snapshotId, Path directory,
+                                             List<String> tables) throws Exception {
+        DatabaseStrategy strategy = dbContext.getStrategy();
+        // Một connection của pool đang giữ snapshot
+        int threads = Math.max(1, Math.min(tables.size(), pool.getMaxSize() - 1));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sep-backup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        try {
+            Map<String, Future<Long>> futures = new LinkedHashMap<>();
+            for (String table : tables) {
+                Path file = directory.resolve(table + FILE_EXTENSION);
+                futures.put(table, executor.submit(QueryControl.propagate(() -> {
+                    Connection connection = pool.borrow();
+                    int isolation = connection.getTransactionIsolation();
+                    try {
+                        connection.setAutoCommit(false);
+                        strategy.joinSnapshot(connection, snapshotId);
+                        return exportTable(connection, table, file);
+                    } finally {
+                        endSnapshot(connection, isolation);
+                        pool.release(connection);
+                    }
+                })));
+            }
+            
+            Map<String, Long> rowCounts = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<Long>> entry : futures.entrySet()) {
+                try {
+                    rowCounts.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    futures.values().forEach(f -> f.cancel(true));
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+            return rowCounts;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Kết thúc transaction đọc snapshot, trả connection về trạng thái ban đầu trước khi về pool
+     */
+    private static void endSnapshot(Connection connection, int isolation) {
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+            connection.setTransactionIsolation(isolation);
+        } catch (Exception e) {
+            System.err.println("Lỗi khi khôi phục trạng thái connection: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Khôi phục tất cả file backup trong thư mục trong một transaction
+     * Các bảng được nạp theo thứ tự khóa ngoại (bảng cha trước), ràng buộc được hoãn tới cuối,
+     * sequence của cột tự tăng được nâng theo khóa lớn nhất đã nạp
+     * @param replaceExisting Xóa dữ liệu hiện có của các bảng trước khi nạp
+     * @return Số dòng đã nạp của từng bảng
+     */
+    public Map<String, Long> restore(Path directory, boolean replaceExisting) throws Exception {
+        if (dbContext.getStrategy() instanceof ShardedDatabaseStrategy) {
+            throw new UnsupportedOperationException("Khôi phục cần chạy trên từng shard, không qua strategy sharding");
+        }
+        
+        Map<String, Path> files = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path file : stream) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    files.put(readHeader(new BackupReader(channel), file).tableName, file);
+                }
+            }
+        }
+        List<String> tables = orderByDependencies(files.keySet());
+        
+        DatabaseStrategy strategy = dbContext.getStrategy();
+        ConnectionPool pool = dbContext.getPool();
+        Connection connection = pool.borrow();
+        boolean autoCommit = connection.getAutoCommit();
+        Map<String, Long> rowCounts = new LinkedHashMap<>();
+        try {
+            connection.setAutoCommit(false);
+            strategy.setConstraintsDeferred(connection, true);
+            
+            if (replaceExisting) {
+                for (int i = tables.size() - 1; i >= 0; i--) {
+                    strategy.executeUpdate(connection, "DELETE FROM " + strategy.quoteIdentifier(tables.get(i)));
+                }
+            }
+            for (String table : tables) {
+                rowCounts.put(table, importTable(connection, files.get(table)));
+            }
+            
+            // Kiểm tra các ràng buộc đã hoãn trước khi commit
+            strategy.setConstraintsDeferred(connection, false);
+            connection.commit();
+            
+            // setval không bị rollback nên chỉ nâng sequence sau khi dữ liệu đã commit
+            for (String table : tables) {
+                strategy.resetSequences(connection, table);
+            }
+            connection.commit();
+            return rowCounts;
+        } catch (Exception e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            try {
+                strategy.setConstraintsDeferred(connection, false);
+                connection.setAutoCommit(autoCommit);
+            } catch (Exception e) {
+                System.err.println("Lỗi khi khôi phục trạng thái connection: " + e.getMessage());
+            }
+            pool.release(connection);
+        }
+    }
+    
+    private long exportTable(Connection connection, String table, Path file) throws Exception {
+        DatabaseStrategy strategy = dbContext.getStrategy();
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        long[] rowCount = {0};
+        
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BackupWriter out = new BackupWriter(channel);
+            boolean[] headerWritten = {false};
+            
+            String query = "SELECT * FROM " + strategy.quoteIdentifier(table);
+            strategy.streamResultSet(connection, query, Collections.emptyList(), rs -> {
+                ResultSetMetaData metaData = rs.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                boolean[] streamed = new boolean[columnCount + 1];
+                boolean[] character = new boolean[columnCount + 1];
+                for (int i = 1; i <= columnCount; i++) {
+                    streamed[i] = isStreamed(metaData, i);
+                    character[i] = ResultSetMapper.isCharacter(metaData, i);
+                }
+                // Strategy sharding gọi handler một lần cho mỗi shard, header chỉ ghi một lần
+                if (!headerWritten[0]) {
+                    writeHeader(out, table, metaData);
+                    headerWritten[0] = true;
+                }
+                
+                while (rs.next()) {
+                    QueryControl.checkCancelled();
+                    out.writeByte(ROW);
+                    for (int i = 1; i <= columnCount; i++) {
+                        if (streamed[i]) {
+                            writeStream(out, rs, i, character[i]);
+                        } else {
+                            writeValue(out, rs, i, metaData.getColumnType(i));
+                        }
+                    }
+                    rowCount[0]++;
+                }
+            });
+            out.writeByte(END);
+            out.flush();
+        } catch (Exception e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        return rowCount[0];
+    }
+    
+    private long importTable(Connection connection, Path file) throws Exception {
+        DatabaseStrategy strategy = dbContext.getStrategy();
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            BackupReader in = new BackupReader(channel);
+            Header header = readHeader(in, file);
+            int columnCount = header.columns.size();
+            
+            StringBuilder columnList = new StringBuilder();
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) {
+                    columnList.append(", ");
+                    placeholders.append(", ");
+                }
+                columnList.append(strategy.quoteIdentifier(header.columns.get(i)));
+                placeholders.append("?");
+            }
+            String query = "INSERT INTO " + strategy.quoteIdentifier(header.tableName) +
+                " (" + columnList + ") VALUES (" + placeholders + ")";
+            
+            List<Closeable> spilled = new ArrayList<>();
+            try (PreparedStatement pstmt = strategy.prepareStatement(connection, query)) {
+                long rowCount = 0;
+                int batched = 0;
+                long batchBytes = 0;
+                
+                while (in.readByte() == ROW) {
+                    QueryControl.checkCancelled();
+                    for (int i = 0; i < columnCount; i++) {
+                        batchBytes += readValue(in, pstmt, i + 1, header.types[i], spilled);
+                    }
+                    pstmt.addBatch();
+                    batched++;
+                    rowCount++;
+                    
+                    // LOB lớn được đọc từ file tạm, phải gửi ngay để đóng file
+                    if (!spilled.isEmpty() || batched >= BATCH_SIZE || batchBytes >= BATCH_BYTES) {
+                        pstmt.executeBatch();
+                        closeSpilled(spilled);
+                        batched = 0;
+                        batchBytes = 0;
+                    }
+                }
+                if (batched > 0) {
+                    pstmt.executeBatch();
+                }
+                return rowCount;
+            } finally {
+                closeSpilled(spilled);
+            }
+        }
+    }
+    
+    /**
+     * Sắp xếp bảng theo khóa ngoại: bảng được tham chiếu đứng trước
+     * Vòng tham chiếu được bỏ qua (ràng buộc đã được hoãn trong lúc nạp)
+     */
+    private List<String> orderByDependencies(Collection<String> tables) throws Exception {
+        Map<String, Set<String>> parents = new HashMap<>();
+        for (String table : tables) {
+            Set<String> referenced = new HashSet<>();
+            for (ForeignKeyInfo foreignKey : dbContext.getForeignKeys(table)) {
+                if (tables.contains(foreignKey.getReferencedTable()) && !foreignKey.getReferencedTable().equals(table)) {
+                    referenced.add(foreignKey.getReferencedTable());
+                }
+            }
+            parents.put(table, referenced);
+        }
+        
+        List<String> sorted = new ArrayList<>(tables);
+        Collections.sort(sorted);
+        Set<String> ordered = new LinkedHashSet<>();
+        for (String table : sorted) {
+            visit(table, parents, ordered, new HashSet<>());
+        }
+        return new ArrayList<>(ordered);
+    }
+    
+    private void visit(String table, Map<String, Set<String>> parents, Set<String> ordered, Set<String> visiting) {
+        if (ordered.contains(table) || !visiting.add(table)) {
+            return;
+        }
+        for (String parent : parents.get(table)) {
+            visit(parent, parents, ordered, visiting);
+        }
+        ordered.add(table);
+    }
+    
+    // ---- Định dạng file ----
+    
+    private static boolean isStreamed(ResultSetMetaData metaData, int column) throws Exception {
+        int type = metaData.getColumnType(column);
+        return ResultSetMapper.isLargeObject(metaData, column)
+            || type == Types.LONGVARCHAR || type == Types.LONGNVARCHAR;
+    }
+    
+    private static void writeHeader(BackupWriter out, String table, ResultSetMetaData metaData) throws Exception {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeString(table);
+        out.writeInt(metaData.getColumnCount());
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            out.writeString(metaData.getColumnLabel(i));
+            out.writeInt(metaData.getColumnType(i));
+        }
+    }
+    
+    private static Header readHeader(BackupReader in, Path file) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Không phải file backup hợp lệ: " + file);
+        }
+        Header header = new Header();
+        header.tableName = in.readString();
+        int columnCount = in.readInt();
+        header.columns = new ArrayList<>(columnCount);
+        header.types = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            header.columns.add(in.readString());
+            header.types[i] = in.readInt();
+        }
+        return header;
+    }
+    
+    private static void writeStream(BackupWriter out, ResultSet rs, int column, boolean character) throws Exception {
+        if (character) {
+            writeCharacterStream(out, rs.getCharacterStream(column));
+        } else {
+            writeBinaryStream(out, rs.getBinaryStream(column));
+        }
+    }
+    
+    private static void writeValue(BackupWriter out, ResultSet rs, int column, int type) throws Exception {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT: {
+                long value = rs.getLong(column);
+                if (rs.wasNull()) {
+                    out.writeByte(NULL);
+                } else {
+                    out.writeByte(LONG);
+                    out.writeLong(value);
+                }
+                return;
+            }
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE: {
+                double value = rs.getDouble(column);
+                if (rs.wasNull()) {
+                    out.writeByte(NULL);
+                } else {
+                    out.writeByte(DOUBLE);
+                    out.writeLong(Double.doubleToRawLongBits(value));
+                }
+                return;
+            }
+            case Types.DECIMAL:
+            case Types.NUMERIC: {
+                BigDecimal value = rs.getBigDecimal(column);
+                writeNullable(out, value, DECIMAL);
+                if (value != null) {
+                    out.writeString(value.toPlainString());
+                }
+                return;
+            }
+            case Types.BOOLEAN:
+            case Types.BIT: {
+                Object value = rs.getObject(column);
+                if (value instanceof byte[]) {
+                    out.writeByte(BYTES);
+                    out.writeBytes((byte[]) value);
+                } else if (value == null) {
+                    out.writeByte(NULL);
+                } else {
+                    out.writeByte(BOOLEAN);
+                    out.writeByte(rs.getBoolean(column) ? 1 : 0);
+                }
+                return;
+            }
+            case Types.DATE: {
+                java.sql.Date value = rs.getDate(column);
+                writeNullable(out, value, DATE);
+                if (value != null) {
+                    out.writeLong(value.getTime());
+                }
+                return;
+            }
+            case Types.TIME: {
+                java.sql.Time value = rs.getTime(column);
+                writeNullable(out, value, TIME);
+                if (value != null) {
+                    out.writeLong(value.getTime());
+                }
+                return;
+            }
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE: {
+                Timestamp value = rs.getTimestamp(column);
+                writeNullable(out, value, TIMESTAMP);
+                if (value != null) {
+                    out.writeLong(value.getTime());
+                    out.writeInt(value.getNanos());
+                }
+                return;
+            }
+            case Types.BINARY:
+            case Types.VARBINARY: {
+                byte[] value = rs.getBytes(column);
+                writeNullable(out, value, BYTES);
+                if (value != null) {
+                    out.writeBytes(value);
+                }
+                return;
+            }
+            default: {
+                String value = rs.getString(column);
+                writeNullable(out, value, STRING);
+                if (value != null) {
+                    out.writeString(value);
+                }
+            }
+        }
+    }
+    
+    private static void writeNullable(BackupWriter out, Object value, byte tag) throws IOException {
+        out.writeByte(value == null ? NULL : tag);
+    }
+    
+    /**
+     * BLOB: các khối [độ dài][dữ liệu], kết thúc bằng khối độ dài 0
+     */
+    private static void writeBinaryStream(BackupWriter out, InputStream stream) throws IOException {
+        if (stream == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        out.writeByte(BINARY_STREAM);
+        byte[] chunk = new byte[BUFFER_SIZE];
+        try (InputStream source = stream) {
+            int read;
+            while ((read = source.read(chunk)) > 0) {
+                out.writeInt(read);
+                out.writeBytes(chunk, 0, read);
+            }
+        }
+        out.writeInt(0);
+    }
+    
+    /**
+     * CLOB: như BLOB, mỗi khối là ký tự đã mã hóa UTF-8
+     */
+    private static void writeCharacterStream(BackupWriter out, Reader stream) throws IOException {
+        if (stream == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        out.writeByte(CHARACTER_STREAM);
+        char[] chunk = new char[BUFFER_SIZE / 4];
+        try (Reader source = stream) {
+            int carried = 0;
+            int read;
+            while ((read = source.read(chunk, carried, chunk.length - carried)) > 0) {
+                int length = carried + read;
+                // Không cắt giữa cặp surrogate, ký tự cuối được ghép vào khối sau
+                carried = Character.isHighSurrogate(chunk[length - 1]) ? 1 : 0;
+                ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(chunk, 0, length - carried));
+                out.writeInt(encoded.remaining());
+                out.writeBytes(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
+                if (carried == 1) {
+                    chunk[0] = chunk[length - 1];
+                }
+            }
+            if (carried == 1) {
+                byte[] encoded = String.valueOf(chunk[0]).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encoded.length);
+                out.writeBytes(encoded, 0, encoded.length);
+            }
+        }
+        out.writeInt(0);
+    }
+    
+    /**
+     * Đọc một giá trị và gán vào tham số của câu INSERT
+     * @return Số byte ước lượng giữ trong batch
+     */
+    private static long readValue(BackupReader in, PreparedStatement pstmt, int index, int sqlType,
+                                  List<Closeable> spilled) throws Exception {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                pstmt.setNull(index, sqlType);
+                return 8;
+            case LONG:
+                pstmt.setLong(index, in.readLong());
+                return 8;
+            case DOUBLE:
+                pstmt.setDouble(index, Double.longBitsToDouble(in.readLong()));
+                return 8;
+            case DECIMAL:
+                pstmt.setBigDecimal(index, new BigDecimal(in.readString()));
+                return 24;
+            case BOOLEAN:
+                pstmt.setBoolean(index, in.readByte() != 0);
+                return 1;
+            case DATE:
+                pstmt.setDate(index, new java.sql.Date(in.readLong()));
+                return 8;
+            case TIME:
+                pstmt.setTime(index, new java.sql.Time(in.readLong()));
+                return 8;
+            case TIMESTAMP: {
+                Timestamp value = new Timestamp(in.readLong());
+                value.setNanos(in.readInt());
+                pstmt.setTimestamp(index, value);
+                return 12;
+            }
+            case BYTES: {
+                byte[] value = in.readBytes();
+                pstmt.setBytes(index, value);
+                return value.length;
+            }
+            case STRING: {
+                String value = in.readString();
+                if (sqlType == Types.OTHER) {
+                    // Kiểu riêng của database (uuid, json, ...): để driver chuyển từ chuỗi
+                    pstmt.setObject(index, value, Types.OTHER);
+                } else {
+                    pstmt.setString(index, value);
+                }
+                return value.length() * 2L;
+            }
+            case BINARY_STREAM:
+            case CHARACTER_STREAM:
+                return readStream(in, pstmt, index, tag == CHARACTER_STREAM, spilled);
+            default:
+                throw new IOException("Kiểu giá trị không hợp lệ trong file backup: " + tag);
+        }
+    }
+    
+    /**
+     * Giá trị nhỏ giữ trong bộ nhớ, giá trị lớn được ghi ra file tạm và driver đọc lại dạng stream
+     */
+    private static long readStream(BackupReader in, PreparedStatement pstmt, int index, boolean character,
+                                   List<Closeable> spilled) throws Exception {
+        ByteArrayOutputStream inline = new ByteArrayOutputStream();
+        Path tempFile = null;
+        OutputStream target = inline;
+        long total = 0;
+        byte[] chunk = new byte[BUFFER_SIZE];
+        
+        try {
+            int length;
+            while ((length = in.readInt()) > 0) {
+                while (length > 0) {
+                    int read = Math.min(length, chunk.length);
+                    in.readFully(chunk, 0, read);
+                    if (tempFile == null && total + read > BUFFER_SIZE) {
+                        tempFile = Files.createTempFile("sep-restore", ".lob");
+                        target = Files.newOutputStream(tempFile);
+                        inline.writeTo(target);
+                    }
+                    target.write(chunk, 0, read);
+                    total += read;
+                    length -= read;
+                }
+            }
+        } catch (Exception e) {
+            if (tempFile != null) {
+                target.close();
+                Files.deleteIfExists(tempFile);
+            }
+            throw e;
+        }
+        if (tempFile != null) {
+            target.close();
+        }
+        
+        if (tempFile == null) {
+            byte[] value = inline.toByteArray();
+            if (character) {
+                pstmt.setString(index, new String(value, StandardCharsets.UTF_8));
+            } else {
+                pstmt.setBytes(index, value);
+            }
+            return value.length;
+        }
+        
+        InputStream stream = Files.newInputStream(tempFile, StandardOpenOption.DELETE_ON_CLOSE);
+        spilled.add(stream);
+        if (character) {
+            pstmt.setCharacterStream(index, new InputStreamReader(stream, StandardCharsets.UTF_8));
+        } else {
+            pstmt.setBinaryStream(index, stream, total);
+        }
+        return 0;
+    }
+    
+    private static void closeSpilled(List<Closeable> spilled) {
+        for (Closeable stream : spilled) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                System.err.println("Không xóa được file tạm: " + e.getMessage());
+            }
+        }
+        spilled.clear();
+    }
+    
+    private static class Header {
+        String tableName;
+        List<String> columns;
+        int[] types;
+    }
+    
+    /**
+     * Ghi dữ liệu nhị phân qua ByteBuffer vào channel
+     */
+    private static class BackupWriter {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        
+        BackupWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+        
+        void writeByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+        
+        void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+        
+        void writeLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+        
+        void writeString(String value) throws IOException {
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        void writeBytes(byte[] value) throws IOException {
+            writeInt(value.length);
+            writeBytes(value, 0, value.length);
+        }
+        
+        void writeBytes(byte[] value, int offset, int length) throws IOException {
+            while (length > 0) {
+                ensure(1);
+                int count = Math.min(buffer.remaining(), length);
+                buffer.put(value, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+        
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+    
+    /**
+     * Đọc dữ liệu nhị phân từ channel qua ByteBuffer
+     */
+    private static class BackupReader {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        
+        BackupReader(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+        
+        byte readByte() throws IOException {
+            require(1);
+            return buffer.get();
+        }
+        
+        int readInt() throws IOException {
+            require(4);
+            return buffer.getInt();
+        }
+        
+        long readLong() throws IOException {
+            require(8);
+            return buffer.getLong();
+        }
+        
+        String readString() throws IOException {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+        
+        byte[] readBytes() throws IOException {
+            byte[] value = new byte[readInt()];
+            readFully(value, 0, value.length);
+            return value;
+        }
+        
+        void readFully(byte[] target, int offset, int length) throws IOException {
+            while (length > 0) {
+                require(1);
+                int count = Math.min(buffer.remaining(), length);
+                buffer.get(target, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+        
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("File backup không đầy đủ");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
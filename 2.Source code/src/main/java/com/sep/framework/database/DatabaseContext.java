@@ -1,17 +1,42 @@
 package com.sep.framework.database;
 
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Context class cho Strategy Pattern
  * Cho phép thay đổi database strategy tại runtime
  */
 public class DatabaseContext {
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 2;
+    
     private DatabaseStrategy strategy;
     private Connection connection;
     private String connectionString;
     private String username;
     private String password;
+    private ConnectionPool pool;
+    private int poolSize = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private volatile SchemaSnapshot schemaSnapshot;
+    private int warmUpConnections;
+    private ScheduledExecutorService healthChecker;
+    private Path schemaCacheFile;
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final java.util.Map<String, Integer> fetchSizes = new ConcurrentHashMap<>();
+    private long eagerLoadLimit = 10000;
+    private long streamingLoadLimit = 200000;
+    private volatile int defaultQueryTimeout;
+    private volatile long fetchBudgetBytes = 4L * 1024 * 1024;
     
     public DatabaseContext(DatabaseStrategy strategy) {
         this.strategy = strategy;
@@ -22,6 +47,9 @@ public class DatabaseContext {
      */
     public void setStrategy(DatabaseStrategy strategy) {
         this.strategy = strategy;
+        this.schemaSnapshot = null;
+        fetchSizes.clear();
+        closePool();
         // Đóng connection cũ nếu có
         if (this.connection != null) {
             try {
@@ -32,60 +60,674 @@ public class DatabaseContext {
         }
     }
     
+    public DatabaseStrategy getStrategy() {
+        return strategy;
+    }
+    
     public void setConnectionString(String connectionString) {
         this.connectionString = connectionString;
+        this.schemaSnapshot = null;
+        fetchSizes.clear();
+        closePool();
     }
     
     public void setCredentials(String username, String password) {
         this.username = username;
         this.password = password;
+        closePool();
     }
     
-    public Connection getConnection() throws Exception {
-        if (connection == null || connection.isClosed()) {
-            if (username != null && password != null) {
-                connection = strategy.connect(connectionString, username, password);
-            } else {
-                connection = strategy.connect(connectionString);
+    /**
+     * Số connection tối đa của pool dùng cho các tác vụ song song
+     */
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+        closePool();
+    }
+    
+    /**
+     * Lấy connection pool (tạo khi cần) cho các tác vụ chạy trên nhiều connection
+     */
+    public synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            pool = new ConnectionPool(strategy, connectionString, username, password, poolSize);
+            pool.setMinIdle(warmUpConnections);
+        }
+        return pool;
+    }
+    
+    /**
+     * Mở sẵn connection ở background và chạy health check định kỳ
+     * Connection chết (mạng chập chờn, server restart) được thay thế trước khi người dùng cần tới
+     * @param warmUpConnections Số connection giữ sẵn trong pool
+     * @param healthCheckSeconds Chu kỳ kiểm tra (giây), <= 0 để tắt health check
+     */
+    public synchronized void startConnectionMaintenance(int warmUpConnections, int healthCheckSeconds) {
+        this.warmUpConnections = warmUpConnections;
+        getPool().setMinIdle(warmUpConnections);
+        
+        Thread warmUp = new Thread(() -> {
+            try {
+                getConnection();
+            } catch (Exception e) {
+                System.err.println("Lỗi khi mở connection: " + e.getMessage());
             }
+            getPool().warmUp();
+        }, "sep-connection-warmup");
+        warmUp.setDaemon(true);
+        warmUp.start();
+        
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+        if (healthCheckSeconds > 0) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sep-connection-health");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkConnections, 
+                healthCheckSeconds, healthCheckSeconds, TimeUnit.SECONDS);
+        }
+    }
+    
+    /**
+     * Health check: kiểm tra connection chính và các connection rảnh trong pool
+     */
+    private void checkConnections() {
+        synchronized (this) {
+            try {
+                if (connection != null && !connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS)) {
+                    strategy.disconnect(connection);
+                    connection = null;
+                }
+            } catch (Exception e) {
+                connection = null;
+            }
+        }
+        getPool().validateIdle(HEALTH_CHECK_TIMEOUT_SECONDS);
+    }
+    
+    private synchronized void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+    
+    public synchronized Connection getConnection() throws Exception {
+        if (connection == null || connection.isClosed()) {
+            // Ưu tiên connection đã mở sẵn trong pool để không phải handshake lại
+            Connection warm = pool != null ? pool.takeIdle() : null;
+            connection = warm != null ? warm : openConnection();
         }
         return connection;
     }
     
+    /**
+     * Mở một connection mới, độc lập với connection chính và pool
+     */
+    public Connection openConnection() throws Exception {
+        if (username != null && password != null) {
+            return strategy.connect(connectionString, username, password);
+        }
+        return strategy.connect(connectionString);
+    }
+    
+    /**
+     * Timeout mặc định (giây) cho mọi truy vấn của context này, 0 là không giới hạn
+     * Không ảnh hưởng tới các context khác (bản sao, shard, database đích của backup...)
+     */
+    public void setDefaultQueryTimeout(int seconds) {
+        this.defaultQueryTimeout = Math.max(0, seconds);
+    }
+    
+    public int getDefaultQueryTimeout() {
+        return defaultQueryTimeout;
+    }
+    
+    /**
+     * Chạy action trong phạm vi truy vấn của context này (timeout mặc định của context)
+     * Các lớp dùng trực tiếp strategy và pool của context (backup, export, shard...) cũng phải đi qua đây
+     */
+    <T> T inScope(Callable<T> action) throws Exception {
+        return QueryControl.withDefaultTimeout(defaultQueryTimeout, action);
+    }
+    
+    /**
+     * Chạy các thao tác database với timeout riêng thay cho timeout mặc định
+     * Ví dụ: dbContext.withQueryTimeout(5, () -> dbContext.getAll("orders"))
+     */
+    public <T> T withQueryTimeout(int seconds, Callable<T> action) throws Exception {
+        return QueryControl.withTimeout(seconds, action);
+    }
+    
+    /**
+     * Chạy các thao tác database có thể bị hủy từ thread khác qua token.cancel()
+     */
+    public <T> T withCancellation(CancellationToken token, Callable<T> action) throws Exception {
+        return QueryControl.withCancellation(token, action);
+    }
+    
     public void close() throws Exception {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+        closePool();
         if (connection != null) {
             strategy.disconnect(connection);
             connection = null;
         }
     }
     
+    /**
+     * Bật cache schema trên đĩa với file mặc định trong thư mục của user
+     */
+    public void enableSchemaCache() {
+        enableSchemaCache(SchemaSnapshotStore.defaultFile(connectionString, username));
+    }
+    
+    /**
+     * Bật cache schema trên đĩa: nạp ngay snapshot đã lưu (nếu có) để form mở được tức thì,
+     * sau đó kiểm tra lại checksum ở background và đọc lại schema nếu đã thay đổi
+     */
+    public void enableSchemaCache(Path file) {
+        this.schemaCacheFile = file;
+        try {
+            SchemaSnapshot cached = new SchemaSnapshotStore().load(file);
+            if (cached != null) {
+                schemaSnapshot = cached;
+            }
+        } catch (Exception e) {
+            System.err.println("Không đọc được schema cache: " + e.getMessage());
+        }
+        
+        Thread revalidator = new Thread(this::revalidateSchema, "sep-schema-revalidate");
+        revalidator.setDaemon(true);
+        revalidator.start();
+    }
+    
+    /**
+     * So sánh checksum schema hiện tại với snapshot đang dùng, đọc lại và lưu cache nếu khác
+     */
+    private void revalidateSchema() {
+        ConnectionPool connectionPool = getPool();
+        Connection pooled = null;
+        try {
+            pooled = connectionPool.borrow();
+            Connection borrowed = pooled;
+            SchemaSnapshot current = schemaSnapshot;
+            String checksum = inScope(() -> strategy.getSchemaChecksum(borrowed));
+            if (current != null && checksum != null && checksum.equals(current.getChecksum())) {
+                return;
+            }
+            
+            SchemaSnapshot fresh = inScope(() -> strategy.getSchemaSnapshot(borrowed));
+            schemaSnapshot = fresh;
+            fetchSizes.clear();
+            if (schemaCacheFile != null) {
+                new SchemaSnapshotStore().save(fresh, schemaCacheFile);
+            }
+        } catch (Exception e) {
+            System.err.println("Lỗi khi kiểm tra schema cache: " + e.getMessage());
+        } finally {
+            connectionPool.release(pooled);
+        }
+    }
+    
+    /**
+     * Bỏ snapshot schema đang cache (ví dụ sau khi chạy DDL), lần đọc sau sẽ lấy lại từ database
+     */
+    public void invalidateSchema() {
+        schemaSnapshot = null;
+        fetchSizes.clear();
+        if (schemaCacheFile != null) {
+            try {
+                Files.deleteIfExists(schemaCacheFile);
+            } catch (Exception e) {
+                System.err.println("Không xóa được schema cache: " + e.getMessage());
+            }
+        }
+    }
+    
     // Delegate methods
     public java.util.List<String> getTables() throws Exception {
-        return strategy.getTables(getConnection());
+        SchemaSnapshot snapshot = schemaSnapshot;
+        if (snapshot != null) {
+            return snapshot.getTables();
+        }
+        return singleFlight.execute("tables", 
+            () -> inScope(() -> strategy.getTables(getConnection())), java.util.ArrayList::new);
     }
     
     public java.util.List<ColumnInfo> getColumns(String tableName) throws Exception {
-        return strategy.getColumns(getConnection(), tableName);
+        SchemaSnapshot snapshot = schemaSnapshot;
+        if (snapshot != null && snapshot.containsTable(tableName)) {
+            return snapshot.getColumns(tableName);
+        }
+        return singleFlight.execute("columns:" + tableName, 
+            () -> inScope(() -> strategy.getColumns(getConnection(), tableName)), java.util.ArrayList::new);
     }
     
     public java.util.List<java.util.Map<String, Object>> getAll(String tableName) throws Exception {
-        return strategy.getAll(getConnection(), tableName);
+        return getAll(tableName, new String[0]);
+    }
+    
+    /**
+     * Lấy dữ liệu chỉ gồm các cột cần thiết, tránh tải các cột lớn (TEXT/BLOB)
+     */
+    public java.util.List<java.util.Map<String, Object>> getAll(String tableName, String... columns) throws Exception {
+        String key = "all:" + tableName + ":" + String.join(",", columns);
+        return singleFlight.execute(key, 
+            () -> withFetchSize(tableName, columns, () -> strategy.getAll(getConnection(), tableName, columns)), 
+            DatabaseContext::copyRows);
+    }
+    
+    /**
+     * Số byte mục tiêu cho mỗi lần fetch của context này (mặc định 4MB)
+     * Fetch size của từng truy vấn được tính theo độ rộng row ước lượng từ ColumnInfo
+     */
+    public void setFetchBudget(long bytes) {
+        this.fetchBudgetBytes = Math.max(1024, bytes);
+        fetchSizes.clear();
+    }
+    
+    public long getFetchBudget() {
+        return fetchBudgetBytes;
+    }
+    
+    private <T> T withFetchSize(String tableName, String[] columns, Callable<T> action) throws Exception {
+        int fetchSize = fetchSizeFor(tableName, columns);
+        return inScope(() -> QueryControl.withFetchSize(fetchSize, action));
+    }
+    
+    /**
+     * Fetch size cho truy vấn đọc các cột của bảng, 0 nếu không ước lượng được
+     */
+    private int fetchSizeFor(String tableName, String[] columns) {
+        String key = tableName + ":" + String.join(",", columns);
+        Integer fetchSize = fetchSizes.get(key);
+        if (fetchSize == null) {
+            try {
+                java.util.List<String> projection = java.util.Arrays.asList(columns);
+                java.util.List<ColumnInfo> selected = new java.util.ArrayList<>();
+                for (ColumnInfo column : getColumns(tableName)) {
+                    if (projection.isEmpty() || projection.contains(column.getName())) {
+                        selected.add(column);
+                    }
+                }
+                fetchSize = strategy.estimateFetchSize(selected, fetchBudgetBytes);
+                fetchSizes.put(key, fetchSize);
+            } catch (Exception e) {
+                System.err.println("Không ước lượng được fetch size của " + tableName + ": " + e.getMessage());
+                return 0;
+            }
+        }
+        return fetchSize;
+    }
+    
+    /**
+     * Thống kê gộp truy vấn: số lần thực thi và số lời gọi được dùng chung kết quả
+     */
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+    
+    private static java.util.List<java.util.Map<String, Object>> copyRows(java.util.List<java.util.Map<String, Object>> rows) {
+        java.util.List<java.util.Map<String, Object>> copy = new java.util.ArrayList<>(rows.size());
+        for (java.util.Map<String, Object> row : rows) {
+            copy.add(new java.util.LinkedHashMap<>(row));
+        }
+        return copy;
+    }
+    
+    /**
+     * Quét toàn bộ bảng song song theo khoảng khóa chính, mỗi khoảng trên một connection của pool
+     * Kết quả được ghép theo thứ tự khóa chính
+     */
+    public java.util.List<java.util.Map<String, Object>> parallelGetAll(String tableName, int partitions, 
+                                                                       String... columns) throws Exception {
+        return withFetchSize(tableName, columns, 
+            () -> new ParallelTableScanner(strategy, getPool()).scan(tableName, partitions, columns));
+    }
+    
+    /**
+     * Quét toàn bộ bảng song song, các row được đẩy vào handler (thread-safe) ngay khi đọc được
+     */
+    public void parallelScan(String tableName, int partitions, RowHandler handler, String... columns) throws Exception {
+        withFetchSize(tableName, columns, () -> {
+            new ParallelTableScanner(strategy, getPool()).scan(tableName, partitions, handler, columns);
+            return null;
+        });
+    }
+    
+    /**
+     * Lấy một record theo khóa chính
+     */
+    public java.util.Map<String, Object> getById(String tableName, String keyColumn, Object keyValue, String... columns) throws Exception {
+        return inScope(() -> strategy.getById(getConnection(), tableName, keyColumn, keyValue, columns));
+    }
+    
+    /**
+     * Đếm chính xác số dòng của bảng
+     */
+    public long countRows(String tableName) throws Exception {
+        return inScope(() -> strategy.countRows(getConnection(), tableName));
+    }
+    
+    /**
+     * Ước lượng nhanh số dòng của bảng (thống kê của database)
+     */
+    public long estimateRowCount(String tableName) throws Exception {
+        return inScope(() -> strategy.estimateRowCount(getConnection(), tableName));
+    }
+    
+    /**
+     * Ngưỡng chọn cách tải dữ liệu
+     * @param eagerLimit Tối đa số dòng để tải toàn bộ một lần
+     * @param streamingLimit Tối đa số dòng để stream toàn bộ, lớn hơn thì phân trang
+     */
+    public void setLoadModeThresholds(long eagerLimit, long streamingLimit) {
+        this.eagerLoadLimit = eagerLimit;
+        this.streamingLoadLimit = Math.max(eagerLimit, streamingLimit);
+    }
+    
+    /**
+     * Chọn cách tải dữ liệu (toàn bộ, stream, phân trang) theo số dòng ước lượng của bảng
+     */
+    public LoadMode chooseLoadMode(String tableName) throws Exception {
+        long estimate = estimateRowCount(tableName);
+        if (estimate <= eagerLoadLimit) {
+            return LoadMode.EAGER;
+        }
+        return estimate <= streamingLoadLimit ? LoadMode.STREAMING : LoadMode.PAGED;
+    }
+    
+    /**
+     * Lấy một trang dữ liệu sắp xếp theo cột khóa
+     */
+    public java.util.List<java.util.Map<String, Object>> getPage(String tableName, String keyColumn, long offset, 
+                                                                 int limit, String... columns) throws Exception {
+        return withFetchSize(tableName, columns, 
+            () -> strategy.getPage(getConnection(), tableName, keyColumn, offset, limit, columns));
+    }
+    
+    /**
+     * Lấy một trang dữ liệu đã lọc và sắp xếp trên database theo criteria
+     */
+    public java.util.List<java.util.Map<String, Object>> getPage(String tableName, QueryCriteria criteria, String keyColumn,
+                                                                 long offset, int limit, String... columns) throws Exception {
+        return withFetchSize(tableName, columns, 
+            () -> strategy.getPage(getConnection(), tableName, criteria, keyColumn, offset, limit, columns));
+    }
+    
+    /**
+     * Đếm số dòng thỏa điều kiện lọc của criteria
+     */
+    public long countRows(String tableName, QueryCriteria criteria) throws Exception {
+        return inScope(() -> strategy.countRows(getConnection(), tableName, criteria));
+    }
+    
+    /**
+     * Đọc toàn bộ bảng bằng cursor forward-only trên một connection của pool
+     * Connection chính vẫn dùng được cho các thao tác khác trong lúc stream
+     */
+    public void stream(String tableName, RowHandler handler, String... columns) throws Exception {
+        String keyColumn = getPrimaryKey(tableName);
+        ConnectionPool connectionPool = getPool();
+        Connection pooled = connectionPool.borrow();
+        try {
+            withFetchSize(tableName, columns, () -> {
+                if (keyColumn != null) {
+                    strategy.streamRange(pooled, tableName, keyColumn, null, null, handler, columns);
+                } else {
+                    String query = "SELECT " + strategy.buildSelectList(columns) + " FROM " + strategy.quoteIdentifier(tableName);
+                    strategy.streamQuery(pooled, query, java.util.Collections.emptyList(), tableName, null, handler);
+                }
+                return null;
+            });
+        } finally {
+            connectionPool.release(pooled);
+        }
+    }
+    
+    /**
+     * Sao lưu tất cả các bảng vào thư mục (mỗi bảng một file, xuất song song)
+     * @return Số dòng đã ghi của từng bảng
+     */
+    public java.util.Map<String, Long> backup(Path directory) throws Exception {
+        return inScope(() -> new DatabaseBackup(this).backup(directory));
+    }
+    
+    /**
+     * Khôi phục dữ liệu từ thư mục backup trong một transaction
+     * @param replaceExisting Xóa dữ liệu hiện có của các bảng trước khi nạp
+     */
+    public java.util.Map<String, Long> restore(Path directory, boolean replaceExisting) throws Exception {
+        return inScope(() -> new DatabaseBackup(this).restore(directory, replaceExisting));
+    }
+    
+    /**
+     * Lấy nhiều record theo danh sách khóa (IN theo lô) thay vì gọi getById nhiều lần
+     */
+    public java.util.List<java.util.Map<String, Object>> getByIds(String tableName, String keyColumn, 
+                                                                  java.util.Collection<?> keyValues, String... columns) throws Exception {
+        return withFetchSize(tableName, columns, 
+            () -> strategy.getByIds(getConnection(), tableName, keyColumn, keyValues, columns));
+    }
+    
+    /**
+     * Stream nội dung của một ô BLOB/CLOB ra channel
+     * @return Số byte/ký tự đã ghi, -1 nếu không tìm thấy record
+     */
+    public long readLob(String tableName, String keyColumn, Object keyValue, String lobColumn, 
+                        WritableByteChannel target) throws Exception {
+        return inScope(() -> strategy.readLob(getConnection(), tableName, keyColumn, keyValue, lobColumn, target));
+    }
+    
+    /**
+     * Stream nội dung ô mà LobHandle trỏ tới ra channel
+     */
+    public long readLob(LobHandle handle, WritableByteChannel target) throws Exception {
+        return readLob(handle.getTableName(), handle.getKeyColumn(), handle.getKeyValue(), 
+            handle.getColumnName(), target);
+    }
+    
+    /**
+     * Stream nội dung ô mà LobHandle trỏ tới ra file
+     */
+    public long readLob(LobHandle handle, Path file) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, 
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return readLob(handle, channel);
+        }
+    }
+    
+    /**
+     * Ghi một ô BLOB từ InputStream
+     * @param length Độ dài dữ liệu, -1 nếu không biết trước
+     */
+    public int writeLob(String tableName, String keyColumn, Object keyValue, String lobColumn, 
+                        InputStream source, long length) throws Exception {
+        return inScope(() -> strategy.writeLob(getConnection(), tableName, keyColumn, keyValue, lobColumn, source, length));
+    }
+    
+    /**
+     * Ghi nội dung file vào ô mà LobHandle trỏ tới
+     */
+    public int writeLob(LobHandle handle, Path file) throws Exception {
+        try (InputStream source = Files.newInputStream(file)) {
+            return writeLob(handle.getTableName(), handle.getKeyColumn(), handle.getKeyValue(), 
+                handle.getColumnName(), source, Files.size(file));
+        }
     }
     
     public int insert(String tableName, java.util.Map<String, Object> data) throws Exception {
-        return strategy.insert(getConnection(), tableName, data);
+        return inScope(() -> strategy.insert(getConnection(), tableName, data));
+    }
+    
+    /**
+     * Thêm mới một record và trả về khóa chính (kể cả khóa tự sinh)
+     * @return null nếu bảng không có khóa chính hoặc driver không trả về khóa tự sinh
+     */
+    public Object insertAndGetKey(String tableName, java.util.Map<String, Object> data) throws Exception {
+        String keyColumn = getPrimaryKey(tableName);
+        if (keyColumn == null) {
+            insert(tableName, data);
+            return null;
+        }
+        return inScope(() -> strategy.insertAndGetKey(getConnection(), tableName, data, keyColumn));
     }
     
     public int update(String tableName, java.util.Map<String, Object> data, String whereClause) throws Exception {
-        return strategy.update(getConnection(), tableName, data, whereClause);
+        return inScope(() -> strategy.update(getConnection(), tableName, data, whereClause));
+    }
+    
+    /**
+     * Chạy callback trong một transaction trên connection mượn từ pool
+     * Commit khi callback hoàn tất, rollback nếu có exception
+     */
+    public <T> T inTransaction(TransactionCallback<T> callback) throws Exception {
+        ConnectionPool connectionPool = getPool();
+        Connection pooled = connectionPool.borrow();
+        boolean autoCommit = pooled.getAutoCommit();
+        boolean committed = false;
+        try {
+            pooled.setAutoCommit(false);
+            T result = inScope(() -> callback.execute(strategy, pooled));
+            pooled.commit();
+            committed = true;
+            return result;
+        } catch (Exception e) {
+            pooled.rollback();
+            throw e;
+        } finally {
+            try {
+                if (committed) {
+                    strategy.afterCommit(pooled);
+                } else {
+                    strategy.afterRollback(pooled);
+                }
+            } catch (Exception e) {
+                System.err.println("Lỗi khi hoàn tất transaction: " + e.getMessage());
+            }
+            try {
+                pooled.setAutoCommit(autoCommit);
+            } catch (Exception e) {
+                System.err.println("Lỗi khi khôi phục trạng thái connection: " + e.getMessage());
+            }
+            connectionPool.release(pooled);
+        }
+    }
+    
+    /**
+     * Thêm nhiều dòng theo lô trong một transaction trên connection của pool
+     * Gọi song song từ nhiều thread được, mỗi lời gọi dùng connection riêng
+     * @return Số dòng đã thêm
+     */
+    public int insertBatch(String tableName, java.util.List<String> columns, 
+                           java.util.List<Object[]> rows) throws Exception {
+        return inTransaction((txStrategy, connection) -> txStrategy.insertBatch(connection, tableName, columns, rows));
+    }
+    
+    /**
+     * Thêm nhiều dòng theo lô trong một transaction và trả về khóa chính của từng dòng theo thứ tự
+     */
+    public java.util.List<Object> insertBatchAndGetKeys(String tableName, java.util.List<String> columns, 
+                                                        java.util.List<Object[]> rows) throws Exception {
+        String keyColumn = getPrimaryKey(tableName);
+        if (keyColumn == null) {
+            throw new IllegalArgumentException("Bảng " + tableName + " không có khóa chính");
+        }
+        return inTransaction((txStrategy, connection) -> 
+            txStrategy.insertBatchAndGetKeys(connection, tableName, keyColumn, columns, rows));
+    }
+    
+    /**
+     * Cập nhật nhiều dòng theo lô trong một transaction (optimistic locking theo giá trị gốc)
+     * Có xung đột thì rollback toàn bộ, không dòng nào được lưu (kể cả với bảng sharded)
+     * @return Khóa của các dòng bị xung đột, rỗng nếu đã lưu thành công
+     */
+    public java.util.List<Object> updateBatch(String tableName, java.util.List<RowChange> changes) throws Exception {
+        String keyColumn = getPrimaryKey(tableName);
+        if (keyColumn == null) {
+            throw new IllegalArgumentException("Bảng " + tableName + " không có khóa chính");
+        }
+        try {
+            return inTransaction((txStrategy, connection) -> {
+                java.util.List<Object> conflicts = txStrategy.updateBatch(connection, tableName, keyColumn, changes);
+                if (!conflicts.isEmpty()) {
+                    // Ném ra để inTransaction rollback và gọi afterRollback thay vì commit transaction rỗng
+                    throw new UpdateConflict(conflicts);
+                }
+                return conflicts;
+            });
+        } catch (UpdateConflict e) {
+            return e.conflicts;
+        }
+    }
+    
+    /**
+     * Báo xung đột của updateBatch ra khỏi transaction để transaction bị rollback
+     */
+    private static final class UpdateConflict extends Exception {
+        private final java.util.List<Object> conflicts;
+        
+        UpdateConflict(java.util.List<Object> conflicts) {
+            super("Xung đột khi cập nhật " + conflicts.size() + " dòng");
+            this.conflicts = conflicts;
+        }
     }
     
     public int delete(String tableName, String whereClause) throws Exception {
-        return strategy.delete(getConnection(), tableName, whereClause);
+        return inScope(() -> strategy.delete(getConnection(), tableName, whereClause));
+    }
+    
+    /**
+     * Xóa nhiều dòng theo khóa chính trong một transaction (DELETE ... IN theo lô)
+     * @return Số dòng đã xóa
+     */
+    public int deleteByIds(String tableName, java.util.Collection<?> keyValues) throws Exception {
+        String keyColumn = getPrimaryKey(tableName);
+        if (keyColumn == null) {
+            throw new IllegalArgumentException("Bảng " + tableName + " không có khóa chính");
+        }
+        return inTransaction((txStrategy, connection) ->
+            txStrategy.deleteByIds(connection, tableName, keyColumn, keyValues));
     }
     
     public String getPrimaryKey(String tableName) throws Exception {
-        return strategy.getPrimaryKey(getConnection(), tableName);
+        SchemaSnapshot snapshot = schemaSnapshot;
+        if (snapshot != null && snapshot.containsTable(tableName)) {
+            return snapshot.getPrimaryKey(tableName);
+        }
+        return singleFlight.execute("primaryKey:" + tableName, 
+            () -> inScope(() -> strategy.getPrimaryKey(getConnection(), tableName)), key -> key);
+    }
+    
+    public java.util.List<ForeignKeyInfo> getForeignKeys(String tableName) throws Exception {
+        SchemaSnapshot snapshot = schemaSnapshot;
+        if (snapshot != null && snapshot.containsTable(tableName)) {
+            return snapshot.getForeignKeys(tableName);
+        }
+        return inScope(() -> strategy.getForeignKeys(getConnection(), tableName));
+    }
+    
+    /**
+     * Đọc toàn bộ schema trong một lượt metadata
+     * Dùng snapshot đã cache nếu có (khi bật enableSchemaCache), ngược lại đọc từ database
+     */
+    public SchemaSnapshot getSchemaSnapshot() throws Exception {
+        SchemaSnapshot snapshot = schemaSnapshot;
+        if (snapshot == null) {
+            snapshot = inScope(() -> strategy.getSchemaSnapshot(getConnection()));
+            if (schemaCacheFile != null) {
+                schemaSnapshot = snapshot;
+            }
+        }
+        return snapshot;
     }
 }
 
@@ -1,7 +1,17 @@
 package com.sep.framework.database;
 
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -11,6 +21,22 @@ import java.util.Map;
  */
 public interface DatabaseStrategy {
     
+    /**
+     * Số giá trị tối đa trong một mệnh đề IN (...), tránh vượt giới hạn tham số của driver
+     */
+    int IN_LIST_CHUNK_SIZE = 500;
+    
+    /**
+     * Số dòng mỗi lần executeBatch khi thêm theo lô
+     */
+    int INSERT_BATCH_SIZE = 1000;
+    
+    /**
+     * Giới hạn của fetch size tự tính theo độ rộng row
+     */
+    int MIN_FETCH_SIZE = 16;
+    int MAX_FETCH_SIZE = 10000;
+    
     /**
      * Kết nối đến database
      */
@@ -48,16 +74,702 @@ public interface DatabaseStrategy {
      */
     int executeUpdate(Connection connection, String query) throws Exception;
     
+    /**
+     * Tạo Statement đã áp dụng timeout và token hủy của QueryControl hiện tại
+     */
+    default Statement createStatement(Connection connection) throws Exception {
+        return QueryControl.apply(connection.createStatement());
+    }
+    
+    /**
+     * Tạo PreparedStatement đã áp dụng timeout và token hủy của QueryControl hiện tại
+     */
+    default PreparedStatement prepareStatement(Connection connection, String query) throws Exception {
+        return QueryControl.apply(connection.prepareStatement(query));
+    }
+    
     /**
      * Lấy tất cả dữ liệu từ bảng
      */
-    List<Map<String, Object>> getAll(Connection connection, String tableName) throws Exception;
+    default List<Map<String, Object>> getAll(Connection connection, String tableName) throws Exception {
+        return getAll(connection, tableName, new String[0]);
+    }
+    
+    /**
+     * Lấy dữ liệu từ bảng, chỉ gồm các cột được chỉ định (projection)
+     * Không truyền cột nào thì lấy mọi cột. Cột BLOB/CLOB/TEXT không được đọc mà trả về dạng LobHandle
+     * (null nếu ô là NULL), khóa chính luôn có trong row để handle trỏ lại đúng ô
+     */
+    default List<Map<String, Object>> getAll(Connection connection, String tableName, String... columns) throws Exception {
+        List<ColumnInfo> tableColumns = getColumns(connection, tableName);
+        RowProjection projection = new RowProjection(tableColumns, tableName, 
+            RowProjection.primaryKeyOf(tableColumns), columns);
+        String query = "SELECT " + projection.buildSelectList(this) + " FROM " + quoteIdentifier(tableName);
+        
+        try (Statement stmt = createStatement(connection);
+             ResultSet rs = stmt.executeQuery(query)) {
+            return ResultSetMapper.toList(rs, projection);
+        }
+    }
+    
+    /**
+     * Lấy một record theo giá trị của cột khóa (parameterized)
+     * Trả về null nếu không tìm thấy
+     */
+    default Map<String, Object> getById(Connection connection, String tableName, String keyColumn, Object keyValue, String... columns) throws Exception {
+        RowProjection projection = new RowProjection(getColumns(connection, tableName), tableName, keyColumn, columns);
+        String query = "SELECT " + projection.buildSelectList(this) + " FROM " + quoteIdentifier(tableName) +
+            " WHERE " + quoteIdentifier(keyColumn) + " = ?";
+        
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            pstmt.setObject(1, keyValue);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<Map<String, Object>> rows = ResultSetMapper.toList(rs, projection);
+                return rows.isEmpty() ? null : rows.get(0);
+            }
+        }
+    }
+    
+    /**
+     * Lấy nhiều record theo danh sách giá trị khóa bằng các truy vấn IN (...) theo lô
+     * Thứ tự kết quả không theo thứ tự khóa truyền vào, khóa không tồn tại bị bỏ qua
+     */
+    default List<Map<String, Object>> getByIds(Connection connection, String tableName, String keyColumn,
+                                               Collection<?> keyValues, String... columns) throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        List<Object> keys = new ArrayList<>(keyValues);
+        RowProjection projection = new RowProjection(getColumns(connection, tableName), tableName, keyColumn, columns);
+        String prefix = "SELECT " + projection.buildSelectList(this) + " FROM " + quoteIdentifier(tableName) +
+            " WHERE " + quoteIdentifier(keyColumn) + " IN (";
+        
+        for (int start = 0; start < keys.size(); start += IN_LIST_CHUNK_SIZE) {
+            List<Object> chunk = keys.subList(start, Math.min(start + IN_LIST_CHUNK_SIZE, keys.size()));
+            StringBuilder query = new StringBuilder(prefix);
+            for (int i = 0; i < chunk.size(); i++) {
+                query.append(i == 0 ? "?" : ", ?");
+            }
+            query.append(")");
+            
+            try (PreparedStatement pstmt = prepareStatement(connection, query.toString())) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setObject(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rows.addAll(ResultSetMapper.toList(rs, projection));
+                }
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * Xóa nhiều record theo danh sách khóa bằng DELETE ... IN theo lô thay vì xóa từng dòng
+     * Không tự quản lý transaction
+     * @return Số dòng đã xóa
+     */
+    default int deleteByIds(Connection connection, String tableName, String keyColumn,
+                            Collection<?> keyValues) throws Exception {
+        int deleted = 0;
+        List<Object> keys = new ArrayList<>(keyValues);
+        String prefix = "DELETE FROM " + quoteIdentifier(tableName) +
+            " WHERE " + quoteIdentifier(keyColumn) + " IN (";
+        
+        for (int start = 0; start < keys.size(); start += IN_LIST_CHUNK_SIZE) {
+            List<Object> chunk = keys.subList(start, Math.min(start + IN_LIST_CHUNK_SIZE, keys.size()));
+            StringBuilder query = new StringBuilder(prefix);
+            for (int i = 0; i < chunk.size(); i++) {
+                query.append(i == 0 ? "?" : ", ?");
+            }
+            query.append(")");
+            
+            try (PreparedStatement pstmt = prepareStatement(connection, query.toString())) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setObject(i + 1, chunk.get(i));
+                }
+                deleted += pstmt.executeUpdate();
+            }
+        }
+        return deleted;
+    }
+    
+    /**
+     * Đọc dữ liệu của bảng trong khoảng khóa [lowerBound, upperBound), sắp xếp theo khóa
+     * Bound bằng null nghĩa là không giới hạn phía đó. Các row được đẩy lần lượt vào handler
+     */
+    default void streamRange(Connection connection, String tableName, String keyColumn, Object lowerBound,
+                             Object upperBound, RowHandler handler, String... columns) throws Exception {
+        StringBuilder query = new StringBuilder("SELECT ").append(buildSelectList(columns))
+            .append(" FROM ").append(quoteIdentifier(tableName));
+        List<Object> params = new ArrayList<>();
+        
+        String key = quoteIdentifier(keyColumn);
+        if (lowerBound != null) {
+            query.append(" WHERE ").append(key).append(" >= ?");
+            params.add(lowerBound);
+        }
+        if (upperBound != null) {
+            query.append(params.isEmpty() ? " WHERE " : " AND ").append(key).append(" < ?");
+            params.add(upperBound);
+        }
+        query.append(" ORDER BY ").append(key);
+        
+        streamQuery(connection, query.toString(), params, tableName, keyColumn, handler);
+    }
+    
+    /**
+     * Thực thi query dạng forward-only và đẩy từng row vào handler thay vì giữ toàn bộ kết quả
+     * @param tableName/keyColumn Dùng để tạo LobHandle cho các cột BLOB/CLOB, có thể null
+     */
+    default void streamQuery(Connection connection, String query, List<Object> params, String tableName,
+                             String keyColumn, RowHandler handler) throws Exception {
+        streamResultSet(connection, query, params, rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            int keyIndex = ResultSetMapper.hasLargeObjects(metaData) 
+                ? ResultSetMapper.findColumn(metaData, keyColumn) 
+                : 0;
+            while (rs.next()) {
+                QueryControl.checkCancelled();
+                handler.handle(ResultSetMapper.toRow(rs, metaData, columnCount, tableName, keyIndex));
+            }
+        });
+    }
+    
+    /**
+     * Thực thi query dạng forward-only và giao ResultSet đang mở cho handler
+     * Driver được cấu hình để trả kết quả theo từng phần (prepareStreaming)
+     */
+    default void streamResultSet(Connection connection, String query, List<Object> params,
+                                 ResultSetHandler handler) throws Exception {
+        // Một số driver (PostgreSQL) chỉ dùng cursor khi đang trong transaction
+        boolean startTransaction = streamingNeedsTransaction() && connection.getAutoCommit();
+        if (startTransaction) {
+            connection.setAutoCommit(false);
+        }
+        
+        try (PreparedStatement pstmt = QueryControl.apply(connection.prepareStatement(query, 
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            prepareStreaming(pstmt);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                handler.handle(rs);
+            }
+            if (startTransaction) {
+                connection.commit();
+            }
+        } catch (Exception e) {
+            if (startTransaction) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            if (startTransaction) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+    
+    /**
+     * Hook: cấu hình statement để driver trả kết quả theo từng phần
+     * Dùng fetch size gợi ý của QueryControl (tính theo độ rộng row) nếu có
+     */
+    default void prepareStreaming(Statement statement) throws Exception {
+        int fetchSize = QueryControl.currentFetchSize();
+        statement.setFetchSize(fetchSize > 0 ? fetchSize : 1000);
+    }
+    
+    /**
+     * Tính fetch size sao cho mỗi lần fetch khoảng budgetBytes
+     * Bảng rộng dùng lô nhỏ (ít bộ nhớ), bảng hẹp dùng lô lớn (ít round trip)
+     */
+    default int estimateFetchSize(List<ColumnInfo> columns, long budgetBytes) {
+        // Overhead cho mỗi row và mỗi giá trị (object header, độ dài trên wire)
+        long rowWidth = 32;
+        for (ColumnInfo column : columns) {
+            rowWidth += column.estimateByteWidth() + 8;
+        }
+        long rows = budgetBytes / rowWidth;
+        return (int) Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, rows));
+    }
+    
+    /**
+     * Hook: hoãn (hoặc bật lại) kiểm tra ràng buộc khóa ngoại trên connection khi nạp dữ liệu hàng loạt
+     * Mặc định không làm gì
+     */
+    default void setConstraintsDeferred(Connection connection, boolean deferred) throws Exception {
+    }
+    
+    /**
+     * Hook: đặt lại sequence của các cột tự tăng theo giá trị lớn nhất đang có trong bảng
+     * Gọi sau khi nạp dữ liệu kèm giá trị khóa tường minh (khôi phục backup)
+     * Mặc định không làm gì vì MySQL và SQLite tự nâng bộ đếm khi thêm khóa tường minh
+     */
+    default void resetSequences(Connection connection, String tableName) throws Exception {
+    }
+    
+    /**
+     * Hook: bắt đầu transaction đọc với snapshot nhất quán trên connection đã tắt auto-commit
+     * @return Id để connection khác đọc cùng snapshot qua joinSnapshot, null nếu database không hỗ trợ
+     *         (khi đó mọi lần đọc cần nhất quán phải chạy trên chính connection này)
+     */
+    default String beginSnapshot(Connection connection) throws Exception {
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        return null;
+    }
+    
+    /**
+     * Hook: cho connection đã tắt auto-commit đọc cùng snapshot đã mở bằng beginSnapshot
+     */
+    default void joinSnapshot(Connection connection, String snapshotId) throws Exception {
+        throw new UnsupportedOperationException("Database không hỗ trợ dùng chung snapshot giữa các connection");
+    }
+    
+    /**
+     * Hook: gọi sau khi transaction của DatabaseContext.inTransaction đã commit trên connection này
+     */
+    default void afterCommit(Connection connection) throws Exception {
+    }
+    
+    /**
+     * Hook: gọi sau khi transaction của DatabaseContext.inTransaction đã rollback trên connection này
+     */
+    default void afterRollback(Connection connection) throws Exception {
+    }
+    
+    /**
+     * Hook: driver có cần tắt auto-commit để stream kết quả hay không
+     */
+    default boolean streamingNeedsTransaction() {
+        return false;
+    }
+    
+    /**
+     * Lấy giá trị nhỏ nhất và lớn nhất của cột khóa
+     * @return Mảng [min, max], các phần tử null nếu bảng rỗng
+     */
+    default Object[] getKeyRange(Connection connection, String tableName, String keyColumn) throws Exception {
+        String key = quoteIdentifier(keyColumn);
+        String query = "SELECT MIN(" + key + "), MAX(" + key + ") FROM " + quoteIdentifier(tableName);
+        
+        try (Statement stmt = createStatement(connection);
+             ResultSet rs = stmt.executeQuery(query)) {
+            rs.next();
+            return new Object[]{rs.getObject(1), rs.getObject(2)};
+        }
+    }
+    
+    /**
+     * Lấy giá trị của cột khóa tại vị trí offset (theo thứ tự tăng dần)
+     * Dùng để lấy mẫu các điểm chia khi khóa không phải số nguyên
+     */
+    default Object getKeyAt(Connection connection, String tableName, String keyColumn, long offset) throws Exception {
+        String key = quoteIdentifier(keyColumn);
+        String query = "SELECT " + key + " FROM " + quoteIdentifier(tableName) + 
+            " ORDER BY " + key + " LIMIT 1 OFFSET " + offset;
+        
+        try (Statement stmt = createStatement(connection);
+             ResultSet rs = stmt.executeQuery(query)) {
+            return rs.next() ? rs.getObject(1) : null;
+        }
+    }
+    
+    /**
+     * Đếm số dòng của bảng
+     */
+    default long countRows(Connection connection, String tableName) throws Exception {
+        try (Statement stmt = createStatement(connection);
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + quoteIdentifier(tableName))) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+    
+    /**
+     * Ước lượng nhanh số dòng của bảng (từ thống kê của database, không quét bảng)
+     * Mặc định đếm chính xác bằng COUNT(*)
+     */
+    default long estimateRowCount(Connection connection, String tableName) throws Exception {
+        return countRows(connection, tableName);
+    }
+    
+    /**
+     * Lấy một trang dữ liệu, sắp xếp theo cột khóa để các trang không chồng nhau
+     * @param keyColumn Cột sắp xếp, null nếu bảng không có khóa (thứ tự không đảm bảo)
+     */
+    default List<Map<String, Object>> getPage(Connection connection, String tableName, String keyColumn,
+                                              long offset, int limit, String... columns) throws Exception {
+        String query = "SELECT " + buildSelectList(columns) + " FROM " + quoteIdentifier(tableName) +
+            (keyColumn != null ? " ORDER BY " + quoteIdentifier(keyColumn) : "") + " LIMIT ? OFFSET ?";
+        
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            pstmt.setInt(1, limit);
+            pstmt.setLong(2, offset);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return ResultSetMapper.toList(rs, tableName, keyColumn);
+            }
+        }
+    }
+    
+    /**
+     * Lấy một trang dữ liệu thỏa điều kiện lọc, sắp xếp theo criteria rồi theo cột khóa
+     * Lọc và sắp xếp chạy trên database (dùng index), chỉ một trang được trả về
+     */
+    default List<Map<String, Object>> getPage(Connection connection, String tableName, QueryCriteria criteria,
+                                              String keyColumn, long offset, int limit, String... columns) throws Exception {
+        List<Object> params = new ArrayList<>();
+        String query = "SELECT " + buildSelectList(columns) + " FROM " + quoteIdentifier(tableName) +
+            buildWhereClause(criteria, params) + buildOrderBy(criteria, keyColumn) + " LIMIT ? OFFSET ?";
+        
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            int index = 1;
+            for (Object param : params) {
+                pstmt.setObject(index++, param);
+            }
+            pstmt.setInt(index++, limit);
+            pstmt.setLong(index, offset);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return ResultSetMapper.toList(rs, tableName, keyColumn);
+            }
+        }
+    }
+    
+    /**
+     * Đếm số dòng thỏa điều kiện lọc
+     */
+    default long countRows(Connection connection, String tableName, QueryCriteria criteria) throws Exception {
+        List<Object> params = new ArrayList<>();
+        String query = "SELECT COUNT(*) FROM " + quoteIdentifier(tableName) + buildWhereClause(criteria, params);
+        
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+    
+    /**
+     * Tạo mệnh đề " WHERE ..." từ các điều kiện lọc, giá trị được thêm vào params theo thứ tự dấu ?
+     * @return Chuỗi rỗng nếu không có điều kiện
+     */
+    default String buildWhereClause(QueryCriteria criteria, List<Object> params) {
+        if (criteria == null || !criteria.hasFilters()) {
+            return "";
+        }
+        StringBuilder where = new StringBuilder();
+        for (QueryCriteria.Filter filter : criteria.getFilters()) {
+            where.append(where.length() == 0 ? " WHERE " : " AND ");
+            where.append(quoteIdentifier(filter.getColumn())).append(' ').append(filter.getOperator().getSql()).append(" ?");
+            
+            QueryCriteria.Operator operator = filter.getOperator();
+            if (operator == QueryCriteria.Operator.STARTS_WITH || operator == QueryCriteria.Operator.CONTAINS) {
+                // '!' làm ký tự escape vì MySQL coi dấu gạch chéo ngược trong chuỗi là escape
+                String pattern = String.valueOf(filter.getValue())
+                    .replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+                params.add(operator == QueryCriteria.Operator.CONTAINS ? "%" + pattern : pattern);
+                where.append(" ESCAPE '!'");
+            } else {
+                params.add(filter.getValue());
+            }
+        }
+        return where.toString();
+    }
+    
+    /**
+     * Tạo mệnh đề " ORDER BY ..." theo criteria, cột khóa được thêm cuối để thứ tự giữa các trang ổn định
+     */
+    default String buildOrderBy(QueryCriteria criteria, String keyColumn) {
+        StringBuilder orderBy = new StringBuilder();
+        boolean hasKey = false;
+        if (criteria != null) {
+            for (QueryCriteria.Sort sort : criteria.getSorts()) {
+                orderBy.append(orderBy.length() == 0 ? " ORDER BY " : ", ")
+                    .append(quoteIdentifier(sort.getColumn())).append(sort.isAscending() ? " ASC" : " DESC");
+                hasKey |= sort.getColumn().equalsIgnoreCase(keyColumn);
+            }
+        }
+        if (keyColumn != null && !hasKey) {
+            orderBy.append(orderBy.length() == 0 ? " ORDER BY " : ", ").append(quoteIdentifier(keyColumn));
+        }
+        return orderBy.toString();
+    }
+    
+    /**
+     * Stream nội dung một ô BLOB/CLOB ra channel mà không nạp toàn bộ vào heap
+     * CLOB được ghi ra dạng UTF-8
+     * @return Số byte (BLOB) hoặc ký tự (CLOB) đã ghi, -1 nếu không tìm thấy record
+     */
+    default long readLob(Connection connection, String tableName, String keyColumn, Object keyValue,
+                         String lobColumn, WritableByteChannel target) throws Exception {
+        String query = "SELECT " + quoteIdentifier(lobColumn) + " FROM " + quoteIdentifier(tableName) +
+            " WHERE " + quoteIdentifier(keyColumn) + " = ?";
+        
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            pstmt.setObject(1, keyValue);
+            pstmt.setFetchSize(1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return -1;
+                }
+                if (ResultSetMapper.isCharacter(rs.getMetaData(), 1)) {
+                    return LobStreams.copyCharacters(rs.getCharacterStream(1), target);
+                }
+                return LobStreams.copyBytes(rs.getBinaryStream(1), target);
+            }
+        }
+    }
+    
+    /**
+     * Ghi nội dung một ô BLOB từ InputStream (driver đọc stream theo từng phần)
+     * @param length Độ dài dữ liệu, -1 nếu không biết trước
+     */
+    default int writeLob(Connection connection, String tableName, String keyColumn, Object keyValue,
+                         String lobColumn, InputStream source, long length) throws Exception {
+        String query = "UPDATE " + quoteIdentifier(tableName) + " SET " + quoteIdentifier(lobColumn) + 
+            " = ? WHERE " + quoteIdentifier(keyColumn) + " = ?";
+        
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            if (length >= 0) {
+                pstmt.setBinaryStream(1, source, length);
+            } else {
+                pstmt.setBinaryStream(1, source);
+            }
+            pstmt.setObject(2, keyValue);
+            return pstmt.executeUpdate();
+        }
+    }
     
     /**
      * Thêm mới một record
      */
     int insert(Connection connection, String tableName, Map<String, Object> data) throws Exception;
     
+    /**
+     * Thêm nhiều dòng theo lô bằng một PreparedStatement, giá trị mỗi dòng theo thứ tự của columns
+     * Không tự quản lý transaction
+     * @return Số dòng đã thêm
+     */
+    default int insertBatch(Connection connection, String tableName, List<String> columns,
+                            List<Object[]> rows) throws Exception {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        StringBuilder columnList = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (String column : columns) {
+            if (columnList.length() > 0) {
+                columnList.append(", ");
+                values.append(", ");
+            }
+            columnList.append(quoteIdentifier(column));
+            values.append("?");
+        }
+        String query = "INSERT INTO " + quoteIdentifier(tableName) + " (" + columnList + ") VALUES (" + values + ")";
+        
+        int inserted = 0;
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            for (int r = 0; r < rows.size(); r++) {
+                Object[] row = rows.get(r);
+                for (int i = 0; i < columns.size(); i++) {
+                    pstmt.setObject(i + 1, row[i]);
+                }
+                pstmt.addBatch();
+                if ((r + 1) % INSERT_BATCH_SIZE == 0 || r == rows.size() - 1) {
+                    for (int count : pstmt.executeBatch()) {
+                        inserted += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+                    }
+                }
+            }
+        }
+        return inserted;
+    }
+    
+    /**
+     * Như insertBatch nhưng trả về khóa chính của từng dòng theo thứ tự của rows
+     * Mọi dòng đều có khóa thì lấy luôn, ngược lại đọc khóa tự sinh qua getGeneratedKeys sau mỗi lô
+     */
+    default List<Object> insertBatchAndGetKeys(Connection connection, String tableName, String keyColumn,
+                                               List<String> columns, List<Object[]> rows) throws Exception {
+        List<Object> keys = new ArrayList<>(rows.size());
+        int keyIndex = -1;
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(keyColumn)) {
+                keyIndex = i;
+            }
+        }
+        if (keyIndex >= 0) {
+            for (Object[] row : rows) {
+                keys.add(row[keyIndex]);
+            }
+            if (!keys.contains(null)) {
+                insertBatch(connection, tableName, columns, rows);
+                return keys;
+            }
+            keys.clear();
+        }
+        if (rows.isEmpty()) {
+            return keys;
+        }
+        
+        StringBuilder columnList = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (String column : columns) {
+            if (columnList.length() > 0) {
+                columnList.append(", ");
+                values.append(", ");
+            }
+            columnList.append(quoteIdentifier(column));
+            values.append("?");
+        }
+        String query = "INSERT INTO " + quoteIdentifier(tableName) + " (" + columnList + ") VALUES (" + values + ")";
+        
+        try (PreparedStatement pstmt = QueryControl.apply(
+                connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS))) {
+            for (int r = 0; r < rows.size(); r++) {
+                Object[] row = rows.get(r);
+                for (int i = 0; i < columns.size(); i++) {
+                    pstmt.setObject(i + 1, row[i]);
+                }
+                pstmt.addBatch();
+                if ((r + 1) % INSERT_BATCH_SIZE == 0 || r == rows.size() - 1) {
+                    pstmt.executeBatch();
+                    try (ResultSet generated = pstmt.getGeneratedKeys()) {
+                        // PostgreSQL trả về cả dòng vừa thêm, MySQL chỉ trả về một cột GENERATED_KEY
+                        int keyColumnIndex = 1;
+                        ResultSetMetaData metaData = generated.getMetaData();
+                        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                            if (metaData.getColumnLabel(i).equalsIgnoreCase(keyColumn)) {
+                                keyColumnIndex = i;
+                            }
+                        }
+                        while (generated.next()) {
+                            keys.add(generated.getObject(keyColumnIndex));
+                        }
+                    }
+                }
+            }
+        }
+        if (keys.size() != rows.size()) {
+            throw new SQLException("Driver không trả về khóa tự sinh cho từng dòng của batch");
+        }
+        return keys;
+    }
+    
+    /**
+     * Thêm mới một record và trả về giá trị khóa chính của record đó
+     * Khóa có trong data thì trả về luôn, ngược lại đọc khóa tự sinh qua getGeneratedKeys
+     * @return null nếu driver không trả về khóa tự sinh
+     */
+    default Object insertAndGetKey(Connection connection, String tableName, Map<String, Object> data,
+                                   String keyColumn) throws Exception {
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(keyColumn) && entry.getValue() != null) {
+                insert(connection, tableName, data);
+                return entry.getValue();
+            }
+        }
+        
+        StringBuilder columns = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            if (columns.length() > 0) {
+                columns.append(", ");
+                values.append(", ");
+            }
+            columns.append(quoteIdentifier(entry.getKey()));
+            values.append("?");
+            params.add(entry.getValue());
+        }
+        String query = "INSERT INTO " + quoteIdentifier(tableName) + " (" + columns + ") VALUES (" + values + ")";
+        
+        try (PreparedStatement pstmt = QueryControl.apply(
+                connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS))) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    return null;
+                }
+                // PostgreSQL trả về cả dòng vừa thêm, MySQL chỉ trả về một cột GENERATED_KEY
+                ResultSetMetaData metaData = keys.getMetaData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    if (metaData.getColumnLabel(i).equalsIgnoreCase(keyColumn)) {
+                        return keys.getObject(i);
+                    }
+                }
+                return keys.getObject(1);
+            }
+        }
+    }
+    
+    /**
+     * Cập nhật nhiều dòng theo lô, mỗi dòng chỉ được cập nhật nếu các cột bị sửa vẫn còn giá trị gốc
+     * Các dòng sửa cùng tập cột dùng chung một PreparedStatement. Không tự quản lý transaction.
+     * @return Khóa của các dòng bị xung đột (đã bị người khác sửa hoặc xóa)
+     */
+    default List<Object> updateBatch(Connection connection, String tableName, String keyColumn,
+                                     List<RowChange> changes) throws Exception {
+        Map<List<String>, List<RowChange>> groups = new LinkedHashMap<>();
+        for (RowChange change : changes) {
+            List<String> changedColumns = new ArrayList<>(change.getNewValues().keySet());
+            Collections.sort(changedColumns);
+            groups.computeIfAbsent(changedColumns, key -> new ArrayList<>()).add(change);
+        }
+        
+        List<Object> conflicts = new ArrayList<>();
+        for (Map.Entry<List<String>, List<RowChange>> group : groups.entrySet()) {
+            List<String> changedColumns = group.getKey();
+            StringBuilder setClause = new StringBuilder();
+            StringBuilder whereClause = new StringBuilder(quoteIdentifier(keyColumn)).append(" = ?");
+            for (String column : changedColumns) {
+                setClause.append(setClause.length() == 0 ? "" : ", ").append(quoteIdentifier(column)).append(" = ?");
+                whereClause.append(" AND ").append(quoteIdentifier(column)).append(' ')
+                    .append(nullSafeEquals()).append(" ?");
+            }
+            String query = "UPDATE " + quoteIdentifier(tableName) + " SET " + setClause + " WHERE " + whereClause;
+            
+            List<RowChange> rows = group.getValue();
+            try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+                for (RowChange change : rows) {
+                    int index = 1;
+                    for (String column : changedColumns) {
+                        pstmt.setObject(index++, change.getNewValues().get(column));
+                    }
+                    pstmt.setObject(index++, change.getKeyValue());
+                    for (String column : changedColumns) {
+                        pstmt.setObject(index++, change.getOriginalValues().get(column));
+                    }
+                    pstmt.addBatch();
+                }
+                int[] counts = pstmt.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    // SUCCESS_NO_INFO (driver gộp batch) không cho biết số dòng, coi như thành công
+                    if (counts[i] == 0) {
+                        conflicts.add(rows.get(i).getKeyValue());
+                    }
+                }
+            }
+        }
+        return conflicts;
+    }
+    
+    /**
+     * Hook: toán tử so sánh bằng coi NULL bằng NULL
+     * Mặc định theo chuẩn SQL (IS NOT DISTINCT FROM)
+     */
+    default String nullSafeEquals() {
+        return "IS NOT DISTINCT FROM";
+    }
+    
     /**
      * Cập nhật một record
      */
@@ -72,5 +784,86 @@ public interface DatabaseStrategy {
      * Lấy primary key của bảng
      */
     String getPrimaryKey(Connection connection, String tableName) throws Exception;
+    
+    /**
+     * Lấy các khóa ngoại của bảng (DatabaseMetaData.getImportedKeys)
+     */
+    default List<ForeignKeyInfo> getForeignKeys(Connection connection, String tableName) throws Exception {
+        List<ForeignKeyInfo> foreignKeys = new ArrayList<>();
+        try (ResultSet rs = connection.getMetaData().getImportedKeys(null, getSchemaName(), tableName)) {
+            while (rs.next()) {
+                foreignKeys.add(new ForeignKeyInfo(
+                    rs.getString("FKTABLE_NAME"),
+                    rs.getString("FKCOLUMN_NAME"),
+                    rs.getString("PKTABLE_NAME"),
+                    rs.getString("PKCOLUMN_NAME")
+                ));
+            }
+        }
+        return foreignKeys;
+    }
+    
+    /**
+     * Lấy toàn bộ schema (bảng, cột, khóa chính, khóa ngoại) dưới dạng snapshot
+     * Mặc định đọc lần lượt từng bảng, các strategy nên override để đọc cả database trong vài truy vấn
+     */
+    default SchemaSnapshot getSchemaSnapshot(Connection connection) throws Exception {
+        SchemaSnapshot.Builder builder = new SchemaSnapshot.Builder()
+            .checksum(getSchemaChecksum(connection));
+        for (String table : getTables(connection)) {
+            builder.addTable(table);
+            for (ColumnInfo column : getColumns(connection, table)) {
+                builder.addColumn(table, column.getName(), column.getType(), column.getSize(), 
+                    column.isNullable(), column.getDefaultValue());
+                if (column.isPrimaryKey()) {
+                    builder.addPrimaryKey(table, column.getName());
+                }
+            }
+            for (ForeignKeyInfo foreignKey : getForeignKeys(connection, table)) {
+                builder.addForeignKey(foreignKey);
+            }
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Checksum rẻ của schema hiện tại, dùng để kiểm tra snapshot đã cache còn đúng hay không
+     * Trả về null nếu database không hỗ trợ (khi đó snapshot luôn được đọc lại)
+     */
+    default String getSchemaChecksum(Connection connection) throws Exception {
+        return null;
+    }
+    
+    /**
+     * Hook: schema dùng khi đọc metadata, null nghĩa là không giới hạn
+     */
+    default String getSchemaName() {
+        return null;
+    }
+    
+    /**
+     * Bọc tên bảng/cột theo cú pháp của database
+     * Mặc định giữ nguyên tên
+     */
+    default String quoteIdentifier(String identifier) {
+        return identifier;
+    }
+    
+    /**
+     * Tạo danh sách cột cho mệnh đề SELECT, rỗng thì dùng *
+     */
+    default String buildSelectList(String... columns) {
+        if (columns == null || columns.length == 0) {
+            return "*";
+        }
+        StringBuilder selectList = new StringBuilder();
+        for (String column : columns) {
+            if (selectList.length() > 0) {
+                selectList.append(", ");
+            }
+            selectList.append(quoteIdentifier(column));
+        }
+        return selectList.toString();
+    }
 }
 
@@ -0,0 +1,34 @@
+package com.sep.framework.database;
+
+/**
+ * Thông tin về một khóa ngoại: cột của bảng hiện tại tham chiếu tới cột của bảng khác
+ */
+public class ForeignKeyInfo {
+    private final String tableName;
+    private final String columnName;
+    private final String referencedTable;
+    private final String referencedColumn;
+    
+    public ForeignKeyInfo(String tableName, String columnName, String referencedTable, String referencedColumn) {
+        this.tableName = tableName;
+        this.columnName = columnName;
+        this.referencedTable = referencedTable;
+        this.referencedColumn = referencedColumn;
+    }
+    
+    public String getTableName() {
+        return tableName;
+    }
+    
+    public String getColumnName() {
+        return columnName;
+    }
+    
+    public String getReferencedTable() {
+        return referencedTable;
+    }
+    
+    public String getReferencedColumn() {
+        return referencedColumn;
+    }
+}
@@ -0,0 +1,13 @@
+package com.sep.framework.database;
+
+/**
+ * Cách tải dữ liệu của bảng, được chọn theo số dòng ước lượng (DatabaseContext.chooseLoadMode)
+ */
+public enum LoadMode {
+    /** Bảng nhỏ: tải toàn bộ trong một truy vấn */
+    EAGER,
+    /** Bảng vừa: đọc toàn bộ bằng cursor forward-only, từng row được xử lý ngay khi tới */
+    STREAMING,
+    /** Bảng lớn: chỉ tải từng trang khi cần */
+    PAGED
+}
@@ -0,0 +1,50 @@
+package com.sep.framework.database;
+
+/**
+ * Handle nhẹ trỏ tới một ô BLOB/CLOB trong database
+ * Được trả về thay cho mảng byte khi tải row, nội dung chỉ được đọc khi cần
+ * thông qua DatabaseContext.readLob
+ */
+public class LobHandle {
+    private final String tableName;
+    private final String keyColumn;
+    private final Object keyValue;
+    private final String columnName;
+    private final boolean character;
+    
+    public LobHandle(String tableName, String keyColumn, Object keyValue, String columnName, boolean character) {
+        this.tableName = tableName;
+        this.keyColumn = keyColumn;
+        this.keyValue = keyValue;
+        this.columnName = columnName;
+        this.character = character;
+    }
+    
+    public String getTableName() {
+        return tableName;
+    }
+    
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+    
+    public Object getKeyValue() {
+        return keyValue;
+    }
+    
+    public String getColumnName() {
+        return columnName;
+    }
+    
+    /**
+     * true nếu là CLOB (dữ liệu ký tự), false nếu là BLOB
+     */
+    public boolean isCharacter() {
+        return character;
+    }
+    
+    @Override
+    public String toString() {
+        return character ? "<CLOB>" : "<BLOB>";
+    }
+}
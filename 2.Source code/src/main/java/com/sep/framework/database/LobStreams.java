@@ -0,0 +1,83 @@
+package com.sep.framework.database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tiện ích copy dữ liệu BLOB/CLOB theo từng block qua NIO channel
+ */
+final class LobStreams {
+    
+    private LobStreams() {
+    }
+    
+    /**
+     * Copy InputStream sang channel theo từng block, trả về số byte đã copy
+     */
+    static long copyBytes(InputStream in, WritableByteChannel target) throws IOException {
+        if (in == null) {
+            return 0;
+        }
+        long total = 0;
+        try (ReadableByteChannel source = Channels.newChannel(in)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    total += target.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Copy Reader sang channel (encode UTF-8), trả về số ký tự đã copy
+     */
+    static long copyCharacters(Reader in, WritableByteChannel target) throws IOException {
+        if (in == null) {
+            return 0;
+        }
+        long total = 0;
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        CharBuffer chars = CharBuffer.allocate(16 * 1024);
+        ByteBuffer bytes = ByteBuffer.allocate(64 * 1024);
+        try (Reader reader = in) {
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                int read = reader.read(chars);
+                endOfInput = read == -1;
+                if (read > 0) {
+                    total += read;
+                }
+                chars.flip();
+                CoderResult result;
+                do {
+                    result = encoder.encode(chars, bytes, endOfInput);
+                    bytes.flip();
+                    while (bytes.hasRemaining()) {
+                        target.write(bytes);
+                    }
+                    bytes.clear();
+                } while (result.isOverflow());
+                chars.compact();
+            }
+            encoder.flush(bytes);
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                target.write(bytes);
+            }
+        }
+        return total;
+    }
+}
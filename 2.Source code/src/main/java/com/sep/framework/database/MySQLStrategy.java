@@ -74,41 +74,17 @@ public class MySQLStrategy implements DatabaseStrategy {
     
     @Override
     public ResultSet executeQuery(Connection connection, String query) throws Exception {
-        Statement stmt = connection.createStatement();
+        Statement stmt = createStatement(connection);
         return stmt.executeQuery(query);
     }
     
     @Override
     public int executeUpdate(Connection connection, String query) throws Exception {
-        try (Statement stmt = connection.createStatement()) {
+        try (Statement stmt = createStatement(connection)) {
             return stmt.executeUpdate(query);
         }
     }
     
-    @Override
-    public List<Map<String, Object>> getAll(Connection connection, String tableName) throws Exception {
-        List<Map<String, Object>> results = new ArrayList<>();
-        String query = "SELECT * FROM " + tableName;
-        
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            
-            while (rs.next()) {
-                Map<String, Object> row = new LinkedHashMap<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnName(i);
-                    Object value = rs.getObject(i);
-                    row.put(columnName, value);
-                }
-                results.add(row);
-            }
-        }
-        return results;
-    }
-    
     @Override
     public int insert(Connection connection, String tableName, Map<String, Object> data) throws Exception {
         if (data.isEmpty()) {
@@ -132,7 +108,7 @@ public class MySQLStrategy implements DatabaseStrategy {
         String query = String.format("INSERT INTO %s (%s) VALUES (%s)", 
             tableName, columns.toString(), values.toString());
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
             for (int i = 0; i < params.size(); i++) {
                 pstmt.setObject(i + 1, params.get(i));
             }
@@ -160,7 +136,7 @@ public class MySQLStrategy implements DatabaseStrategy {
         String query = String.format("UPDATE %s SET %s WHERE %s", 
             tableName, setClause.toString(), whereClause);
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
             for (int i = 0; i < params.size(); i++) {
                 pstmt.setObject(i + 1, params.get(i));
             }
@@ -187,5 +163,121 @@ public class MySQLStrategy implements DatabaseStrategy {
         rs.close();
         return null;
     }
+    
+    @Override
+    public void setConstraintsDeferred(Connection connection, boolean deferred) throws Exception {
+        // MySQL không hỗ trợ deferred constraint, tắt kiểm tra khóa ngoại trong session
+        try (Statement stmt = createStatement(connection)) {
+            stmt.execute("SET FOREIGN_KEY_CHECKS = " + (deferred ? 0 : 1));
+        }
+    }
+    
+    @Override
+    public String beginSnapshot(Connection connection) throws Exception {
+        // Snapshot của InnoDB không chia sẻ được giữa các session
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        try (Statement stmt = createStatement(connection)) {
+            stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+        }
+        return null;
+    }
+    
+    @Override
+    public long estimateRowCount(Connection connection, String tableName) throws Exception {
+        // TABLE_ROWS là số ước lượng của InnoDB, không quét bảng
+        String query = "SELECT TABLE_ROWS FROM information_schema.TABLES " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            pstmt.setString(1, tableName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getObject(1) != null) {
+                    return rs.getLong(1);
+                }
+            }
+        }
+        return countRows(connection, tableName);
+    }
+    
+    @Override
+    public String nullSafeEquals() {
+        return "<=>";
+    }
+    
+    @Override
+    public String quoteIdentifier(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+    
+    @Override
+    public void prepareStreaming(Statement statement) throws Exception {
+        // Với useCursorFetch=true, Connector/J đọc theo lô bằng server-side cursor với fetch size > 0
+        int fetchSize = QueryControl.currentFetchSize();
+        if (fetchSize > 0 && usesCursorFetch(statement.getConnection())) {
+            statement.setFetchSize(fetchSize);
+            return;
+        }
+        // Ngược lại chỉ stream từng row khi fetch size = Integer.MIN_VALUE
+        statement.setFetchSize(Integer.MIN_VALUE);
+    }
+    
+    private static boolean usesCursorFetch(Connection connection) throws Exception {
+        String url = connection.getMetaData().getURL();
+        return url != null && url.toLowerCase().contains("usecursorfetch=true");
+    }
+    
+    @Override
+    public SchemaSnapshot getSchemaSnapshot(Connection connection) throws Exception {
+        SchemaSnapshot.Builder builder = new SchemaSnapshot.Builder()
+            .checksum(getSchemaChecksum(connection));
+        DatabaseMetaData metaData = connection.getMetaData();
+        String catalog = connection.getCatalog();
+        
+        try (ResultSet rs = metaData.getTables(catalog, null, null, new String[]{"TABLE"})) {
+            while (rs.next()) {
+                builder.addTable(rs.getString("TABLE_NAME"));
+            }
+        }
+        
+        // Một lần đọc cho cột của tất cả các bảng
+        try (ResultSet rs = metaData.getColumns(catalog, null, null, null)) {
+            builder.addColumns(rs);
+        }
+        
+        // Khóa chính và khóa ngoại của cả database trong một truy vấn
+        String keyQuery = "SELECT TABLE_NAME, COLUMN_NAME, CONSTRAINT_NAME, REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME " +
+            "FROM information_schema.KEY_COLUMN_USAGE WHERE TABLE_SCHEMA = DATABASE() " +
+            "ORDER BY TABLE_NAME, CONSTRAINT_NAME, ORDINAL_POSITION";
+        try (Statement stmt = createStatement(connection);
+             ResultSet rs = stmt.executeQuery(keyQuery)) {
+            while (rs.next()) {
+                String table = rs.getString("TABLE_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if ("PRIMARY".equals(rs.getString("CONSTRAINT_NAME"))) {
+                    builder.addPrimaryKey(table, column);
+                } else if (rs.getString("REFERENCED_TABLE_NAME") != null) {
+                    builder.addForeignKey(new ForeignKeyInfo(table, column, 
+                        rs.getString("REFERENCED_TABLE_NAME"), rs.getString("REFERENCED_COLUMN_NAME")));
+                }
+            }
+        }
+        return builder.build();
+    }
+    
+    @Override
+    public String getSchemaChecksum(Connection connection) throws Exception {
+        // Tổng CRC32 của định nghĩa cột và khóa, đủ để phát hiện thay đổi DDL
+        String query = "SELECT " +
+            "(SELECT CONCAT(COUNT(*), ':', COALESCE(SUM(CRC32(CONCAT_WS('|', TABLE_NAME, COLUMN_NAME, COLUMN_TYPE, " +
+            "IS_NULLABLE, COLUMN_KEY, IFNULL(COLUMN_DEFAULT, '')))), 0)) " +
+            "FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE()), " +
+            "(SELECT CONCAT(COUNT(*), ':', COALESCE(SUM(CRC32(CONCAT_WS('|', TABLE_NAME, COLUMN_NAME, CONSTRAINT_NAME, " +
+            "IFNULL(REFERENCED_TABLE_NAME, ''), IFNULL(REFERENCED_COLUMN_NAME, '')))), 0)) " +
+            "FROM information_schema.KEY_COLUMN_USAGE WHERE TABLE_SCHEMA = DATABASE())";
+        try (Statement stmt = createStatement(connection);
+             ResultSet rs = stmt.executeQuery(query)) {
+            rs.next();
+            return rs.getString(1) + "/" + rs.getString(2);
+        }
+    }
 }
 
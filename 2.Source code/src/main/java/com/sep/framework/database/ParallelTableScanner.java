@@ -0,0 +1,201 @@
+package com.sep.framework.database;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Quét toàn bộ bảng song song bằng cách chia bảng theo khoảng khóa chính
+ * Mỗi khoảng được đọc trên một connection riêng từ ConnectionPool
+ * 
+ * Khóa số nguyên: chia đều theo MIN/MAX
+ * Khóa kiểu khác: lấy mẫu các điểm chia theo thứ tự khóa (LIMIT/OFFSET)
+ */
+public class ParallelTableScanner {
+    
+    private final DatabaseStrategy strategy;
+    private final ConnectionPool pool;
+    
+    public ParallelTableScanner(DatabaseStrategy strategy, ConnectionPool pool) {
+        this.strategy = strategy;
+        this.pool = pool;
+    }
+    
+    /**
+     * Quét song song và trả về kết quả đã ghép theo thứ tự khóa chính
+     */
+    public List<Map<String, Object>> scan(String tableName, int partitions, String... columns) throws Exception {
+        List<List<Map<String, Object>>> parts = new ArrayList<>();
+        List<Object[]> ranges = computeRanges(tableName, partitions);
+        for (int i = 0; i < ranges.size(); i++) {
+            parts.add(new ArrayList<>());
+        }
+        
+        runRanges(tableName, ranges, index -> parts.get(index)::add, columns);
+        
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (List<Map<String, Object>> part : parts) {
+            results.addAll(part);
+        }
+        return results;
+    }
+    
+    /**
+     * Quét song song và đẩy từng row vào handler ngay khi đọc được
+     * Handler được gọi đồng thời từ nhiều luồng nên phải thread-safe
+     */
+    public void scan(String tableName, int partitions, RowHandler handler, String... columns) throws Exception {
+        runRanges(tableName, computeRanges(tableName, partitions), index -> handler, columns);
+    }
+    
+    /**
+     * Chia bảng thành các khoảng [lower, upper) theo khóa chính
+     */
+    List<Object[]> computeRanges(String tableName, int partitions) throws Exception {
+        List<Object[]> ranges = new ArrayList<>();
+        Connection connection = pool.borrow();
+        try {
+            String keyColumn = strategy.getPrimaryKey(connection, tableName);
+            List<Object> boundaries = keyColumn == null || partitions <= 1
+                ? new ArrayList<>()
+                : computeBoundaries(connection, tableName, keyColumn, partitions);
+            
+            Object lower = null;
+            for (Object boundary : boundaries) {
+                ranges.add(new Object[]{keyColumn, lower, boundary});
+                lower = boundary;
+            }
+            ranges.add(new Object[]{keyColumn, lower, null});
+        } finally {
+            pool.release(connection);
+        }
+        return ranges;
+    }
+    
+    private List<Object> computeBoundaries(Connection connection, String tableName, String keyColumn, 
+                                           int partitions) throws Exception {
+        List<Object> boundaries = new ArrayList<>();
+        Object[] minMax = strategy.getKeyRange(connection, tableName, keyColumn);
+        if (minMax[0] == null) {
+            return boundaries;
+        }
+        
+        if (isIntegral(minMax[0]) && isIntegral(minMax[1])) {
+            BigInteger min = new BigInteger(minMax[0].toString());
+            BigInteger max = new BigInteger(minMax[1].toString());
+            BigInteger span = max.subtract(min).add(BigInteger.ONE);
+            BigInteger step = span.add(BigInteger.valueOf(partitions - 1)).divide(BigInteger.valueOf(partitions));
+            for (int i = 1; i < partitions; i++) {
+                BigInteger boundary = min.add(step.multiply(BigInteger.valueOf(i)));
+                if (boundary.compareTo(max) > 0) {
+                    break;
+                }
+                boundaries.add(boundary.bitLength() < 64 ? (Object) boundary.longValue() : boundary);
+            }
+        } else {
+            long rowCount = strategy.countRows(connection, tableName);
+            Object previous = null;
+            for (int i = 1; i < partitions; i++) {
+                Object boundary = strategy.getKeyAt(connection, tableName, keyColumn, rowCount * i / partitions);
+                if (boundary != null && !boundary.equals(previous)) {
+                    boundaries.add(boundary);
+                    previous = boundary;
+                }
+            }
+        }
+        return boundaries;
+    }
+    
+    private void runRanges(String tableName, List<Object[]> ranges, HandlerSelector handlers, 
+                           String... columns) throws Exception {
+        int threads = Math.min(ranges.size(), pool.getMaxSize());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sep-parallel-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        // Token riêng của lượt quét (con của token thread gọi): một khoảng lỗi thì hủy các khoảng còn lại,
+        // các khoảng đó thôi gọi handler và statement đang chạy bị hủy
+        CancellationToken outerToken = QueryControl.currentCancellationToken();
+        CancellationToken scanToken = outerToken != null ? outerToken.newChild() : new CancellationToken();
+        AtomicReference<Exception> firstFailure = new AtomicReference<>();
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < ranges.size(); i++) {
+                Object[] range = ranges.get(i);
+                RowHandler rangeHandler = handlers.forRange(i);
+                RowHandler handler = row -> {
+                    scanToken.throwIfCancelled();
+                    rangeHandler.handle(row);
+                };
+                // Các thread đọc dùng chung timeout của thread gọi
+                futures.add(executor.submit(QueryControl.propagate(() -> QueryControl.withCancellation(scanToken, () -> {
+                    try {
+                        Connection connection = pool.borrow();
+                        try {
+                            if (range[0] == null) {
+                                // Bảng không có khóa chính: đọc tuần tự trên một connection
+                                for (Map<String, Object> row : strategy.getAll(connection, tableName, columns)) {
+                                    handler.handle(row);
+                                }
+                            } else {
+                                strategy.streamRange(connection, tableName, (String) range[0], 
+                                    range[1], range[2], handler, columns);
+                            }
+                        } finally {
+                            pool.release(connection);
+                        }
+                    } catch (Throwable e) {
+                        if (e instanceof Exception) {
+                            firstFailure.compareAndSet(null, (Exception) e);
+                        }
+                        scanToken.cancel();
+                        throw e;
+                    }
+                    return null;
+                }))));
+            }
+            
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    scanToken.cancel();
+                    futures.forEach(f -> f.cancel(true));
+                    // Báo lỗi gốc, không phải CancellationException của các khoảng bị hủy theo
+                    Exception failure = firstFailure.get();
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        } finally {
+            scanToken.cancel();
+            if (outerToken != null) {
+                outerToken.removeChild(scanToken);
+            }
+            executor.shutdownNow();
+        }
+    }
+    
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short 
+            || value instanceof Byte || value instanceof BigInteger;
+    }
+    
+    /**
+     * Chọn handler cho từng khoảng (ghép theo thứ tự hoặc dùng chung một consumer)
+     */
+    private interface HandlerSelector {
+        RowHandler forRange(int index);
+    }
+}
@@ -74,41 +74,17 @@ public class PostgreSQLStrategy implements DatabaseStrategy {
     
     @Override
     public ResultSet executeQuery(Connection connection, String query) throws Exception {
-        Statement stmt = connection.createStatement();
+        Statement stmt = createStatement(connection);
         return stmt.executeQuery(query);
     }
     
     @Override
     public int executeUpdate(Connection connection, String query) throws Exception {
-        try (Statement stmt = connection.createStatement()) {
+        try (Statement stmt = createStatement(connection)) {
             return stmt.executeUpdate(query);
         }
     }
     
-    @Override
-    public List<Map<String, Object>> getAll(Connection connection, String tableName) throws Exception {
-        List<Map<String, Object>> results = new ArrayList<>();
-        String query = "SELECT * FROM \"" + tableName + "\"";
-        
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            
-            while (rs.next()) {
-                Map<String, Object> row = new LinkedHashMap<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnName(i);
-                    Object value = rs.getObject(i);
-                    row.put(columnName, value);
-                }
-                results.add(row);
-            }
-        }
-        return results;
-    }
-    
     @Override
     public int insert(Connection connection, String tableName, Map<String, Object> data) throws Exception {
         if (data.isEmpty()) {
@@ -132,7 +108,7 @@ public class PostgreSQLStrategy implements DatabaseStrategy {
         String query = String.format("INSERT INTO \"%s\" (%s) VALUES (%s)", 
             tableName, columns.toString(), values.toString());
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
             for (int i = 0; i < params.size(); i++) {
                 pstmt.setObject(i + 1, params.get(i));
             }
@@ -160,7 +136,7 @@ public class PostgreSQLStrategy implements DatabaseStrategy {
         String query = String.format("UPDATE \"%s\" SET %s WHERE %s", 
             tableName, setClause.toString(), whereClause);
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
             for (int i = 0; i < params.size(); i++) {
                 pstmt.setObject(i + 1, params.get(i));
             }
@@ -187,5 +163,150 @@ public class PostgreSQLStrategy implements DatabaseStrategy {
         rs.close();
         return null;
     }
+    
+    @Override
+    public void setConstraintsDeferred(Connection connection, boolean deferred) throws Exception {
+        // Chỉ có tác dụng với constraint khai báo DEFERRABLE; IMMEDIATE kiểm tra ngay các ràng buộc đang hoãn
+        try (Statement stmt = createStatement(connection)) {
+            stmt.execute("SET CONSTRAINTS ALL " + (deferred ? "DEFERRED" : "IMMEDIATE"));
+        }
+    }
+    
+    /**
+     * Khóa nạp tường minh không đi qua nextval nên sequence phải được nâng theo MAX của cột
+     */
+    @Override
+    public void resetSequences(Connection connection, String tableName) throws Exception {
+        String qualifiedName = quoteIdentifier(getSchemaName()) + "." + quoteIdentifier(tableName);
+        List<String> columns = new ArrayList<>();
+        String query = "SELECT column_name FROM information_schema.columns " +
+            "WHERE table_schema = ? AND table_name = ? AND pg_get_serial_sequence(?, column_name) IS NOT NULL";
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            pstmt.setString(1, getSchemaName());
+            pstmt.setString(2, tableName);
+            pstmt.setString(3, qualifiedName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(rs.getString(1));
+                }
+            }
+        }
+        
+        for (String column : columns) {
+            String setval = "SELECT setval(pg_get_serial_sequence(?, ?), COALESCE(MAX(" + quoteIdentifier(column) +
+                "), 0) + 1, false) FROM " + qualifiedName;
+            try (PreparedStatement pstmt = prepareStatement(connection, setval)) {
+                pstmt.setString(1, qualifiedName);
+                pstmt.setString(2, column);
+                pstmt.executeQuery().close();
+            }
+        }
+    }
+    
+    /**
+     * Snapshot được export để các connection khác của backup song song đọc cùng một thời điểm
+     */
+    @Override
+    public String beginSnapshot(Connection connection) throws Exception {
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        try (Statement stmt = createStatement(connection);
+             ResultSet rs = stmt.executeQuery("SELECT pg_export_snapshot()")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+    
+    @Override
+    public void joinSnapshot(Connection connection, String snapshotId) throws Exception {
+        // SET TRANSACTION SNAPSHOT phải là câu lệnh đầu tiên của transaction
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        try (Statement stmt = createStatement(connection)) {
+            stmt.execute("SET TRANSACTION SNAPSHOT '" + snapshotId.replace("'", "''") + "'");
+        }
+    }
+    
+    @Override
+    public long estimateRowCount(Connection connection, String tableName) throws Exception {
+        // reltuples do ANALYZE/autovacuum cập nhật, âm hoặc 0 nếu bảng chưa được thống kê
+        String query = "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)";
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            pstmt.setString(1, quoteIdentifier(getSchemaName()) + "." + quoteIdentifier(tableName));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getLong(1) > 0) {
+                    return rs.getLong(1);
+                }
+            }
+        }
+        return countRows(connection, tableName);
+    }
+    
+    @Override
+    public String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+    
+    @Override
+    public boolean streamingNeedsTransaction() {
+        // PostgreSQL JDBC chỉ dùng cursor (fetch size) khi auto-commit tắt
+        return true;
+    }
+    
+    @Override
+    public String getSchemaName() {
+        return "public";
+    }
+    
+    @Override
+    public SchemaSnapshot getSchemaSnapshot(Connection connection) throws Exception {
+        SchemaSnapshot.Builder builder = new SchemaSnapshot.Builder()
+            .checksum(getSchemaChecksum(connection));
+        DatabaseMetaData metaData = connection.getMetaData();
+        
+        try (ResultSet rs = metaData.getTables(null, "public", null, new String[]{"TABLE"})) {
+            while (rs.next()) {
+                builder.addTable(rs.getString("TABLE_NAME"));
+            }
+        }
+        
+        // PostgreSQL JDBC cho phép table = null để đọc metadata của cả schema
+        try (ResultSet rs = metaData.getColumns(null, "public", null, null)) {
+            builder.addColumns(rs);
+        }
+        
+        try (ResultSet rs = metaData.getPrimaryKeys(null, "public", null)) {
+            while (rs.next()) {
+                builder.addPrimaryKey(rs.getString("TABLE_NAME"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        
+        try (ResultSet rs = metaData.getImportedKeys(null, "public", null)) {
+            while (rs.next()) {
+                builder.addForeignKey(new ForeignKeyInfo(
+                    rs.getString("FKTABLE_NAME"),
+                    rs.getString("FKCOLUMN_NAME"),
+                    rs.getString("PKTABLE_NAME"),
+                    rs.getString("PKCOLUMN_NAME")
+                ));
+            }
+        }
+        return builder.build();
+    }
+    
+    @Override
+    public String getSchemaChecksum(Connection connection) throws Exception {
+        // md5 của định nghĩa cột và constraint trong schema public
+        String query = "SELECT " +
+            "(SELECT md5(COALESCE(string_agg(table_name || '.' || column_name || ':' || data_type || ':' || " +
+            "is_nullable || ':' || COALESCE(column_default, ''), ',' ORDER BY table_name, ordinal_position), '')) " +
+            "FROM information_schema.columns WHERE table_schema = 'public'), " +
+            "(SELECT md5(COALESCE(string_agg(conrelid::regclass::text || ':' || conname || ':' || contype, ',' " +
+            "ORDER BY conrelid::regclass::text, conname), '')) " +
+            "FROM pg_constraint WHERE connamespace = 'public'::regnamespace)";
+        try (Statement stmt = createStatement(connection);
+             ResultSet rs = stmt.executeQuery(query)) {
+            rs.next();
+            return rs.getString(1) + "/" + rs.getString(2);
+        }
+    }
 }
 
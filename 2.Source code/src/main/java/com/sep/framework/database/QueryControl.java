@@ -0,0 +1,158 @@
+package com.sep.framework.database;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+
+/**
+ * Phạm vi điều khiển truy vấn gắn với thread hiện tại: timeout, token hủy và fetch size gợi ý
+ * Mọi statement do DatabaseStrategy tạo ra đều đi qua apply() nên không cần truyền tham số qua từng hàm
+ * Timeout mặc định thuộc về từng DatabaseContext, context đưa nó vào phạm vi khi chạy truy vấn
+ */
+public final class QueryControl {
+    /** Không đặt timeout trong phạm vi, dùng timeout của phạm vi ngoài hoặc mặc định */
+    private static final int INHERIT = -1;
+    
+    private static final ThreadLocal<QueryControl> CURRENT = new ThreadLocal<>();
+    
+    private final int timeoutSeconds;
+    private final int defaultTimeoutSeconds;
+    private final CancellationToken cancellationToken;
+    private final int fetchSize;
+    
+    private QueryControl(int timeoutSeconds, int defaultTimeoutSeconds, CancellationToken cancellationToken, int fetchSize) {
+        this.timeoutSeconds = timeoutSeconds;
+        this.defaultTimeoutSeconds = defaultTimeoutSeconds;
+        this.cancellationToken = cancellationToken;
+        this.fetchSize = fetchSize;
+    }
+    
+    /**
+     * Fetch size gợi ý của phạm vi hiện tại, 0 nếu không có (dùng mặc định của driver)
+     */
+    public static int currentFetchSize() {
+        QueryControl scope = CURRENT.get();
+        return scope != null ? scope.fetchSize : 0;
+    }
+    
+    /**
+     * Timeout (giây) áp dụng cho statement tạo trong phạm vi hiện tại, 0 là không giới hạn
+     */
+    static int currentTimeout() {
+        QueryControl scope = CURRENT.get();
+        return scope == null ? 0 : scope.timeoutSeconds != INHERIT ? scope.timeoutSeconds : scope.defaultTimeoutSeconds;
+    }
+    
+    /**
+     * Token hủy của phạm vi hiện tại, null nếu không có
+     */
+    static CancellationToken currentCancellationToken() {
+        QueryControl scope = CURRENT.get();
+        return scope != null ? scope.cancellationToken : null;
+    }
+    
+    /**
+     * Chạy action với timeout riêng (giây, 0 là không giới hạn), token hủy kế thừa từ phạm vi ngoài
+     */
+    public static <T> T withTimeout(int timeoutSeconds, Callable<T> action) throws Exception {
+        QueryControl outer = CURRENT.get();
+        int defaultTimeout = outer != null ? outer.defaultTimeoutSeconds : 0;
+        CancellationToken token = outer != null ? outer.cancellationToken : null;
+        int fetchSize = outer != null ? outer.fetchSize : 0;
+        return run(new QueryControl(Math.max(0, timeoutSeconds), defaultTimeout, token, fetchSize), action);
+    }
+    
+    /**
+     * Chạy action với timeout mặc định của một DatabaseContext (giây, 0 là không giới hạn)
+     * Chỉ dùng khi phạm vi ngoài không đặt timeout riêng qua withTimeout
+     */
+    static <T> T withDefaultTimeout(int defaultTimeoutSeconds, Callable<T> action) throws Exception {
+        QueryControl outer = CURRENT.get();
+        int timeout = outer != null ? outer.timeoutSeconds : INHERIT;
+        CancellationToken token = outer != null ? outer.cancellationToken : null;
+        int fetchSize = outer != null ? outer.fetchSize : 0;
+        return run(new QueryControl(timeout, Math.max(0, defaultTimeoutSeconds), token, fetchSize), action);
+    }
+    
+    /**
+     * Chạy action với token hủy, timeout kế thừa từ phạm vi ngoài
+     */
+    public static <T> T withCancellation(CancellationToken token, Callable<T> action) throws Exception {
+        QueryControl outer = CURRENT.get();
+        int timeout = outer != null ? outer.timeoutSeconds : INHERIT;
+        int defaultTimeout = outer != null ? outer.defaultTimeoutSeconds : 0;
+        int fetchSize = outer != null ? outer.fetchSize : 0;
+        return run(new QueryControl(timeout, defaultTimeout, token, fetchSize), action);
+    }
+    
+    /**
+     * Chạy action với fetch size gợi ý cho các statement được tạo bên trong
+     */
+    public static <T> T withFetchSize(int fetchSize, Callable<T> action) throws Exception {
+        QueryControl outer = CURRENT.get();
+        int timeout = outer != null ? outer.timeoutSeconds : INHERIT;
+        int defaultTimeout = outer != null ? outer.defaultTimeoutSeconds : 0;
+        CancellationToken token = outer != null ? outer.cancellationToken : null;
+        return run(new QueryControl(timeout, defaultTimeout, token, Math.max(0, fetchSize)), action);
+    }
+    
+    /**
+     * Bọc action để chạy ở thread khác với cùng phạm vi của thread hiện tại
+     */
+    public static <T> Callable<T> propagate(Callable<T> action) {
+        QueryControl captured = CURRENT.get();
+        return () -> run(captured, action);
+    }
+    
+    /**
+     * Áp dụng timeout, fetch size và đăng ký token hủy cho statement sắp thực thi
+     * Statement bị đóng nếu phạm vi đã bị hủy
+     */
+    public static <T extends Statement> T apply(T statement) throws SQLException {
+        QueryControl scope = CURRENT.get();
+        int timeout = currentTimeout();
+        try {
+            if (timeout > 0) {
+                statement.setQueryTimeout(timeout);
+            }
+            if (scope != null && scope.fetchSize > 0) {
+                statement.setFetchSize(scope.fetchSize);
+            }
+            if (scope != null && scope.cancellationToken != null) {
+                scope.cancellationToken.register(statement);
+            }
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+    
+    /**
+     * Điểm kiểm tra cho các vòng lặp dài (đọc từng row): ném CancellationException nếu đã bị hủy
+     */
+    public static void checkCancelled() {
+        QueryControl scope = CURRENT.get();
+        if (scope != null && scope.cancellationToken != null) {
+            scope.cancellationToken.throwIfCancelled();
+        }
+    }
+    
+    private static <T> T run(QueryControl scope, Callable<T> action) throws Exception {
+        QueryControl previous = CURRENT.get();
+        if (scope == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(scope);
+        }
+        try {
+            return action.call();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
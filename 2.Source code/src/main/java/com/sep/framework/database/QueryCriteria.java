@@ -0,0 +1,141 @@
+package com.sep.framework.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Điều kiện lọc và sắp xếp của một truy vấn trên bảng
+ * Được strategy chuyển thành mệnh đề WHERE/ORDER BY dạng parameterized (buildWhereClause, buildOrderBy)
+ *
+ * Ví dụ:
+ *   QueryCriteria criteria = new QueryCriteria()
+ *       .where("name", QueryCriteria.Operator.STARTS_WITH, "Ng")
+ *       .orderBy("created_at", false);
+ */
+public class QueryCriteria {
+    
+    public enum Operator {
+        EQUALS("="),
+        NOT_EQUALS("<>"),
+        GREATER(">"),
+        GREATER_OR_EQUAL(">="),
+        LESS("<"),
+        LESS_OR_EQUAL("<="),
+        /** LIKE 'value%', dùng được index của cột */
+        STARTS_WITH("LIKE"),
+        /** LIKE '%value%', phải quét bảng */
+        CONTAINS("LIKE");
+        
+        private final String sql;
+        
+        Operator(String sql) {
+            this.sql = sql;
+        }
+        
+        public String getSql() {
+            return sql;
+        }
+    }
+    
+    /**
+     * Một điều kiện "cột toán tử giá trị"
+     */
+    public static class Filter {
+        private final String column;
+        private final Operator operator;
+        private final Object value;
+        
+        public Filter(String column, Operator operator, Object value) {
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+        }
+        
+        public String getColumn() {
+            return column;
+        }
+        
+        public Operator getOperator() {
+            return operator;
+        }
+        
+        public Object getValue() {
+            return value;
+        }
+    }
+    
+    /**
+     * Sắp xếp theo một cột
+     */
+    public static class Sort {
+        private final String column;
+        private final boolean ascending;
+        
+        public Sort(String column, boolean ascending) {
+            this.column = column;
+            this.ascending = ascending;
+        }
+        
+        public String getColumn() {
+            return column;
+        }
+        
+        public boolean isAscending() {
+            return ascending;
+        }
+    }
+    
+    private final List<Filter> filters = new ArrayList<>();
+    private final List<Sort> sorts = new ArrayList<>();
+    
+    /**
+     * Thêm điều kiện lọc (các điều kiện được nối bằng AND)
+     */
+    public QueryCriteria where(String column, Operator operator, Object value) {
+        filters.add(new Filter(column, operator, value));
+        return this;
+    }
+    
+    /**
+     * Thêm cột sắp xếp, cột thêm trước được ưu tiên
+     */
+    public QueryCriteria orderBy(String column, boolean ascending) {
+        sorts.add(new Sort(column, ascending));
+        return this;
+    }
+    
+    public void clearFilters() {
+        filters.clear();
+    }
+    
+    public void clearSorts() {
+        sorts.clear();
+    }
+    
+    public List<Filter> getFilters() {
+        return Collections.unmodifiableList(filters);
+    }
+    
+    public List<Sort> getSorts() {
+        return Collections.unmodifiableList(sorts);
+    }
+    
+    public boolean hasFilters() {
+        return !filters.isEmpty();
+    }
+    
+    public boolean isEmpty() {
+        return filters.isEmpty() && sorts.isEmpty();
+    }
+    
+    /**
+     * Bản sao độc lập, dùng khi truyền điều kiện sang luồng khác
+     */
+    public QueryCriteria copy() {
+        QueryCriteria copy = new QueryCriteria();
+        copy.filters.addAll(filters);
+        copy.sorts.addAll(sorts);
+        return copy;
+    }
+}
@@ -0,0 +1,412 @@
+package com.sep.framework.database;
+
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Strategy đọc từ bản sao SQLite local, ghi vào database chính
+ * Bảng đã được ReplicaSyncEngine đồng bộ thì đọc thẳng từ bản sao (nhanh, dùng được khi mất mạng),
+ * các bảng khác, metadata và câu lệnh tùy ý chạy trên database chính.
+ * Lệnh ghi được gửi tới database chính, áp dụng thử lên bản sao để đọc lại thấy ngay,
+ * sau đó yêu cầu đồng bộ để bản sao nhận đúng dữ liệu của database chính (khóa tự tăng, version...).
+ *
+ * Ví dụ: xem ReplicaSyncEngine
+ */
+public class ReplicaReadStrategy implements DatabaseStrategy {
+    private final ReplicaSyncEngine engine;
+    private final DatabaseContext primary;
+    private final DatabaseContext replica;
+    // Lệnh ghi lên bản sao chờ transaction trên database chính commit, theo connection
+    private final Map<Connection, List<Runnable>> pendingWrites = new ConcurrentHashMap<>();
+    
+    public ReplicaReadStrategy(ReplicaSyncEngine engine) {
+        this.engine = engine;
+        this.primary = engine.getPrimary();
+        this.replica = engine.getReplica();
+    }
+    
+    public ReplicaSyncEngine getEngine() {
+        return engine;
+    }
+    
+    @Override
+    public Connection connect(String connectionString) throws Exception {
+        // Connection chính của context ngoài trỏ tới database chính (metadata, lệnh ghi)
+        return primary.openConnection();
+    }
+    
+    @Override
+    public void disconnect(Connection connection) throws Exception {
+        primary.getStrategy().disconnect(connection);
+    }
+    
+    @Override
+    public List<String> getTables(Connection connection) throws Exception {
+        return primary.getStrategy().getTables(connection);
+    }
+    
+    @Override
+    public List<ColumnInfo> getColumns(Connection connection, String tableName) throws Exception {
+        return primary.getStrategy().getColumns(connection, tableName);
+    }
+    
+    @Override
+    public String getPrimaryKey(Connection connection, String tableName) throws Exception {
+        return primary.getStrategy().getPrimaryKey(connection, tableName);
+    }
+    
+    @Override
+    public List<ForeignKeyInfo> getForeignKeys(Connection connection, String tableName) throws Exception {
+        return primary.getStrategy().getForeignKeys(connection, tableName);
+    }
+    
+    @Override
+    public SchemaSnapshot getSchemaSnapshot(Connection connection) throws Exception {
+        return primary.getStrategy().getSchemaSnapshot(connection);
+    }
+    
+    @Override
+    public String getSchemaChecksum(Connection connection) throws Exception {
+        return primary.getStrategy().getSchemaChecksum(connection);
+    }
+    
+    @Override
+    public String getSchemaName() {
+        return primary.getStrategy().getSchemaName();
+    }
+    
+    @Override
+    public String quoteIdentifier(String identifier) {
+        return primary.getStrategy().quoteIdentifier(identifier);
+    }
+    
+    @Override
+    public void setConstraintsDeferred(Connection connection, boolean deferred) throws Exception {
+        primary.getStrategy().setConstraintsDeferred(connection, deferred);
+    }
+    
+    @Override
+    public void resetSequences(Connection connection, String tableName) throws Exception {
+        primary.getStrategy().resetSequences(connection, tableName);
+    }
+    
+    @Override
+    public String beginSnapshot(Connection connection) throws Exception {
+        return primary.getStrategy().beginSnapshot(connection);
+    }
+    
+    @Override
+    public void joinSnapshot(Connection connection, String snapshotId) throws Exception {
+        primary.getStrategy().joinSnapshot(connection, snapshotId);
+    }
+    
+    @Override
+    public ResultSet executeQuery(Connection connection, String query) throws Exception {
+        return primary.getStrategy().executeQuery(connection, query);
+    }
+    
+    @Override
+    public int executeUpdate(Connection connection, String query) throws Exception {
+        return primary.getStrategy().executeUpdate(connection, query);
+    }
+    
+    @Override
+    public List<Map<String, Object>> getAll(Connection connection, String tableName, String... columns) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            return onReplica((strategy, replicaConnection) -> strategy.getAll(replicaConnection, tableName, columns));
+        }
+        return primary.getStrategy().getAll(connection, tableName, columns);
+    }
+    
+    @Override
+    public Map<String, Object> getById(Connection connection, String tableName, String keyColumn,
+                                       Object keyValue, String... columns) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            return onReplica((strategy, replicaConnection) ->
+                strategy.getById(replicaConnection, tableName, keyColumn, keyValue, columns));
+        }
+        return primary.getStrategy().getById(connection, tableName, keyColumn, keyValue, columns);
+    }
+    
+    @Override
+    public List<Map<String, Object>> getByIds(Connection connection, String tableName, String keyColumn,
+                                              Collection<?> keyValues, String... columns) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            return onReplica((strategy, replicaConnection) ->
+                strategy.getByIds(replicaConnection, tableName, keyColumn, keyValues, columns));
+        }
+        return primary.getStrategy().getByIds(connection, tableName, keyColumn, keyValues, columns);
+    }
+    
+    @Override
+    public void streamRange(Connection connection, String tableName, String keyColumn, Object lowerBound,
+                            Object upperBound, RowHandler handler, String... columns) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            onReplica((strategy, replicaConnection) -> {
+                strategy.streamRange(replicaConnection, tableName, keyColumn, lowerBound, upperBound, handler, columns);
+                return null;
+            });
+            return;
+        }
+        primary.getStrategy().streamRange(connection, tableName, keyColumn, lowerBound, upperBound, handler, columns);
+    }
+    
+    /**
+     * Query được định tuyến theo tableName, câu lệnh dùng cách quote của database chính
+     * (SQLite chấp nhận cả "ten" và `ten`)
+     */
+    @Override
+    public void streamQuery(Connection connection, String query, List<Object> params, String tableName,
+                            String keyColumn, RowHandler handler) throws Exception {
+        if (tableName != null && engine.isReplicated(tableName)) {
+            onReplica((strategy, replicaConnection) -> {
+                strategy.streamQuery(replicaConnection, query, params, tableName, keyColumn, handler);
+                return null;
+            });
+            return;
+        }
+        primary.getStrategy().streamQuery(connection, query, params, tableName, keyColumn, handler);
+    }
+    
+    @Override
+    public void streamResultSet(Connection connection, String query, List<Object> params,
+                                ResultSetHandler handler) throws Exception {
+        primary.getStrategy().streamResultSet(connection, query, params, handler);
+    }
+    
+    @Override
+    public Object[] getKeyRange(Connection connection, String tableName, String keyColumn) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            return onReplica((strategy, replicaConnection) -> strategy.getKeyRange(replicaConnection, tableName, keyColumn));
+        }
+        return primary.getStrategy().getKeyRange(connection, tableName, keyColumn);
+    }
+    
+    @Override
+    public Object getKeyAt(Connection connection, String tableName, String keyColumn, long offset) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            return onReplica((strategy, replicaConnection) ->
+                strategy.getKeyAt(replicaConnection, tableName, keyColumn, offset));
+        }
+        return primary.getStrategy().getKeyAt(connection, tableName, keyColumn, offset);
+    }
+    
+    @Override
+    public long countRows(Connection connection, String tableName) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            return onReplica((strategy, replicaConnection) -> strategy.countRows(replicaConnection, tableName));
+        }
+        return primary.getStrategy().countRows(connection, tableName);
+    }
+    
+    @Override
+    public long estimateRowCount(Connection connection, String tableName) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            return onReplica((strategy, replicaConnection) -> strategy.estimateRowCount(replicaConnection, tableName));
+        }
+        return primary.getStrategy().estimateRowCount(connection, tableName);
+    }
+    
+    @Override
+    public List<Map<String, Object>> getPage(Connection connection, String tableName, String keyColumn,
+                                             long offset, int limit, String... columns) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            return onReplica((strategy, replicaConnection) ->
+                strategy.getPage(replicaConnection, tableName, keyColumn, offset, limit, columns));
+        }
+        return primary.getStrategy().getPage(connection, tableName, keyColumn, offset, limit, columns);
+    }
+    
+    @Override
+    public List<Map<String, Object>> getPage(Connection connection, String tableName, QueryCriteria criteria,
+                                             String keyColumn, long offset, int limit, String... columns) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            return onReplica((strategy, replicaConnection) ->
+                strategy.getPage(replicaConnection, tableName, criteria, keyColumn, offset, limit, columns));
+        }
+        return primary.getStrategy().getPage(connection, tableName, criteria, keyColumn, offset, limit, columns);
+    }
+    
+    @Override
+    public long countRows(Connection connection, String tableName, QueryCriteria criteria) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            return onReplica((strategy, replicaConnection) -> strategy.countRows(replicaConnection, tableName, criteria));
+        }
+        return primary.getStrategy().countRows(connection, tableName, criteria);
+    }
+    
+    @Override
+    public long readLob(Connection connection, String tableName, String keyColumn, Object keyValue,
+                        String lobColumn, WritableByteChannel target) throws Exception {
+        if (engine.isReplicated(tableName)) {
+            return onReplica((strategy, replicaConnection) ->
+                strategy.readLob(replicaConnection, tableName, keyColumn, keyValue, lobColumn, target));
+        }
+        return primary.getStrategy().readLob(connection, tableName, keyColumn, keyValue, lobColumn, target);
+    }
+    
+    @Override
+    public int writeLob(Connection connection, String tableName, String keyColumn, Object keyValue,
+                        String lobColumn, InputStream source, long length) throws Exception {
+        int written = primary.getStrategy().writeLob(connection, tableName, keyColumn, keyValue, lobColumn, source, length);
+        engine.requestSync(tableName);
+        return written;
+    }
+    
+    @Override
+    public int insert(Connection connection, String tableName, Map<String, Object> data) throws Exception {
+        int inserted = primary.getStrategy().insert(connection, tableName, data);
+        // Chưa có khóa (tự tăng) thì chờ đồng bộ, tránh tạo dòng không khớp trên bản sao
+        String keyColumn = getPrimaryKey(connection, tableName);
+        boolean hasKey = false;
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            hasKey |= entry.getKey().equalsIgnoreCase(keyColumn) && entry.getValue() != null;
+        }
+        if (hasKey) {
+            applyToReplica(tableName, () -> replica.insert(tableName, data));
+        } else {
+            engine.requestSync(tableName);
+        }
+        return inserted;
+    }
+    
+    /**
+     * Khóa tự sinh từ database chính được ghi kèm vào bản sao để dòng mới đọc lại được ngay
+     */
+    @Override
+    public Object insertAndGetKey(Connection connection, String tableName, Map<String, Object> data,
+                                  String keyColumn) throws Exception {
+        Object keyValue = primary.getStrategy().insertAndGetKey(connection, tableName, data, keyColumn);
+        if (keyValue == null) {
+            engine.requestSync(tableName);
+            return null;
+        }
+        Map<String, Object> row = new java.util.LinkedHashMap<>(data);
+        row.put(keyColumn, keyValue);
+        applyToReplica(tableName, () -> replica.insert(tableName, row));
+        return keyValue;
+    }
+    
+    @Override
+    public int update(Connection connection, String tableName, Map<String, Object> data, String whereClause) throws Exception {
+        int updated = primary.getStrategy().update(connection, tableName, data, whereClause);
+        applyToReplica(tableName, () -> replica.update(tableName, data, whereClause));
+        return updated;
+    }
+    
+    @Override
+    public int insertBatch(Connection connection, String tableName, List<String> columns,
+                           List<Object[]> rows) throws Exception {
+        int inserted = primary.getStrategy().insertBatch(connection, tableName, columns, rows);
+        // Transaction chưa commit nên không ghi thử lên bản sao, chỉ yêu cầu đồng bộ sau khi commit
+        requestSyncAfterCommit(connection, tableName);
+        return inserted;
+    }
+    
+    @Override
+    public List<Object> insertBatchAndGetKeys(Connection connection, String tableName, String keyColumn,
+                                              List<String> columns, List<Object[]> rows) throws Exception {
+        List<Object> keys = primary.getStrategy().insertBatchAndGetKeys(connection, tableName, keyColumn, columns, rows);
+        requestSyncAfterCommit(connection, tableName);
+        return keys;
+    }
+    
+    @Override
+    public List<Object> updateBatch(Connection connection, String tableName, String keyColumn,
+                                    List<RowChange> changes) throws Exception {
+        List<Object> conflicts = primary.getStrategy().updateBatch(connection, tableName, keyColumn, changes);
+        // Transaction chưa commit nên không ghi thử lên bản sao, chỉ yêu cầu đồng bộ sau khi commit
+        requestSyncAfterCommit(connection, tableName);
+        return conflicts;
+    }
+    
+    @Override
+    public int delete(Connection connection, String tableName, String whereClause) throws Exception {
+        int deleted = primary.getStrategy().delete(connection, tableName, whereClause);
+        applyToReplica(tableName, () -> replica.delete(tableName, whereClause));
+        return deleted;
+    }
+    
+    @Override
+    public int deleteByIds(Connection connection, String tableName, String keyColumn,
+                           Collection<?> keyValues) throws Exception {
+        int deleted = primary.getStrategy().deleteByIds(connection, tableName, keyColumn, keyValues);
+        // Xóa trên bản sao chỉ sau khi database chính commit, tránh mất dòng ở bản sao khi transaction rollback
+        if (connection.getAutoCommit()) {
+            applyToReplica(tableName, () -> replica.deleteByIds(tableName, keyValues));
+        } else {
+            pendingWrites.computeIfAbsent(connection, c -> new ArrayList<>())
+                .add(() -> applyToReplica(tableName, () -> replica.deleteByIds(tableName, keyValues)));
+        }
+        return deleted;
+    }
+    
+    /**
+     * Yêu cầu đồng bộ ngay nếu lệnh đã commit (auto-commit), không thì đợi transaction commit
+     * để lượt đồng bộ không chạy trước commit và bỏ sót các dòng mới
+     */
+    private void requestSyncAfterCommit(Connection connection, String tableName) throws Exception {
+        if (connection.getAutoCommit()) {
+            engine.requestSync(tableName);
+        } else {
+            pendingWrites.computeIfAbsent(connection, c -> new ArrayList<>()).add(() -> engine.requestSync(tableName));
+        }
+    }
+    
+    @Override
+    public void afterCommit(Connection connection) throws Exception {
+        List<Runnable> writes = pendingWrites.remove(connection);
+        if (writes != null) {
+            writes.forEach(Runnable::run);
+        }
+    }
+    
+    @Override
+    public void afterRollback(Connection connection) throws Exception {
+        pendingWrites.remove(connection);
+    }
+    
+    /**
+     * Áp dụng lệnh ghi lên bản sao để đọc lại thấy ngay rồi yêu cầu đồng bộ
+     * Lỗi ở bản sao (thiếu khóa tự tăng, trùng khóa...) được bỏ qua vì lượt đồng bộ sẽ sửa lại
+     */
+    private void applyToReplica(String tableName, ReplicaWrite write) {
+        if (!engine.isReplicated(tableName)) {
+            return;
+        }
+        try {
+            write.apply();
+        } catch (Exception e) {
+            System.err.println("Không ghi được vào bản sao bảng " + tableName + ": " + e.getMessage());
+        }
+        engine.requestSync(tableName);
+    }
+    
+    /**
+     * Chạy lời gọi strategy của bản sao với connection mượn từ pool của bản sao, theo timeout mặc định của bản sao
+     */
+    private <T> T onReplica(ReplicaCall<T> call) throws Exception {
+        ConnectionPool pool = replica.getPool();
+        Connection connection = pool.borrow();
+        try {
+            return replica.inScope(() -> call.call(replica.getStrategy(), connection));
+        } finally {
+            pool.release(connection);
+        }
+    }
+    
+    private interface ReplicaCall<T> {
+        T call(DatabaseStrategy strategy, Connection connection) throws Exception;
+    }
+    
+    private interface ReplicaWrite {
+        void apply() throws Exception;
+    }
+}
@@ -0,0 +1,541 @@
+package com.sep.framework.database;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Đồng bộ một số bảng từ database chính sang bản sao SQLite local để đọc nhanh / offline
+ * Mỗi bảng cần một cột version (số tăng dần hoặc timestamp cập nhật) để kéo thay đổi theo watermark.
+ * Bảng trên bản sao được tạo tự động theo cột của bảng gốc, watermark lưu trong bảng _sep_sync_state.
+ *
+ * Ví dụ:
+ *   DatabaseContext replica = new DatabaseContext(new SQLiteStrategy());
+ *   replica.setConnectionString("jdbc:sqlite:replica.db");
+ *   ReplicaSyncEngine sync = new ReplicaSyncEngine(primary, replica);
+ *   sync.addTable("orders", "updated_at");
+ *   sync.startAutoSync(30);
+ *   DatabaseContext dbContext = new DatabaseContext(new ReplicaReadStrategy(sync));
+ *
+ * Lưu ý: dòng có version null không được kéo sau lần đồng bộ đầu tiên,
+ * dòng bị xóa trên database chính chỉ được xóa khỏi bản sao qua reconcileDeletes
+ */
+public class ReplicaSyncEngine {
+    private static final String STATE_TABLE = "_sep_sync_state";
+    private static final String KEYS_TABLE = "_sep_sync_keys";
+    private static final int BATCH_SIZE = 500;
+    private static final int DEFAULT_RECONCILE_EVERY = 10;
+    
+    private final DatabaseContext primary;
+    private final DatabaseContext replica;
+    private final Map<String, String> versionColumns = new ConcurrentHashMap<>();
+    private final Set<String> syncedTables = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingSyncs = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger cycles = new AtomicInteger();
+    private final ScheduledExecutorService scheduler;
+    private final Object stateLock = new Object();
+    private volatile boolean stateLoaded;
+    
+    public ReplicaSyncEngine(DatabaseContext primary, DatabaseContext replica) {
+        this.primary = primary;
+        this.replica = replica;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sep-replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Đăng ký bảng cần đồng bộ
+     * @param versionColumn Cột tăng dần mỗi khi dòng thay đổi (version, updated_at...)
+     */
+    public void addTable(String tableName, String versionColumn) {
+        versionColumns.put(tableName, versionColumn);
+    }
+    
+    public DatabaseContext getPrimary() {
+        return primary;
+    }
+    
+    public DatabaseContext getReplica() {
+        return replica;
+    }
+    
+    /**
+     * Bảng đã được đăng ký và đã có dữ liệu trên bản sao (đồng bộ ít nhất một lần)
+     */
+    public boolean isReplicated(String tableName) {
+        if (!versionColumns.containsKey(tableName)) {
+            return false;
+        }
+        try {
+            loadState();
+        } catch (Exception e) {
+            System.err.println("Không đọc được trạng thái đồng bộ: " + e.getMessage());
+            return false;
+        }
+        return syncedTables.contains(tableName);
+    }
+    
+    /**
+     * Đồng bộ tất cả bảng đã đăng ký
+     * @return Số dòng đã kéo về của từng bảng
+     */
+    public Map<String, Long> syncAll() throws Exception {
+        Map<String, Long> pulled = new LinkedHashMap<>();
+        for (String tableName : versionColumns.keySet()) {
+            pulled.put(tableName, sync(tableName));
+        }
+        return pulled;
+    }
+    
+    /**
+     * Kéo các dòng có version >= watermark từ database chính và ghi đè vào bản sao
+     * Toàn bộ lô ghi và watermark mới được commit trong một transaction của SQLite
+     * @return Số dòng đã kéo về
+     */
+    public synchronized long sync(String tableName) throws Exception {
+        return replica.inScope(() -> syncTable(tableName));
+    }
+    
+    private long syncTable(String tableName) throws Exception {
+        String versionColumn = versionColumns.get(tableName);
+        if (versionColumn == null) {
+            throw new IllegalArgumentException("Bảng " + tableName + " chưa được đăng ký đồng bộ");
+        }
+        loadState();
+        List<ColumnInfo> columns = primary.getColumns(tableName);
+        String keyColumn = primary.getPrimaryKey(tableName);
+        if (keyColumn == null) {
+            throw new IllegalArgumentException("Bảng " + tableName + " không có khóa chính, không thể đồng bộ");
+        }
+        List<String> columnNames = new ArrayList<>();
+        for (ColumnInfo column : columns) {
+            columnNames.add(column.getName());
+        }
+        int versionIndex = indexOfIgnoreCase(columnNames, versionColumn);
+        if (versionIndex < 0) {
+            throw new IllegalArgumentException("Bảng " + tableName + " không có cột " + versionColumn);
+        }
+        
+        ConnectionPool replicaPool = replica.getPool();
+        Connection replicaConnection = replicaPool.borrow();
+        try {
+            replicaConnection.setAutoCommit(false);
+            try {
+                ensureReplicaTable(replicaConnection, tableName, columns, keyColumn);
+                long pulled = pull(replicaConnection, tableName, columnNames, versionIndex);
+                replicaConnection.commit();
+                syncedTables.add(tableName);
+                return pulled;
+            } catch (Exception e) {
+                replicaConnection.rollback();
+                throw e;
+            } finally {
+                replicaConnection.setAutoCommit(true);
+            }
+        } finally {
+            replicaPool.release(replicaConnection);
+        }
+    }
+    
+    /**
+     * Xóa khỏi bản sao các dòng không còn tồn tại trên database chính
+     * Khóa của bảng gốc được stream vào một bảng tạm rồi so sánh trong SQLite
+     * @return Số dòng đã xóa
+     */
+    public synchronized int reconcileDeletes(String tableName) throws Exception {
+        return replica.inScope(() -> reconcileTable(tableName));
+    }
+    
+    private int reconcileTable(String tableName) throws Exception {
+        String keyColumn = primary.getPrimaryKey(tableName);
+        if (keyColumn == null || !isReplicated(tableName)) {
+            return 0;
+        }
+        String keyType = "";
+        for (ColumnInfo column : primary.getColumns(tableName)) {
+            if (column.getName().equalsIgnoreCase(keyColumn) && column.getType() != null) {
+                keyType = column.getType().replaceAll("[^A-Za-z0-9_ ]", "");
+            }
+        }
+        
+        DatabaseStrategy local = replica.getStrategy();
+        String keysTable = "temp." + local.quoteIdentifier(KEYS_TABLE);
+        ConnectionPool replicaPool = replica.getPool();
+        Connection replicaConnection = replicaPool.borrow();
+        try {
+            replicaConnection.setAutoCommit(false);
+            try (Statement stmt = local.createStatement(replicaConnection)) {
+                stmt.execute("DROP TABLE IF EXISTS " + keysTable);
+                stmt.execute("CREATE TEMP TABLE " + local.quoteIdentifier(KEYS_TABLE) + " (k " + keyType + ")");
+                
+                try (PreparedStatement insert = local.prepareStatement(replicaConnection,
+                        "INSERT INTO " + keysTable + " (k) VALUES (?)")) {
+                    DatabaseStrategy remote = primary.getStrategy();
+                    String query = "SELECT " + remote.quoteIdentifier(keyColumn) + " FROM " + remote.quoteIdentifier(tableName);
+                    onPrimary((strategy, connection) -> {
+                        strategy.streamResultSet(connection, query, Collections.emptyList(), rs -> {
+                            int pending = 0;
+                            while (rs.next()) {
+                                QueryControl.checkCancelled();
+                                insert.setObject(1, toReplicaValue(rs.getObject(1)));
+                                insert.addBatch();
+                                if (++pending >= BATCH_SIZE) {
+                                    insert.executeBatch();
+                                    pending = 0;
+                                }
+                            }
+                            if (pending > 0) {
+                                insert.executeBatch();
+                            }
+                        });
+                        return null;
+                    });
+                }
+                
+                int deleted = stmt.executeUpdate("DELETE FROM " + local.quoteIdentifier(tableName) +
+                    " WHERE " + local.quoteIdentifier(keyColumn) + " NOT IN (SELECT k FROM " + keysTable + ")");
+                stmt.execute("DROP TABLE " + keysTable);
+                replicaConnection.commit();
+                return deleted;
+            } catch (Exception e) {
+                replicaConnection.rollback();
+                throw e;
+            } finally {
+                replicaConnection.setAutoCommit(true);
+            }
+        } finally {
+            replicaPool.release(replicaConnection);
+        }
+    }
+    
+    /**
+     * Đồng bộ định kỳ tất cả bảng, cứ 10 lượt thì đối chiếu dòng đã xóa một lần
+     */
+    public void startAutoSync(int intervalSeconds) {
+        startAutoSync(intervalSeconds, DEFAULT_RECONCILE_EVERY);
+    }
+    
+    /**
+     * @param reconcileEvery Số lượt đồng bộ giữa hai lần reconcileDeletes, 0 để tắt
+     */
+    public void startAutoSync(int intervalSeconds, int reconcileEvery) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            boolean reconcile = reconcileEvery > 0 && cycles.incrementAndGet() % reconcileEvery == 0;
+            for (String tableName : versionColumns.keySet()) {
+                try {
+                    sync(tableName);
+                    if (reconcile) {
+                        reconcileDeletes(tableName);
+                    }
+                } catch (Exception e) {
+                    System.err.println("Đồng bộ bảng " + tableName + " thất bại: " + e.getMessage());
+                }
+            }
+        }, 0, intervalSeconds, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Yêu cầu đồng bộ một bảng ở background (sau khi ghi vào database chính)
+     * Nhiều yêu cầu liên tiếp cho cùng bảng được gộp thành một lượt
+     */
+    public void requestSync(String tableName) {
+        if (!versionColumns.containsKey(tableName) || scheduler.isShutdown() || !pendingSyncs.add(tableName)) {
+            return;
+        }
+        scheduler.execute(() -> {
+            pendingSyncs.remove(tableName);
+            try {
+                sync(tableName);
+            } catch (Exception e) {
+                System.err.println("Đồng bộ bảng " + tableName + " thất bại: " + e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Dừng đồng bộ định kỳ và các yêu cầu đang chờ
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * Stream các dòng thay đổi từ database chính, ghi theo lô vào bản sao rồi cập nhật watermark
+     * @return Số dòng đã kéo về
+     */
+    private long pull(Connection replicaConnection, String tableName, List<String> columnNames,
+                      int versionIndex) throws Exception {
+        Object watermark = readWatermark(replicaConnection, tableName);
+        DatabaseStrategy remote = primary.getStrategy();
+        DatabaseStrategy local = replica.getStrategy();
+        String version = remote.quoteIdentifier(columnNames.get(versionIndex));
+        // >= để không bỏ sót dòng cùng version được commit sau lần kéo trước, ghi lại là idempotent
+        String query = "SELECT " + remote.buildSelectList(columnNames.toArray(new String[0])) +
+            " FROM " + remote.quoteIdentifier(tableName) +
+            (watermark != null ? " WHERE " + version + " >= ?" : "") + " ORDER BY " + version;
+        List<Object> params = new ArrayList<>();
+        if (watermark != null) {
+            params.add(watermark);
+        }
+        
+        StringBuilder upsert = new StringBuilder("INSERT OR REPLACE INTO ")
+            .append(local.quoteIdentifier(tableName)).append(" (")
+            .append(local.buildSelectList(columnNames.toArray(new String[0]))).append(") VALUES (");
+        for (int i = 0; i < columnNames.size(); i++) {
+            upsert.append(i == 0 ? "?" : ", ?");
+        }
+        upsert.append(")");
+        
+        Object[] maxVersion = new Object[1];
+        long[] count = new long[1];
+        try (PreparedStatement pstmt = local.prepareStatement(replicaConnection, upsert.toString())) {
+            onPrimary((strategy, connection) -> {
+                strategy.streamResultSet(connection, query, params, rs -> {
+                    int pending = 0;
+                    while (rs.next()) {
+                        QueryControl.checkCancelled();
+                        for (int i = 0; i < columnNames.size(); i++) {
+                            pstmt.setObject(i + 1, toReplicaValue(rs.getObject(i + 1)));
+                        }
+                        Object rowVersion = rs.getObject(versionIndex + 1);
+                        if (rowVersion != null) {
+                            maxVersion[0] = rowVersion;
+                        }
+                        pstmt.addBatch();
+                        count[0]++;
+                        if (++pending >= BATCH_SIZE) {
+                            pstmt.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) {
+                        pstmt.executeBatch();
+                    }
+                });
+                return null;
+            });
+        }
+        writeWatermark(replicaConnection, tableName, columnNames.get(versionIndex),
+            maxVersion[0] != null ? maxVersion[0] : watermark);
+        return count[0];
+    }
+    
+    /**
+     * Tạo bảng trên bản sao theo cột của bảng gốc (giữ tên kiểu để SQLite suy ra affinity)
+     * Bảng có danh sách cột khác với bảng gốc được tạo lại và đồng bộ lại từ đầu
+     */
+    private void ensureReplicaTable(Connection replicaConnection, String tableName, List<ColumnInfo> columns,
+                                    String keyColumn) throws Exception {
+        DatabaseStrategy local = replica.getStrategy();
+        List<ColumnInfo> existing = local.getColumns(replicaConnection, tableName);
+        if (!existing.isEmpty() && !sameColumns(existing, columns)) {
+            try (Statement stmt = local.createStatement(replicaConnection)) {
+                stmt.execute("DROP TABLE " + local.quoteIdentifier(tableName));
+            }
+            clearWatermark(replicaConnection, tableName);
+            syncedTables.remove(tableName);
+            existing = Collections.emptyList();
+        }
+        if (!existing.isEmpty()) {
+            return;
+        }
+        
+        StringBuilder ddl = new StringBuilder("CREATE TABLE IF NOT EXISTS ")
+            .append(local.quoteIdentifier(tableName)).append(" (");
+        for (ColumnInfo column : columns) {
+            ddl.append(local.quoteIdentifier(column.getName()));
+            if (column.getType() != null) {
+                ddl.append(" ").append(column.getType().replaceAll("[^A-Za-z0-9_ ]", ""));
+            }
+            ddl.append(", ");
+        }
+        ddl.append("PRIMARY KEY (").append(local.quoteIdentifier(keyColumn)).append("))");
+        try (Statement stmt = local.createStatement(replicaConnection)) {
+            stmt.execute(ddl.toString());
+        }
+    }
+    
+    private static boolean sameColumns(List<ColumnInfo> replicaColumns, List<ColumnInfo> primaryColumns) {
+        if (replicaColumns.size() != primaryColumns.size()) {
+            return false;
+        }
+        Set<String> names = new HashSet<>();
+        for (ColumnInfo column : replicaColumns) {
+            names.add(column.getName().toLowerCase());
+        }
+        for (ColumnInfo column : primaryColumns) {
+            if (!names.contains(column.getName().toLowerCase())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Tạo bảng trạng thái nếu chưa có và nạp danh sách bảng đã đồng bộ từ các lần chạy trước
+     */
+    private void loadState() throws Exception {
+        if (stateLoaded) {
+            return;
+        }
+        // Khóa riêng để luồng đọc không phải chờ một lượt sync đang chạy
+        synchronized (stateLock) {
+            if (stateLoaded) {
+                return;
+            }
+            DatabaseStrategy local = replica.getStrategy();
+            ConnectionPool replicaPool = replica.getPool();
+            Connection replicaConnection = replicaPool.borrow();
+            try (Statement stmt = local.createStatement(replicaConnection)) {
+                // WAL cho phép đọc bản sao trong lúc đồng bộ đang ghi
+                stmt.execute("PRAGMA journal_mode = WAL");
+                stmt.execute("CREATE TABLE IF NOT EXISTS " + STATE_TABLE +
+                    " (table_name TEXT PRIMARY KEY, version_column TEXT, watermark, watermark_type TEXT)");
+                try (ResultSet rs = stmt.executeQuery("SELECT table_name FROM " + STATE_TABLE)) {
+                    while (rs.next()) {
+                        syncedTables.add(rs.getString(1));
+                    }
+                }
+                stateLoaded = true;
+            } finally {
+                replicaPool.release(replicaConnection);
+            }
+        }
+    }
+    
+    private Object readWatermark(Connection replicaConnection, String tableName) throws Exception {
+        String query = "SELECT watermark, watermark_type FROM " + STATE_TABLE + " WHERE table_name = ?";
+        try (PreparedStatement pstmt = replica.getStrategy().prepareStatement(replicaConnection, query)) {
+            pstmt.setString(1, tableName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getString(1) == null) {
+                    return null;
+                }
+                return fromWatermark(rs.getString(1), rs.getString(2));
+            }
+        }
+    }
+    
+    private void writeWatermark(Connection replicaConnection, String tableName, String versionColumn,
+                                Object watermark) throws Exception {
+        String query = "INSERT OR REPLACE INTO " + STATE_TABLE +
+            " (table_name, version_column, watermark, watermark_type) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = replica.getStrategy().prepareStatement(replicaConnection, query)) {
+            pstmt.setString(1, tableName);
+            pstmt.setString(2, versionColumn);
+            pstmt.setString(3, watermark != null ? watermark.toString() : null);
+            pstmt.setString(4, watermark != null ? watermark.getClass().getName() : null);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    private void clearWatermark(Connection replicaConnection, String tableName) throws Exception {
+        String query = "DELETE FROM " + STATE_TABLE + " WHERE table_name = ?";
+        try (PreparedStatement pstmt = replica.getStrategy().prepareStatement(replicaConnection, query)) {
+            pstmt.setString(1, tableName);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Khôi phục watermark về đúng kiểu Java để so sánh được trên database chính
+     */
+    private static Object fromWatermark(String value, String type) {
+        if (type == null) {
+            return value;
+        }
+        switch (type) {
+            case "java.lang.Long":
+                return Long.valueOf(value);
+            case "java.lang.Integer":
+                return Integer.valueOf(value);
+            case "java.math.BigDecimal":
+                return new BigDecimal(value);
+            case "java.math.BigInteger":
+                return new BigInteger(value);
+            case "java.sql.Timestamp":
+                return java.sql.Timestamp.valueOf(value);
+            case "java.sql.Date":
+                return java.sql.Date.valueOf(value);
+            case "java.time.LocalDateTime":
+                return LocalDateTime.parse(value);
+            case "java.time.LocalDate":
+                return LocalDate.parse(value);
+            default:
+                return value;
+        }
+    }
+    
+    /**
+     * Chuyển giá trị từ driver của database chính sang kiểu SQLite lưu được
+     * Ngày giờ lưu dạng chuỗi, BLOB/CLOB đọc thành byte[]/String
+     */
+    private static Object toReplicaValue(Object value) throws Exception {
+        if (value == null || value instanceof String || value instanceof byte[] || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Number && !(value instanceof BigInteger)) {
+            return value;
+        }
+        if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            return blob.getBytes(1, (int) blob.length());
+        }
+        if (value instanceof Clob) {
+            Clob clob = (Clob) value;
+            return clob.getSubString(1, (int) clob.length());
+        }
+        return value.toString();
+    }
+    
+    private static int indexOfIgnoreCase(List<String> names, String name) {
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Chạy lời gọi strategy trên một connection mượn từ pool của database chính
+     */
+    private <T> T onPrimary(PrimaryCall<T> call) throws Exception {
+        ConnectionPool primaryPool = primary.getPool();
+        Connection connection = primaryPool.borrow();
+        try {
+            return primary.inScope(() -> call.call(primary.getStrategy(), connection));
+        } finally {
+            primaryPool.release(connection);
+        }
+    }
+    
+    private interface PrimaryCall<T> {
+        T call(DatabaseStrategy strategy, Connection connection) throws Exception;
+    }
+}
@@ -0,0 +1,12 @@
+package com.sep.framework.database;
+
+import java.sql.ResultSet;
+
+/**
+ * Callback nhận ResultSet forward-only đang mở, dùng khi cần đọc trực tiếp giá trị
+ * (ví dụ stream BLOB/CLOB) thay vì nhận từng row dạng Map
+ */
+@FunctionalInterface
+public interface ResultSetHandler {
+    void handle(ResultSet resultSet) throws Exception;
+}
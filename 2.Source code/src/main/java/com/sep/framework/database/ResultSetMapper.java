@@ -0,0 +1,148 @@
+package com.sep.framework.database;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chuyển đổi ResultSet thành các row dạng Map
+ * Dùng chung cho các strategy
+ */
+final class ResultSetMapper {
+    
+    private ResultSetMapper() {
+    }
+    
+    /**
+     * Đọc toàn bộ ResultSet thành danh sách row
+     */
+    static List<Map<String, Object>> toList(ResultSet rs) throws SQLException {
+        return toList(rs, null, null);
+    }
+    
+    /**
+     * Đọc toàn bộ ResultSet thành danh sách row
+     * Các cột BLOB/CLOB được thay bằng LobHandle nếu biết cột khóa của bảng
+     */
+    static List<Map<String, Object>> toList(ResultSet rs, String tableName, String keyColumn) throws SQLException {
+        List<Map<String, Object>> results = new ArrayList<>();
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        int keyIndex = findColumn(metaData, keyColumn);
+        
+        while (rs.next()) {
+            results.add(toRow(rs, metaData, columnCount, tableName, keyIndex));
+        }
+        return results;
+    }
+    
+    /**
+     * Đọc kết quả của câu SELECT dựng từ RowProjection
+     * Cờ NULL của mỗi cột LOB được đổi thành LobHandle, hoặc null nếu ô LOB là NULL
+     */
+    static List<Map<String, Object>> toList(ResultSet rs, RowProjection projection) throws SQLException {
+        List<Map<String, Object>> results = new ArrayList<>();
+        ResultSetMetaData metaData = rs.getMetaData();
+        int plainCount = projection.getPlainColumnCount();
+        List<ColumnInfo> lobColumns = projection.getLobColumns();
+        int keyIndex = lobColumns.isEmpty() ? 0 : findColumn(metaData, projection.getKeyColumn());
+        
+        while (rs.next()) {
+            Map<String, Object> row = toRow(rs, metaData, plainCount, null, 0);
+            for (int i = 0; i < lobColumns.size(); i++) {
+                ColumnInfo column = lobColumns.get(i);
+                boolean isNull = rs.getInt(plainCount + i + 1) == 1;
+                row.put(column.getName(), isNull ? null : new LobHandle(projection.getTableName(), 
+                    metaData.getColumnName(keyIndex), rs.getObject(keyIndex), column.getName(), column.isCharacterLob()));
+            }
+            results.add(row);
+        }
+        return results;
+    }
+    
+    /**
+     * Đọc row hiện tại của ResultSet
+     */
+    static Map<String, Object> toRow(ResultSet rs, ResultSetMetaData metaData, int columnCount) throws SQLException {
+        return toRow(rs, metaData, columnCount, null, 0);
+    }
+    
+    /**
+     * Đọc row hiện tại của ResultSet, keyIndex > 0 thì trả về LobHandle cho các cột LOB
+     */
+    static Map<String, Object> toRow(ResultSet rs, ResultSetMetaData metaData, int columnCount,
+                                     String tableName, int keyIndex) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        Object keyValue = keyIndex > 0 ? rs.getObject(keyIndex) : null;
+        
+        for (int i = 1; i <= columnCount; i++) {
+            String columnName = metaData.getColumnName(i);
+            if (keyIndex > 0 && isLargeObject(metaData, i)) {
+                // Không đọc nội dung, chỉ giữ handle để đọc khi cần
+                row.put(columnName, new LobHandle(tableName, metaData.getColumnName(keyIndex), 
+                    keyValue, columnName, isCharacter(metaData, i)));
+            } else {
+                row.put(columnName, rs.getObject(i));
+            }
+        }
+        return row;
+    }
+    
+    /**
+     * Kiểm tra ResultSet có chứa cột LOB hay không
+     */
+    static boolean hasLargeObjects(ResultSetMetaData metaData) throws SQLException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (isLargeObject(metaData, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Cột LOB, cùng quy tắc theo tên kiểu với ColumnInfo.isLargeObject (TEXT/BLOB/CLOB/bytea/binary)
+     */
+    static boolean isLargeObject(ResultSetMetaData metaData, int column) throws SQLException {
+        return ColumnInfo.isLargeObjectType(metaData.getColumnTypeName(column));
+    }
+    
+    /**
+     * Cột chứa dữ liệu ký tự (CLOB, TEXT, ...)
+     */
+    static boolean isCharacter(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Tìm vị trí cột theo tên (không phân biệt hoa thường), 0 nếu không có
+     */
+    static int findColumn(ResultSetMetaData metaData, String columnName) throws SQLException {
+        if (columnName == null) {
+            return 0;
+        }
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (metaData.getColumnName(i).equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,40 @@
+package com.sep.framework.database;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thay đổi của một dòng khi cập nhật theo lô
+ * Giữ giá trị gốc của các cột bị sửa để phát hiện xung đột (optimistic locking):
+ * dòng chỉ được cập nhật nếu các cột đó vẫn còn giá trị như lúc đọc
+ */
+public class RowChange {
+    private final Object keyValue;
+    private final Map<String, Object> originalValues;
+    private final Map<String, Object> newValues;
+    
+    public RowChange(Object keyValue, Map<String, Object> originalValues, Map<String, Object> newValues) {
+        this.keyValue = keyValue;
+        this.originalValues = Collections.unmodifiableMap(new LinkedHashMap<>(originalValues));
+        this.newValues = Collections.unmodifiableMap(new LinkedHashMap<>(newValues));
+    }
+    
+    public Object getKeyValue() {
+        return keyValue;
+    }
+    
+    /**
+     * Giá trị lúc đọc của các cột bị sửa
+     */
+    public Map<String, Object> getOriginalValues() {
+        return originalValues;
+    }
+    
+    /**
+     * Giá trị mới của các cột bị sửa
+     */
+    public Map<String, Object> getNewValues() {
+        return newValues;
+    }
+}
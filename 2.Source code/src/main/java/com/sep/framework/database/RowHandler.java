@@ -0,0 +1,12 @@
+package com.sep.framework.database;
+
+import java.util.Map;
+
+/**
+ * Callback nhận từng row khi đọc dữ liệu dạng stream
+ * Cho phép xử lý bảng lớn mà không giữ toàn bộ kết quả trong bộ nhớ
+ */
+@FunctionalInterface
+public interface RowHandler {
+    void handle(Map<String, Object> row) throws Exception;
+}
@@ -0,0 +1,103 @@
+package com.sep.framework.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Danh sách cột của câu SELECT tải row
+ * Cột LOB (ColumnInfo.isLargeObject) không được chọn, chỉ chọn cờ NULL của cột để tạo LobHandle,
+ * nhờ vậy nội dung LOB không đi qua driver. Khóa chính luôn được chọn để handle trỏ lại đúng ô.
+ */
+final class RowProjection {
+    private final List<String> plainColumns = new ArrayList<>();
+    private final List<ColumnInfo> lobColumns = new ArrayList<>();
+    private final String tableName;
+    private final String keyColumn;
+    
+    /**
+     * @param columns Các cột cần lấy, rỗng thì lấy mọi cột của bảng
+     * @param keyColumn Khóa chính, null nếu bảng không có khóa (cột LOB được đọc trực tiếp)
+     */
+    RowProjection(List<ColumnInfo> tableColumns, String tableName, String keyColumn, String... columns) {
+        this.tableName = tableName;
+        this.keyColumn = keyColumn;
+        if (columns.length == 0) {
+            for (ColumnInfo column : tableColumns) {
+                add(column.getName(), column);
+            }
+        } else {
+            for (String name : columns) {
+                add(name, find(tableColumns, name));
+            }
+        }
+        if (!lobColumns.isEmpty() && !containsIgnoreCase(plainColumns, keyColumn)) {
+            plainColumns.add(keyColumn);
+        }
+    }
+    
+    private void add(String name, ColumnInfo column) {
+        if (column != null && column.isLargeObject() && keyColumn != null) {
+            lobColumns.add(column);
+        } else {
+            plainColumns.add(name);
+        }
+    }
+    
+    String getTableName() {
+        return tableName;
+    }
+    
+    String getKeyColumn() {
+        return keyColumn;
+    }
+    
+    List<ColumnInfo> getLobColumns() {
+        return lobColumns;
+    }
+    
+    int getPlainColumnCount() {
+        return plainColumns.size();
+    }
+    
+    /**
+     * Các cột thường, theo sau là một cờ (1 nếu NULL) cho mỗi cột LOB
+     */
+    String buildSelectList(DatabaseStrategy strategy) {
+        StringBuilder selectList = new StringBuilder(strategy.buildSelectList(plainColumns.toArray(new String[0])));
+        for (ColumnInfo column : lobColumns) {
+            selectList.append(", CASE WHEN ").append(strategy.quoteIdentifier(column.getName()))
+                .append(" IS NULL THEN 1 ELSE 0 END");
+        }
+        return selectList.toString();
+    }
+    
+    /**
+     * Cột khóa chính theo ColumnInfo, null nếu bảng không có khóa
+     */
+    static String primaryKeyOf(List<ColumnInfo> tableColumns) {
+        for (ColumnInfo column : tableColumns) {
+            if (column.isPrimaryKey()) {
+                return column.getName();
+            }
+        }
+        return null;
+    }
+    
+    private static ColumnInfo find(List<ColumnInfo> tableColumns, String name) {
+        for (ColumnInfo column : tableColumns) {
+            if (column.getName().equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+    
+    private static boolean containsIgnoreCase(List<String> names, String name) {
+        for (String candidate : names) {
+            if (candidate.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
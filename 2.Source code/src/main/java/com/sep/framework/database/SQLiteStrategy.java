@@ -0,0 +1,218 @@
+package com.sep.framework.database;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Strategy Pattern: Implementation cho SQLite database (file local, driver sqlite-jdbc)
+ * Connection string dạng "jdbc:sqlite:duong/dan/file.db"
+ */
+public class SQLiteStrategy implements DatabaseStrategy {
+    
+    @Override
+    public Connection connect(String connectionString) throws Exception {
+        return DriverManager.getConnection(connectionString);
+    }
+    
+    @Override
+    public void disconnect(Connection connection) throws Exception {
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+    
+    @Override
+    public List<String> getTables(Connection connection) throws Exception {
+        List<String> tables = new ArrayList<>();
+        DatabaseMetaData metaData = connection.getMetaData();
+        ResultSet rs = metaData.getTables(null, null, null, new String[]{"TABLE"});
+        
+        while (rs.next()) {
+            String tableName = rs.getString("TABLE_NAME");
+            // Bỏ qua bảng nội bộ của SQLite
+            if (!tableName.startsWith("sqlite_")) {
+                tables.add(tableName);
+            }
+        }
+        rs.close();
+        return tables;
+    }
+    
+    @Override
+    public List<ColumnInfo> getColumns(Connection connection, String tableName) throws Exception {
+        List<ColumnInfo> columns = new ArrayList<>();
+        DatabaseMetaData metaData = connection.getMetaData();
+        ResultSet rs = metaData.getColumns(null, null, tableName, null);
+        
+        // Lấy primary keys
+        Set<String> primaryKeys = new HashSet<>();
+        ResultSet pkRs = metaData.getPrimaryKeys(null, null, tableName);
+        while (pkRs.next()) {
+            primaryKeys.add(pkRs.getString("COLUMN_NAME"));
+        }
+        pkRs.close();
+        
+        while (rs.next()) {
+            String columnName = rs.getString("COLUMN_NAME");
+            String typeName = rs.getString("TYPE_NAME");
+            int columnSize = rs.getInt("COLUMN_SIZE");
+            int nullable = rs.getInt("NULLABLE");
+            String defaultValue = rs.getString("COLUMN_DEF");
+            
+            columns.add(new ColumnInfo(
+                columnName,
+                typeName,
+                columnSize,
+                nullable == DatabaseMetaData.columnNullable,
+                primaryKeys.contains(columnName),
+                defaultValue
+            ));
+        }
+        rs.close();
+        return columns;
+    }
+    
+    @Override
+    public ResultSet executeQuery(Connection connection, String query) throws Exception {
+        Statement stmt = createStatement(connection);
+        return stmt.executeQuery(query);
+    }
+    
+    @Override
+    public int executeUpdate(Connection connection, String query) throws Exception {
+        try (Statement stmt = createStatement(connection)) {
+            return stmt.executeUpdate(query);
+        }
+    }
+    
+    @Override
+    public int insert(Connection connection, String tableName, Map<String, Object> data) throws Exception {
+        if (data.isEmpty()) {
+            return 0;
+        }
+        
+        StringBuilder columns = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            if (columns.length() > 0) {
+                columns.append(", ");
+                values.append(", ");
+            }
+            columns.append(quoteIdentifier(entry.getKey()));
+            values.append("?");
+            params.add(entry.getValue());
+        }
+        
+        String query = String.format("INSERT INTO %s (%s) VALUES (%s)",
+            quoteIdentifier(tableName), columns.toString(), values.toString());
+        
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            return pstmt.executeUpdate();
+        }
+    }
+    
+    @Override
+    public int update(Connection connection, String tableName, Map<String, Object> data, String whereClause) throws Exception {
+        if (data.isEmpty()) {
+            return 0;
+        }
+        
+        StringBuilder setClause = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            if (setClause.length() > 0) {
+                setClause.append(", ");
+            }
+            setClause.append(quoteIdentifier(entry.getKey())).append(" = ?");
+            params.add(entry.getValue());
+        }
+        
+        String query = String.format("UPDATE %s SET %s WHERE %s",
+            quoteIdentifier(tableName), setClause.toString(), whereClause);
+        
+        try (PreparedStatement pstmt = prepareStatement(connection, query)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            return pstmt.executeUpdate();
+        }
+    }
+    
+    @Override
+    public int delete(Connection connection, String tableName, String whereClause) throws Exception {
+        String query = String.format("DELETE FROM %s WHERE %s", quoteIdentifier(tableName), whereClause);
+        return executeUpdate(connection, query);
+    }
+    
+    @Override
+    public String getPrimaryKey(Connection connection, String tableName) throws Exception {
+        DatabaseMetaData metaData = connection.getMetaData();
+        ResultSet rs = metaData.getPrimaryKeys(null, null, tableName);
+        
+        if (rs.next()) {
+            String pk = rs.getString("COLUMN_NAME");
+            rs.close();
+            return pk;
+        }
+        rs.close();
+        return null;
+    }
+    
+    /**
+     * sqlite-jdbc chỉ trả về khóa của dòng cuối sau executeBatch nên thêm từng dòng
+     * (trong transaction của người gọi, với SQLite vẫn nhanh vì không qua mạng)
+     */
+    @Override
+    public List<Object> insertBatchAndGetKeys(Connection connection, String tableName, String keyColumn,
+                                              List<String> columns, List<Object[]> rows) throws Exception {
+        List<Object> keys = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                data.put(columns.get(i), row[i]);
+            }
+            keys.add(insertAndGetKey(connection, tableName, data, keyColumn));
+        }
+        return keys;
+    }
+    
+    @Override
+    public void setConstraintsDeferred(Connection connection, boolean deferred) throws Exception {
+        // defer_foreign_keys tự tắt khi transaction kết thúc
+        try (Statement stmt = createStatement(connection)) {
+            stmt.execute("PRAGMA defer_foreign_keys = " + (deferred ? "ON" : "OFF"));
+        }
+    }
+    
+    @Override
+    public String beginSnapshot(Connection connection) throws Exception {
+        // SQLite luôn SERIALIZABLE: transaction đọc giữ nguyên snapshot từ câu SELECT đầu tiên tới khi kết thúc
+        return null;
+    }
+    
+    @Override
+    public String nullSafeEquals() {
+        return "IS";
+    }
+    
+    @Override
+    public String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+    
+    @Override
+    public String getSchemaChecksum(Connection connection) throws Exception {
+        // schema_version tăng mỗi khi schema thay đổi
+        try (Statement stmt = createStatement(connection);
+             ResultSet rs = stmt.executeQuery("PRAGMA schema_version")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
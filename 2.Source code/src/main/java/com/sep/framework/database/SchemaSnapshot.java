@@ -0,0 +1,169 @@
+package com.sep.framework.database;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ảnh chụp (immutable) toàn bộ schema: bảng, cột, khóa chính, khóa ngoại
+ * Được đọc bằng một vài truy vấn metadata cho cả database thay vì từng bảng một
+ */
+public class SchemaSnapshot {
+    private final List<String> tables;
+    private final Map<String, List<ColumnInfo>> columns;
+    private final Map<String, List<String>> primaryKeys;
+    private final Map<String, List<ForeignKeyInfo>> foreignKeys;
+    private final String checksum;
+    
+    private SchemaSnapshot(List<String> tables, Map<String, List<ColumnInfo>> columns,
+                           Map<String, List<String>> primaryKeys, Map<String, List<ForeignKeyInfo>> foreignKeys,
+                           String checksum) {
+        this.tables = Collections.unmodifiableList(tables);
+        this.columns = Collections.unmodifiableMap(columns);
+        this.primaryKeys = Collections.unmodifiableMap(primaryKeys);
+        this.foreignKeys = Collections.unmodifiableMap(foreignKeys);
+        this.checksum = checksum;
+    }
+    
+    public List<String> getTables() {
+        return tables;
+    }
+    
+    public boolean containsTable(String tableName) {
+        return columns.containsKey(tableName);
+    }
+    
+    /**
+     * Danh sách cột của bảng, rỗng nếu bảng không có trong snapshot
+     */
+    public List<ColumnInfo> getColumns(String tableName) {
+        List<ColumnInfo> result = columns.get(tableName);
+        return result != null ? result : Collections.<ColumnInfo>emptyList();
+    }
+    
+    /**
+     * Cột khóa chính đầu tiên của bảng (giống DatabaseStrategy.getPrimaryKey), null nếu không có
+     */
+    public String getPrimaryKey(String tableName) {
+        List<String> keys = primaryKeys.get(tableName);
+        return keys != null && !keys.isEmpty() ? keys.get(0) : null;
+    }
+    
+    /**
+     * Tất cả các cột khóa chính của bảng (khóa chính nhiều cột)
+     */
+    public List<String> getPrimaryKeyColumns(String tableName) {
+        List<String> keys = primaryKeys.get(tableName);
+        return keys != null ? keys : Collections.<String>emptyList();
+    }
+    
+    /**
+     * Các khóa ngoại của bảng
+     */
+    public List<ForeignKeyInfo> getForeignKeys(String tableName) {
+        List<ForeignKeyInfo> keys = foreignKeys.get(tableName);
+        return keys != null ? keys : Collections.<ForeignKeyInfo>emptyList();
+    }
+    
+    /**
+     * Checksum của schema tại thời điểm đọc (DatabaseStrategy.getSchemaChecksum), có thể null
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+    
+    /**
+     * Builder Pattern: gom dữ liệu metadata rồi tạo snapshot immutable
+     */
+    public static class Builder {
+        private final Set<String> tables = new LinkedHashSet<>();
+        private final Map<String, List<Object[]>> columns = new LinkedHashMap<>();
+        private final Map<String, List<String>> primaryKeys = new LinkedHashMap<>();
+        private final Map<String, List<ForeignKeyInfo>> foreignKeys = new LinkedHashMap<>();
+        private String checksum;
+        
+        public Builder addTable(String tableName) {
+            tables.add(tableName);
+            return this;
+        }
+        
+        public Builder addColumn(String tableName, String name, String type, int size, 
+                                 boolean nullable, String defaultValue) {
+            columns.computeIfAbsent(tableName, k -> new ArrayList<>())
+                .add(new Object[]{name, type, size, nullable, defaultValue});
+            return this;
+        }
+        
+        /**
+         * Đọc kết quả của DatabaseMetaData.getColumns (có thể cho nhiều bảng)
+         */
+        public Builder addColumns(ResultSet rs) throws SQLException {
+            while (rs.next()) {
+                addColumn(rs.getString("TABLE_NAME"),
+                    rs.getString("COLUMN_NAME"),
+                    rs.getString("TYPE_NAME"),
+                    rs.getInt("COLUMN_SIZE"),
+                    rs.getInt("NULLABLE") == DatabaseMetaData.columnNullable,
+                    rs.getString("COLUMN_DEF"));
+            }
+            return this;
+        }
+        
+        public Builder addPrimaryKey(String tableName, String columnName) {
+            primaryKeys.computeIfAbsent(tableName, k -> new ArrayList<>()).add(columnName);
+            return this;
+        }
+        
+        public Builder addForeignKey(ForeignKeyInfo foreignKey) {
+            foreignKeys.computeIfAbsent(foreignKey.getTableName(), k -> new ArrayList<>()).add(foreignKey);
+            return this;
+        }
+        
+        public Builder checksum(String checksum) {
+            this.checksum = checksum;
+            return this;
+        }
+        
+        public SchemaSnapshot build() {
+            List<String> tableList = new ArrayList<>(tables);
+            Map<String, List<ColumnInfo>> columnMap = new LinkedHashMap<>();
+            Map<String, List<String>> keyMap = new LinkedHashMap<>();
+            Map<String, List<ForeignKeyInfo>> foreignKeyMap = new LinkedHashMap<>();
+            
+            for (String table : tableList) {
+                List<String> keys = primaryKeys.containsKey(table) 
+                    ? primaryKeys.get(table) 
+                    : Collections.<String>emptyList();
+                
+                List<ColumnInfo> tableColumns = new ArrayList<>();
+                List<Object[]> rawColumns = columns.containsKey(table) 
+                    ? columns.get(table) 
+                    : Collections.<Object[]>emptyList();
+                for (Object[] column : rawColumns) {
+                    tableColumns.add(new ColumnInfo(
+                        (String) column[0],
+                        (String) column[1],
+                        (Integer) column[2],
+                        (Boolean) column[3],
+                        keys.contains(column[0]),
+                        (String) column[4]
+                    ));
+                }
+                
+                columnMap.put(table, Collections.unmodifiableList(tableColumns));
+                keyMap.put(table, Collections.unmodifiableList(new ArrayList<>(keys)));
+                foreignKeyMap.put(table, Collections.unmodifiableList(foreignKeys.containsKey(table)
+                    ? new ArrayList<>(foreignKeys.get(table))
+                    : new ArrayList<ForeignKeyInfo>()));
+            }
+            return new SchemaSnapshot(tableList, columnMap, keyMap, foreignKeyMap, checksum);
+        }
+    }
+}
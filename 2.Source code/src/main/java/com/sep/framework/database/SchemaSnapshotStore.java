@@ -0,0 +1,136 @@
+package com.sep.framework.database;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+
+/**
+ * Lưu/đọc SchemaSnapshot ra file nhị phân trong thư mục của user
+ * Giúp ứng dụng mở form ngay khi khởi động mà không cần đọc lại schema từ database
+ */
+public class SchemaSnapshotStore {
+    
+    private static final int MAGIC = 0x53455053; // "SEPS"
+    private static final int VERSION = 1;
+    
+    /**
+     * File cache mặc định: ~/.sep-framework/schema-<hash>.bin, hash theo connection string và username
+     */
+    public static Path defaultFile(String connectionString, String username) {
+        String key = connectionString + "|" + (username != null ? username : "");
+        String hash;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            hash = hex.toString();
+        } catch (Exception e) {
+            hash = Integer.toHexString(key.hashCode());
+        }
+        return Paths.get(System.getProperty("user.home"), ".sep-framework", "schema-" + hash + ".bin");
+    }
+    
+    /**
+     * Ghi snapshot ra file (ghi file tạm rồi đổi tên để không làm hỏng cache cũ)
+     */
+    public void save(SchemaSnapshot snapshot, Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            writeNullableString(out, snapshot.getChecksum());
+            
+            out.writeInt(snapshot.getTables().size());
+            for (String table : snapshot.getTables()) {
+                out.writeUTF(table);
+                
+                out.writeInt(snapshot.getColumns(table).size());
+                for (ColumnInfo column : snapshot.getColumns(table)) {
+                    out.writeUTF(column.getName());
+                    out.writeUTF(column.getType());
+                    out.writeInt(column.getSize());
+                    out.writeBoolean(column.isNullable());
+                    writeNullableString(out, column.getDefaultValue());
+                }
+                
+                out.writeInt(snapshot.getPrimaryKeyColumns(table).size());
+                for (String key : snapshot.getPrimaryKeyColumns(table)) {
+                    out.writeUTF(key);
+                }
+                
+                out.writeInt(snapshot.getForeignKeys(table).size());
+                for (ForeignKeyInfo foreignKey : snapshot.getForeignKeys(table)) {
+                    out.writeUTF(foreignKey.getColumnName());
+                    out.writeUTF(foreignKey.getReferencedTable());
+                    out.writeUTF(foreignKey.getReferencedColumn());
+                }
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * Đọc snapshot từ file, trả về null nếu file không tồn tại hoặc không đúng định dạng
+     */
+    public SchemaSnapshot load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                return null;
+            }
+            
+            SchemaSnapshot.Builder builder = new SchemaSnapshot.Builder();
+            builder.checksum(readNullableString(in));
+            
+            int tableCount = in.readInt();
+            for (int t = 0; t < tableCount; t++) {
+                String table = in.readUTF();
+                builder.addTable(table);
+                
+                int columnCount = in.readInt();
+                for (int c = 0; c < columnCount; c++) {
+                    builder.addColumn(table, in.readUTF(), in.readUTF(), in.readInt(), 
+                        in.readBoolean(), readNullableString(in));
+                }
+                
+                int keyCount = in.readInt();
+                for (int k = 0; k < keyCount; k++) {
+                    builder.addPrimaryKey(table, in.readUTF());
+                }
+                
+                int foreignKeyCount = in.readInt();
+                for (int f = 0; f < foreignKeyCount; f++) {
+                    builder.addForeignKey(new ForeignKeyInfo(table, in.readUTF(), in.readUTF(), in.readUTF()));
+                }
+            }
+            return builder.build();
+        }
+    }
+    
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+    
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
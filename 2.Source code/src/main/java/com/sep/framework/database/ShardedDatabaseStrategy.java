@@ -0,0 +1,819 @@
+package com.sep.framework.database;
+
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Strategy chia dữ liệu (hash sharding) ra nhiều database cùng schema
+ * Ghi được định tuyến theo hash của shard key, đọc đi thẳng tới một shard khi biết khóa,
+ * ngược lại truy vấn song song tất cả shard rồi gộp kết quả.
+ * Metadata (bảng, cột, khóa) được đọc từ shard đầu tiên.
+ *
+ * Ví dụ:
+ *   ShardedDatabaseStrategy sharded = new ShardedDatabaseStrategy(Arrays.asList(shard0, shard1));
+ *   DatabaseContext dbContext = new DatabaseContext(sharded);
+ *
+ * Lưu ý: không có transaction xuyên shard, mỗi lệnh ghi chỉ atomic trên shard của nó
+ */
+public class ShardedDatabaseStrategy implements DatabaseStrategy {
+    /** Mệnh đề where dạng "key = 'value'" hoặc "key = 123" do CRUD form tạo ra */
+    private static final Pattern KEY_EQUALS = Pattern.compile(
+        "^\\s*[`\"]?(\\w+)[`\"]?\\s*=\\s*(?:'((?:[^']|'')*)'|(-?\\d+(?:\\.\\d+)?))\\s*$");
+    /** Số dòng đọc trước tối đa của mỗi shard khi gộp trang */
+    private static final int CURSOR_BUFFER_ROWS = 256;
+    /** Chu kỳ kiểm tra hủy khi chờ dòng tiếp theo của một shard */
+    private static final long CURSOR_POLL_MILLIS = 100;
+    /** Thời gian chờ tối đa dòng tiếp theo của một shard khi phạm vi hiện tại không đặt timeout */
+    private static final int CURSOR_WAIT_SECONDS = 300;
+    
+    private final List<DatabaseContext> shards;
+    private final Map<String, String> shardKeys = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    // Cursor gộp trang chạy trên thread riêng: chúng chặn khi hàng đợi đầy nên không được chiếm thread của executor
+    private final ExecutorService cursorExecutor;
+    
+    public ShardedDatabaseStrategy(List<DatabaseContext> shards) {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("Cần ít nhất một shard");
+        }
+        this.shards = new ArrayList<>(shards);
+        this.executor = Executors.newFixedThreadPool(shards.size(), runnable -> {
+            Thread thread = new Thread(runnable, "sep-shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cursorExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "sep-shard-cursor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Chỉ định cột dùng để chia shard cho bảng
+     * Mặc định là khóa chính của bảng
+     */
+    public void setShardKey(String tableName, String column) {
+        shardKeys.put(tableName, column);
+    }
+    
+    public String getShardKey(String tableName) throws Exception {
+        String key = shardKeys.get(tableName);
+        if (key == null) {
+            key = onShard(0, (strategy, connection) -> strategy.getPrimaryKey(connection, tableName));
+            if (key != null) {
+                shardKeys.put(tableName, key);
+            }
+        }
+        return key;
+    }
+    
+    public int getShardCount() {
+        return shards.size();
+    }
+    
+    /**
+     * Vị trí shard chứa record có giá trị shard key tương ứng
+     */
+    public int shardFor(Object keyValue) {
+        return Math.floorMod(String.valueOf(keyValue).hashCode(), shards.size());
+    }
+    
+    /**
+     * Đóng các shard và thread pool truy vấn song song
+     */
+    public void close() throws Exception {
+        executor.shutdownNow();
+        cursorExecutor.shutdownNow();
+        for (DatabaseContext shard : shards) {
+            shard.close();
+        }
+    }
+    
+    @Override
+    public Connection connect(String connectionString) throws Exception {
+        // Connection "chính" của context ngoài trỏ tới shard đầu tiên (metadata, câu lệnh tùy ý)
+        return shards.get(0).openConnection();
+    }
+    
+    @Override
+    public void disconnect(Connection connection) throws Exception {
+        shards.get(0).getStrategy().disconnect(connection);
+    }
+    
+    @Override
+    public List<String> getTables(Connection connection) throws Exception {
+        return onShard(0, DatabaseStrategy::getTables);
+    }
+    
+    @Override
+    public List<ColumnInfo> getColumns(Connection connection, String tableName) throws Exception {
+        return onShard(0, (strategy, shardConnection) -> strategy.getColumns(shardConnection, tableName));
+    }
+    
+    @Override
+    public String getPrimaryKey(Connection connection, String tableName) throws Exception {
+        return onShard(0, (strategy, shardConnection) -> strategy.getPrimaryKey(shardConnection, tableName));
+    }
+    
+    @Override
+    public List<ForeignKeyInfo> getForeignKeys(Connection connection, String tableName) throws Exception {
+        return onShard(0, (strategy, shardConnection) -> strategy.getForeignKeys(shardConnection, tableName));
+    }
+    
+    @Override
+    public SchemaSnapshot getSchemaSnapshot(Connection connection) throws Exception {
+        return onShard(0, DatabaseStrategy::getSchemaSnapshot);
+    }
+    
+    @Override
+    public String getSchemaChecksum(Connection connection) throws Exception {
+        return onShard(0, DatabaseStrategy::getSchemaChecksum);
+    }
+    
+    @Override
+    public String getSchemaName() {
+        return shards.get(0).getStrategy().getSchemaName();
+    }
+    
+    @Override
+    public String quoteIdentifier(String identifier) {
+        return shards.get(0).getStrategy().quoteIdentifier(identifier);
+    }
+    
+    /**
+     * Các shard đọc trên connection riêng của từng shard, không có snapshot chung xuyên shard
+     */
+    @Override
+    public String beginSnapshot(Connection connection) throws Exception {
+        return null;
+    }
+    
+    /**
+     * Câu lệnh SELECT tùy ý không gộp được thành một ResultSet nên chạy trên shard đầu tiên
+     */
+    @Override
+    public ResultSet executeQuery(Connection connection, String query) throws Exception {
+        return shards.get(0).getStrategy().executeQuery(connection, query);
+    }
+    
+    /**
+     * Câu lệnh tùy ý (DDL, update hàng loạt) được chạy trên tất cả shard
+     */
+    @Override
+    public int executeUpdate(Connection connection, String query) throws Exception {
+        int total = 0;
+        for (DatabaseContext shard : shards) {
+            total += shard.inScope(() -> shard.getStrategy().executeUpdate(shard.getConnection(), query));
+        }
+        return total;
+    }
+    
+    @Override
+    public List<Map<String, Object>> getAll(Connection connection, String tableName, String... columns) throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (List<Map<String, Object>> shardRows : onAllShards(
+                (strategy, shardConnection) -> strategy.getAll(shardConnection, tableName, columns))) {
+            rows.addAll(shardRows);
+        }
+        return rows;
+    }
+    
+    @Override
+    public Map<String, Object> getById(Connection connection, String tableName, String keyColumn,
+                                       Object keyValue, String... columns) throws Exception {
+        ShardCall<Map<String, Object>> lookup = (strategy, shardConnection) ->
+            strategy.getById(shardConnection, tableName, keyColumn, keyValue, columns);
+        if (keyColumn.equalsIgnoreCase(getShardKey(tableName))) {
+            return onShard(shardFor(keyValue), lookup);
+        }
+        for (Map<String, Object> row : onAllShards(lookup)) {
+            if (row != null) {
+                return row;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public List<Map<String, Object>> getByIds(Connection connection, String tableName, String keyColumn,
+                                              Collection<?> keyValues, String... columns) throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (!keyColumn.equalsIgnoreCase(getShardKey(tableName))) {
+            for (List<Map<String, Object>> shardRows : onAllShards((strategy, shardConnection) ->
+                    strategy.getByIds(shardConnection, tableName, keyColumn, keyValues, columns))) {
+                rows.addAll(shardRows);
+            }
+            return rows;
+        }
+        
+        // Gom khóa theo shard, mỗi shard chỉ nhận các khóa của nó
+        Map<Integer, List<Object>> keysByShard = new HashMap<>();
+        for (Object keyValue : keyValues) {
+            keysByShard.computeIfAbsent(shardFor(keyValue), shard -> new ArrayList<>()).add(keyValue);
+        }
+        for (Map.Entry<Integer, List<Object>> entry : keysByShard.entrySet()) {
+            rows.addAll(onShard(entry.getKey(), (strategy, shardConnection) ->
+                strategy.getByIds(shardConnection, tableName, keyColumn, entry.getValue(), columns)));
+        }
+        return rows;
+    }
+    
+    /**
+     * Stream lần lượt từng shard, thứ tự chỉ được đảm bảo trong phạm vi một shard
+     */
+    @Override
+    public void streamQuery(Connection connection, String query, List<Object> params, String tableName,
+                            String keyColumn, RowHandler handler) throws Exception {
+        for (int i = 0; i < shards.size(); i++) {
+            onShard(i, (strategy, shardConnection) -> {
+                strategy.streamQuery(shardConnection, query, params, tableName, keyColumn, handler);
+                return null;
+            });
+        }
+    }
+    
+    /**
+     * Handler được gọi lần lượt với ResultSet của từng shard
+     */
+    @Override
+    public void streamResultSet(Connection connection, String query, List<Object> params,
+                                ResultSetHandler handler) throws Exception {
+        for (int i = 0; i < shards.size(); i++) {
+            onShard(i, (strategy, shardConnection) -> {
+                strategy.streamResultSet(shardConnection, query, params, handler);
+                return null;
+            });
+        }
+    }
+    
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Object[] getKeyRange(Connection connection, String tableName, String keyColumn) throws Exception {
+        Object min = null;
+        Object max = null;
+        for (Object[] range : onAllShards(
+                (strategy, shardConnection) -> strategy.getKeyRange(shardConnection, tableName, keyColumn))) {
+            if (range[0] != null && (min == null || ((Comparable) range[0]).compareTo(min) < 0)) {
+                min = range[0];
+            }
+            if (range[1] != null && (max == null || ((Comparable) range[1]).compareTo(max) > 0)) {
+                max = range[1];
+            }
+        }
+        return new Object[]{min, max};
+    }
+    
+    /**
+     * Hash chia đều dữ liệu nên vị trí offset trên toàn bộ tương ứng offset / N trên một shard,
+     * đủ chính xác để lấy mẫu điểm chia cho quét song song
+     */
+    @Override
+    public Object getKeyAt(Connection connection, String tableName, String keyColumn, long offset) throws Exception {
+        return onShard(0, (strategy, shardConnection) ->
+            strategy.getKeyAt(shardConnection, tableName, keyColumn, offset / shards.size()));
+    }
+    
+    @Override
+    public long countRows(Connection connection, String tableName) throws Exception {
+        long total = 0;
+        for (Long count : onAllShards((strategy, shardConnection) -> strategy.countRows(shardConnection, tableName))) {
+            total += count;
+        }
+        return total;
+    }
+    
+    @Override
+    public long estimateRowCount(Connection connection, String tableName) throws Exception {
+        long total = 0;
+        for (Long count : onAllShards(
+                (strategy, shardConnection) -> strategy.estimateRowCount(shardConnection, tableName))) {
+            total += count;
+        }
+        return total;
+    }
+    
+    /**
+     * Gộp các shard theo thứ tự khóa, xem getPage theo criteria
+     */
+    @Override
+    public List<Map<String, Object>> getPage(Connection connection, String tableName, String keyColumn,
+                                             long offset, int limit, String... columns) throws Exception {
+        return getPage(connection, tableName, null, keyColumn, offset, limit, columns);
+    }
+    
+    /**
+     * Gộp k-way trên cursor forward-only của từng shard (mỗi shard đã lọc và sắp xếp theo criteria)
+     * Dừng khi đã đọc đủ offset + limit dòng trên tổng các shard, chỉ giữ trong bộ nhớ trang kết quả
+     * và vài dòng đọc trước của mỗi shard
+     */
+    @Override
+    public List<Map<String, Object>> getPage(Connection connection, String tableName, QueryCriteria criteria,
+                                             String keyColumn, long offset, int limit, String... columns) throws Exception {
+        if (shards.size() == 1) {
+            return onShard(0, (strategy, shardConnection) ->
+                strategy.getPage(shardConnection, tableName, criteria, keyColumn, offset, limit, columns));
+        }
+        List<Map<String, Object>> page = new ArrayList<>();
+        if (limit <= 0) {
+            return page;
+        }
+        
+        DatabaseStrategy first = shards.get(0).getStrategy();
+        List<Object> params = new ArrayList<>();
+        // Một shard không bao giờ đóng góp quá offset + limit dòng
+        String query = "SELECT " + first.buildSelectList(columns) + " FROM " + first.quoteIdentifier(tableName) +
+            first.buildWhereClause(criteria, params) + first.buildOrderBy(criteria, keyColumn) + " LIMIT ?";
+        params.add(offset + limit);
+        
+        CancellationToken mergeToken = new CancellationToken();
+        List<ShardCursor> cursors = new ArrayList<>();
+        // Mượn connection của mọi shard theo thứ tự shard trước khi stream: cursor có hàng đợi đầy vẫn giữ connection,
+        // nếu mỗi cursor tự mượn thì các lượt gộp đồng thời có thể chờ connection của nhau mãi mãi
+        List<Connection> borrowed = new ArrayList<>();
+        try {
+            for (DatabaseContext shard : shards) {
+                borrowed.add(shard.getPool().borrow());
+            }
+        } catch (Exception e) {
+            for (int i = 0; i < borrowed.size(); i++) {
+                shards.get(i).getPool().release(borrowed.get(i));
+            }
+            throw e;
+        }
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                cursors.add(openCursor(i, borrowed.get(i), query, params, tableName, keyColumn, mergeToken));
+            }
+            
+            Comparator<Map<String, Object>> order = rowOrder(criteria, keyColumn);
+            // Cùng giá trị sắp xếp thì theo thứ tự shard, để ranh giới giữa các trang ổn định
+            PriorityQueue<ShardCursor> heads = new PriorityQueue<>((a, b) -> {
+                int result = order.compare(a.head, b.head);
+                return result != 0 ? result : Integer.compare(a.shard, b.shard);
+            });
+            for (ShardCursor cursor : cursors) {
+                if (cursor.advance()) {
+                    heads.add(cursor);
+                }
+            }
+            
+            long skipped = 0;
+            while (!heads.isEmpty() && page.size() < limit) {
+                ShardCursor cursor = heads.poll();
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    page.add(cursor.head);
+                }
+                if (cursor.advance()) {
+                    heads.add(cursor);
+                }
+            }
+            return page;
+        } finally {
+            // Dừng các shard còn đang đọc: không nhận thêm dòng và hủy statement
+            for (ShardCursor cursor : cursors) {
+                cursor.closed = true;
+            }
+            mergeToken.cancel();
+            // Connection chưa giao cho cursor nào (submit lỗi giữa chừng) được trả lại ở đây
+            for (int i = cursors.size(); i < borrowed.size(); i++) {
+                shards.get(i).getPool().release(borrowed.get(i));
+            }
+        }
+    }
+    
+    /**
+     * Stream query trên một shard ở thread riêng của cursorExecutor, các dòng được đẩy vào hàng đợi có giới hạn của cursor
+     * Cursor trả shardConnection về pool khi stream kết thúc
+     */
+    private ShardCursor openCursor(int index, Connection shardConnection, String query, List<Object> params,
+                                   String tableName, String keyColumn, CancellationToken mergeToken) {
+        DatabaseContext shard = shards.get(index);
+        ShardCursor cursor = new ShardCursor(index);
+        cursorExecutor.submit(QueryControl.propagate(() -> {
+            try {
+                QueryControl.withCancellation(mergeToken, () -> shard.inScope(() -> {
+                    shard.getStrategy().streamQuery(shardConnection, query, params, tableName, keyColumn, cursor::put);
+                    return null;
+                }));
+                cursor.put(ShardCursor.END);
+            } catch (Throwable e) {
+                // Kể cả Error, nếu không thread gộp trang sẽ chờ mãi dòng tiếp theo của shard này
+                if (!cursor.closed) {
+                    cursor.put(new ShardFailure(e));
+                }
+            } finally {
+                shard.getPool().release(shardConnection);
+            }
+            return null;
+        }));
+        return cursor;
+    }
+    
+    @Override
+    public long countRows(Connection connection, String tableName, QueryCriteria criteria) throws Exception {
+        long total = 0;
+        for (Long count : onAllShards(
+                (strategy, shardConnection) -> strategy.countRows(shardConnection, tableName, criteria))) {
+            total += count;
+        }
+        return total;
+    }
+    
+    /**
+     * Thứ tự gộp kết quả các shard, giống ORDER BY của buildOrderBy (null đứng trước)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Map<String, Object>> rowOrder(QueryCriteria criteria, String keyColumn) {
+        List<QueryCriteria.Sort> sorts = new ArrayList<>();
+        if (criteria != null) {
+            sorts.addAll(criteria.getSorts());
+        }
+        if (keyColumn != null) {
+            sorts.add(new QueryCriteria.Sort(keyColumn, true));
+        }
+        return (a, b) -> {
+            for (QueryCriteria.Sort sort : sorts) {
+                Comparable left = (Comparable) a.get(sort.getColumn());
+                Comparable right = (Comparable) b.get(sort.getColumn());
+                int result;
+                if (left == null || right == null) {
+                    result = left == null ? (right == null ? 0 : -1) : 1;
+                } else {
+                    result = left.compareTo(right);
+                }
+                if (result != 0) {
+                    return sort.isAscending() ? result : -result;
+                }
+            }
+            return 0;
+        };
+    }
+    
+    @Override
+    public long readLob(Connection connection, String tableName, String keyColumn, Object keyValue,
+                        String lobColumn, WritableByteChannel target) throws Exception {
+        ShardCall<Long> read = (strategy, shardConnection) ->
+            strategy.readLob(shardConnection, tableName, keyColumn, keyValue, lobColumn, target);
+        if (keyColumn.equalsIgnoreCase(getShardKey(tableName))) {
+            return onShard(shardFor(keyValue), read);
+        }
+        // Tuần tự vì các shard cùng ghi vào một channel
+        for (int i = 0; i < shards.size(); i++) {
+            long written = onShard(i, read);
+            if (written >= 0) {
+                return written;
+            }
+        }
+        return -1;
+    }
+    
+    @Override
+    public int writeLob(Connection connection, String tableName, String keyColumn, Object keyValue,
+                        String lobColumn, InputStream source, long length) throws Exception {
+        if (!keyColumn.equalsIgnoreCase(getShardKey(tableName))) {
+            throw new IllegalArgumentException("Chỉ ghi LOB theo shard key của bảng " + tableName);
+        }
+        DatabaseContext shard = shards.get(shardFor(keyValue));
+        return shard.writeLob(tableName, keyColumn, keyValue, lobColumn, source, length);
+    }
+    
+    @Override
+    public int insert(Connection connection, String tableName, Map<String, Object> data) throws Exception {
+        String shardKey = getShardKey(tableName);
+        Object keyValue = findValue(data, shardKey);
+        if (keyValue == null) {
+            throw new IllegalArgumentException("Thiếu giá trị shard key '" + shardKey + "' khi thêm vào bảng " + tableName);
+        }
+        return shards.get(shardFor(keyValue)).insert(tableName, data);
+    }
+    
+    /**
+     * Dòng được chia theo shard key, mỗi shard thêm phần của nó trong transaction riêng
+     */
+    @Override
+    public int insertBatch(Connection connection, String tableName, List<String> columns,
+                           List<Object[]> rows) throws Exception {
+        String shardKey = getShardKey(tableName);
+        int keyIndex = -1;
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(shardKey)) {
+                keyIndex = i;
+            }
+        }
+        if (keyIndex < 0) {
+            throw new IllegalArgumentException("Thiếu cột shard key '" + shardKey + "' khi thêm vào bảng " + tableName);
+        }
+        
+        Map<Integer, List<Object[]>> rowsByShard = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[keyIndex] == null) {
+                throw new IllegalArgumentException("Thiếu giá trị shard key '" + shardKey + "' khi thêm vào bảng " + tableName);
+            }
+            rowsByShard.computeIfAbsent(shardFor(row[keyIndex]), shard -> new ArrayList<>()).add(row);
+        }
+        int total = 0;
+        for (Map.Entry<Integer, List<Object[]>> entry : rowsByShard.entrySet()) {
+            total += shards.get(entry.getKey()).insertBatch(tableName, columns, entry.getValue());
+        }
+        return total;
+    }
+    
+    /**
+     * Cần có shard key trong dữ liệu (thường chính là khóa chính) để chọn shard cho từng dòng
+     */
+    @Override
+    public List<Object> insertBatchAndGetKeys(Connection connection, String tableName, String keyColumn,
+                                              List<String> columns, List<Object[]> rows) throws Exception {
+        if (!keyColumn.equalsIgnoreCase(getShardKey(tableName))) {
+            throw new IllegalArgumentException("Chỉ thêm theo lô khi khóa chính là shard key của bảng " + tableName);
+        }
+        // insertBatch kiểm tra và báo lỗi khi thiếu shard key
+        insertBatch(connection, tableName, columns, rows);
+        int keyIndex = -1;
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(keyColumn)) {
+                keyIndex = i;
+            }
+        }
+        List<Object> keys = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            keys.add(row[keyIndex]);
+        }
+        return keys;
+    }
+    
+    @Override
+    public Object insertAndGetKey(Connection connection, String tableName, Map<String, Object> data,
+                                  String keyColumn) throws Exception {
+        String shardKey = getShardKey(tableName);
+        Object keyValue = findValue(data, shardKey);
+        if (keyValue == null) {
+            throw new IllegalArgumentException("Thiếu giá trị shard key '" + shardKey + "' khi thêm vào bảng " + tableName);
+        }
+        return shards.get(shardFor(keyValue)).insertAndGetKey(tableName, data);
+    }
+    
+    @Override
+    public int update(Connection connection, String tableName, Map<String, Object> data, String whereClause) throws Exception {
+        Integer shard = routeWhere(tableName, whereClause);
+        if (shard != null) {
+            return shards.get(shard).update(tableName, data, whereClause);
+        }
+        int total = 0;
+        for (DatabaseContext context : shards) {
+            total += context.update(tableName, data, whereClause);
+        }
+        return total;
+    }
+    
+    /**
+     * Mỗi shard cập nhật các dòng của nó trong transaction riêng, giữ khóa dòng tới khi mọi shard xong:
+     * có xung đột ở bất kỳ shard nào thì rollback mọi shard (như database đơn), không thì commit lần lượt
+     * Lỗi ở chính bước commit vẫn có thể để lại shard đã commit (không có commit hai pha)
+     */
+    @Override
+    public List<Object> updateBatch(Connection connection, String tableName, String keyColumn,
+                                    List<RowChange> changes) throws Exception {
+        if (!keyColumn.equalsIgnoreCase(getShardKey(tableName))) {
+            throw new IllegalArgumentException("Chỉ cập nhật theo lô bằng shard key của bảng " + tableName);
+        }
+        // Mở transaction theo thứ tự shard như getPage, để hai lượt giữ connection không chờ nhau
+        Map<Integer, List<RowChange>> changesByShard = new TreeMap<>();
+        for (RowChange change : changes) {
+            changesByShard.computeIfAbsent(shardFor(change.getKeyValue()), shard -> new ArrayList<>()).add(change);
+        }
+        
+        Map<Integer, Connection> opened = new LinkedHashMap<>();
+        List<Object> conflicts = new ArrayList<>();
+        boolean committed = false;
+        try {
+            for (Map.Entry<Integer, List<RowChange>> entry : changesByShard.entrySet()) {
+                DatabaseContext shard = shards.get(entry.getKey());
+                Connection shardConnection = shard.getPool().borrow();
+                opened.put(entry.getKey(), shardConnection);
+                shardConnection.setAutoCommit(false);
+                conflicts.addAll(shard.inScope(() -> 
+                    shard.getStrategy().updateBatch(shardConnection, tableName, keyColumn, entry.getValue())));
+            }
+            if (conflicts.isEmpty()) {
+                for (Connection shardConnection : opened.values()) {
+                    shardConnection.commit();
+                }
+                committed = true;
+            }
+            return conflicts;
+        } finally {
+            for (Map.Entry<Integer, Connection> entry : opened.entrySet()) {
+                DatabaseContext shard = shards.get(entry.getKey());
+                Connection shardConnection = entry.getValue();
+                try {
+                    if (committed) {
+                        shard.getStrategy().afterCommit(shardConnection);
+                    } else {
+                        shardConnection.rollback();
+                        shard.getStrategy().afterRollback(shardConnection);
+                    }
+                    shardConnection.setAutoCommit(true);
+                } catch (Exception e) {
+                    System.err.println("Lỗi khi kết thúc transaction trên shard " + entry.getKey() + ": " + e.getMessage());
+                }
+                shard.getPool().release(shardConnection);
+            }
+        }
+    }
+    
+    @Override
+    public int delete(Connection connection, String tableName, String whereClause) throws Exception {
+        Integer shard = routeWhere(tableName, whereClause);
+        if (shard != null) {
+            return shards.get(shard).delete(tableName, whereClause);
+        }
+        int total = 0;
+        for (DatabaseContext context : shards) {
+            total += context.delete(tableName, whereClause);
+        }
+        return total;
+    }
+    
+    /**
+     * Mỗi shard xóa các khóa của nó trong transaction riêng, không atomic xuyên shard
+     */
+    @Override
+    public int deleteByIds(Connection connection, String tableName, String keyColumn,
+                           Collection<?> keyValues) throws Exception {
+        int total = 0;
+        if (!keyColumn.equalsIgnoreCase(getShardKey(tableName))) {
+            for (DatabaseContext context : shards) {
+                total += context.deleteByIds(tableName, keyValues);
+            }
+            return total;
+        }
+        Map<Integer, List<Object>> keysByShard = new HashMap<>();
+        for (Object keyValue : keyValues) {
+            keysByShard.computeIfAbsent(shardFor(keyValue), shard -> new ArrayList<>()).add(keyValue);
+        }
+        for (Map.Entry<Integer, List<Object>> entry : keysByShard.entrySet()) {
+            total += shards.get(entry.getKey()).deleteByIds(tableName, entry.getValue());
+        }
+        return total;
+    }
+    
+    /**
+     * Xác định shard từ mệnh đề where dạng "shardKey = value"
+     * @return null nếu không xác định được (cần chạy trên tất cả shard)
+     */
+    private Integer routeWhere(String tableName, String whereClause) throws Exception {
+        Matcher matcher = KEY_EQUALS.matcher(whereClause);
+        if (!matcher.matches() || !matcher.group(1).equalsIgnoreCase(getShardKey(tableName))) {
+            return null;
+        }
+        String value = matcher.group(2) != null ? matcher.group(2).replace("''", "'") : matcher.group(3);
+        return shardFor(value);
+    }
+    
+    private static Object findValue(Map<String, Object> data, String column) {
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(column)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Chạy lời gọi trên một shard với connection mượn từ pool của shard đó, theo timeout mặc định của shard
+     */
+    private <T> T onShard(int index, ShardCall<T> call) throws Exception {
+        DatabaseContext shard = shards.get(index);
+        ConnectionPool pool = shard.getPool();
+        Connection connection = pool.borrow();
+        try {
+            return shard.inScope(() -> call.call(shard.getStrategy(), connection));
+        } finally {
+            pool.release(connection);
+        }
+    }
+    
+    /**
+     * Chạy lời gọi song song trên tất cả shard, kết quả theo thứ tự shard
+     */
+    private <T> List<T> onAllShards(ShardCall<T> call) throws Exception {
+        if (shards.size() == 1) {
+            List<T> single = new ArrayList<>();
+            single.add(onShard(0, call));
+            return single;
+        }
+        
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            int index = i;
+            futures.add(executor.submit(QueryControl.propagate(() -> onShard(index, call))));
+        }
+        
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Cursor forward-only trên một shard: dòng hiện tại và hàng đợi các dòng đã đọc trước
+     */
+    private static class ShardCursor {
+        private static final Object END = new Object();
+        
+        private final int shard;
+        private final BlockingQueue<Object> rows = new ArrayBlockingQueue<>(CURSOR_BUFFER_ROWS);
+        private Map<String, Object> head;
+        private volatile boolean closed;
+        
+        ShardCursor(int shard) {
+            this.shard = shard;
+        }
+        
+        /**
+         * Đẩy một dòng (hoặc dấu kết thúc/lỗi) vào hàng đợi, dừng stream khi cursor đã đóng
+         */
+        void put(Object row) throws InterruptedException {
+            while (!rows.offer(row, CURSOR_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    throw new CancellationException("Đã đọc đủ dòng cho trang");
+                }
+            }
+        }
+        
+        /**
+         * Chuyển tới dòng tiếp theo của shard, chờ tối đa theo timeout của phạm vi hiện tại
+         * (CURSOR_WAIT_SECONDS nếu không đặt)
+         * @return false nếu shard đã hết dòng
+         */
+        @SuppressWarnings("unchecked")
+        boolean advance() throws Exception {
+            int timeoutSeconds = QueryControl.currentTimeout() > 0 ? QueryControl.currentTimeout() : CURSOR_WAIT_SECONDS;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            Object next;
+            while ((next = rows.poll(CURSOR_POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                QueryControl.checkCancelled();
+                if (System.nanoTime() - deadline > 0) {
+                    throw new SQLTimeoutException("Shard " + shard + " không trả dòng nào trong " + timeoutSeconds + " giây");
+                }
+            }
+            if (next instanceof ShardFailure) {
+                Throwable error = ((ShardFailure) next).error;
+                if (error instanceof Error) {
+                    throw (Error) error;
+                }
+                throw (Exception) error;
+            }
+            head = next == END ? null : (Map<String, Object>) next;
+            return head != null;
+        }
+    }
+    
+    private static class ShardFailure {
+        private final Throwable error;
+        
+        ShardFailure(Throwable error) {
+            this.error = error;
+        }
+    }
+    
+    /**
+     * Lời gọi strategy trên connection của một shard
+     */
+    private interface ShardCall<T> {
+        T call(DatabaseStrategy strategy, Connection connection) throws Exception;
+    }
+}
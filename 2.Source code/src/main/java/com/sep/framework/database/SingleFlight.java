@@ -0,0 +1,132 @@
+package com.sep.framework.database;
+
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Gộp các lời gọi đọc giống nhau chạy đồng thời (single-flight)
+ * Lời gọi đầu tiên với một key thực thi truy vấn, các lời gọi cùng key đến trong lúc đó
+ * chờ và dùng chung kết quả thay vì chạy thêm truy vấn
+ */
+public class SingleFlight {
+    /** Chu kỳ kiểm tra token hủy của lời gọi đang chờ */
+    private static final long CANCEL_CHECK_MILLIS = 100;
+    
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    
+    /**
+     * Thực thi call hoặc chờ lời gọi cùng key đang chạy
+     * Lời gọi chờ tuân theo timeout và token hủy trong phạm vi QueryControl của chính nó;
+     * lời gọi chính bị hủy hoặc hết thời gian theo phạm vi của nó thì lời gọi chờ chạy lại (bầu lời gọi chính mới)
+     * @param shareCopy Tạo bản sao kết quả cho các lời gọi chờ, để không dùng chung object có thể bị sửa
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Callable<T> call, UnaryOperator<T> shareCopy) throws Exception {
+        while (true) {
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+            
+            if (existing != null) {
+                deduplicated.incrementAndGet();
+                try {
+                    T snapshot = (T) await(existing);
+                    return snapshot != null ? shareCopy.apply(snapshot) : null;
+                } catch (LeaderAbandoned e) {
+                    inFlight.remove(key, existing);
+                    continue;
+                }
+            }
+            
+            executions.incrementAndGet();
+            CancellationToken token = QueryControl.currentCancellationToken();
+            try {
+                T result = call.call();
+                // Bản chụp cho các lời gọi chờ được tạo trước khi người gọi nhận (và có thể sửa) result
+                flight.complete(result != null ? shareCopy.apply(result) : null);
+                return result;
+            } catch (Throwable e) {
+                // Kể cả Error (OutOfMemoryError, StackOverflowError...), nếu không các lời gọi chờ sẽ treo
+                boolean abandoned = e instanceof CancellationException || e instanceof SQLTimeoutException
+                    || (token != null && token.isCancelled());
+                flight.completeExceptionally(abandoned ? new LeaderAbandoned(e) : e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+    }
+    
+    /**
+     * Chờ kết quả của lời gọi đang chạy trong giới hạn timeout của phạm vi hiện tại,
+     * dừng chờ khi token hủy của phạm vi hiện tại bị hủy
+     */
+    private static Object await(CompletableFuture<Object> flight) throws Exception {
+        int timeoutSeconds = QueryControl.currentTimeout();
+        CancellationToken token = QueryControl.currentCancellationToken();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        try {
+            while (true) {
+                if (token != null) {
+                    token.throwIfCancelled();
+                }
+                long waitMillis = token != null ? CANCEL_CHECK_MILLIS : Long.MAX_VALUE;
+                if (timeoutSeconds > 0) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        throw new SQLTimeoutException("Hết thời gian chờ truy vấn đang chạy (" + timeoutSeconds + " giây)");
+                    }
+                    waitMillis = Math.min(waitMillis, remaining);
+                }
+                try {
+                    return waitMillis == Long.MAX_VALUE ? flight.get() : flight.get(waitMillis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // Kiểm tra lại token hủy và thời hạn
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+    
+    /**
+     * Lời gọi chính dừng vì token hủy hoặc timeout của riêng nó, không phải lỗi của truy vấn
+     */
+    private static final class LeaderAbandoned extends Exception {
+        LeaderAbandoned(Throwable cause) {
+            super(cause);
+        }
+    }
+    
+    /**
+     * Số lời gọi thực sự chạy truy vấn
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+    
+    /**
+     * Số lời gọi được gộp vào lời gọi đang chạy (không tốn thêm truy vấn)
+     */
+    public long getDeduplicated() {
+        return deduplicated.get();
+    }
+    
+    public void resetStats() {
+        executions.set(0);
+        deduplicated.set(0);
+    }
+}
@@ -0,0 +1,11 @@
+package com.sep.framework.database;
+
+import java.sql.Connection;
+
+/**
+ * Các thao tác chạy trong một transaction trên connection được cấp (DatabaseContext.inTransaction)
+ */
+@FunctionalInterface
+public interface TransactionCallback<T> {
+    T execute(DatabaseStrategy strategy, Connection connection) throws Exception;
+}
@@ -0,0 +1,93 @@
+package com.sep.framework.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Kiểm tra pool không treo người mượn khi đã đầy: connection bị loại bỏ phải nhường chỗ,
+ * pool đóng phải đánh thức các lời gọi đang chờ
+ */
+class ConnectionPoolTest {
+    private static final String MEMORY_DATABASE = "jdbc:sqlite::memory:";
+    
+    private ExecutorService executor;
+    private ConnectionPool pool;
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+        pool = new ConnectionPool(new SQLiteStrategy(), MEMORY_DATABASE, null, null, 1);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        pool.close();
+    }
+    
+    @Test
+    void blockedBorrowerGetsConnectionAfterDeadConnectionIsDiscarded() throws Exception {
+        Connection first = pool.borrow();
+        Future<Connection> waiter = executor.submit(pool::borrow);
+        assertStillWaiting(waiter);
+        
+        first.close();
+        pool.release(first);
+        
+        Connection second = waiter.get(5, TimeUnit.SECONDS);
+        assertNotSame(first, second);
+        assertFalse(second.isClosed());
+        assertEquals(1, pool.getOpenConnections());
+        pool.release(second);
+    }
+    
+    @Test
+    void blockedBorrowerGetsConnectionAfterTakeIdle() throws Exception {
+        Connection first = pool.borrow();
+        pool.release(first);
+        Connection detached = pool.takeIdle();
+        assertEquals(0, pool.getOpenConnections());
+        
+        Connection second = pool.borrow();
+        Future<Connection> waiter = executor.submit(pool::borrow);
+        assertStillWaiting(waiter);
+        
+        pool.release(second);
+        assertTrue(waiter.get(5, TimeUnit.SECONDS) == second);
+        detached.close();
+    }
+    
+    @Test
+    void closeWakesBlockedBorrower() throws Exception {
+        Connection first = pool.borrow();
+        Future<Connection> waiter = executor.submit(pool::borrow);
+        assertStillWaiting(waiter);
+        
+        pool.close();
+        
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+        pool.release(first);
+        assertTrue(first.isClosed());
+        assertEquals(0, pool.getOpenConnections());
+    }
+    
+    private static void assertStillWaiting(Future<?> future) throws Exception {
+        assertThrows(TimeoutException.class, () -> future.get(300, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,161 @@
+package com.sep.framework.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Kiểm tra lời gọi chờ của SingleFlight không bao giờ treo: lỗi của lời gọi chính (kể cả Error),
+ * timeout và token hủy của chính lời gọi chờ đều phải kết thúc việc chờ;
+ * lời gọi chính bị hủy theo token riêng thì lời gọi chờ chạy lại thay vì nhận lỗi hủy
+ */
+class SingleFlightTest {
+    private static final String KEY = "all:orders:";
+    
+    private ExecutorService executor;
+    private SingleFlight singleFlight;
+    private CountDownLatch release;
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+        singleFlight = new SingleFlight();
+        release = new CountDownLatch(1);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void waiterFailsWhenLeaderThrowsError() throws Exception {
+        Future<List<String>> leader = startLeader(() -> {
+            throw new StackOverflowError("leader");
+        });
+        Future<List<String>> waiter = startWaiter(() -> singleFlight.execute(KEY, this::unexpectedCall, ArrayList::new));
+        release.countDown();
+        
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertTrue(leaderFailure.getCause() instanceof StackOverflowError);
+        ExecutionException waiterFailure = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertTrue(waiterFailure.getCause() instanceof StackOverflowError);
+    }
+    
+    @Test
+    void waiterGetsSnapshotTakenBeforeLeaderReturns() throws Exception {
+        Future<List<String>> leader = startLeader(() -> {
+            List<String> rows = new ArrayList<>();
+            rows.add("row-1");
+            return rows;
+        });
+        Future<List<String>> waiter = startWaiter(() -> singleFlight.execute(KEY, this::unexpectedCall, ArrayList::new));
+        release.countDown();
+        
+        List<String> leaderRows = leader.get(5, TimeUnit.SECONDS);
+        leaderRows.add("row-added-by-leader-caller");
+        assertEquals(1, waiter.get(5, TimeUnit.SECONDS).size());
+        assertEquals(1, singleFlight.getExecutions());
+    }
+    
+    @Test
+    void waiterRespectsItsOwnTimeout() throws Exception {
+        startLeader(this::blockedCall);
+        Future<List<String>> waiter = startWaiter(() -> QueryControl.withTimeout(1,
+            () -> singleFlight.execute(KEY, this::unexpectedCall, ArrayList::new)));
+        
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof SQLTimeoutException);
+    }
+    
+    @Test
+    void waiterRespectsItsOwnCancellationToken() throws Exception {
+        startLeader(this::blockedCall);
+        CancellationToken token = new CancellationToken();
+        Future<List<String>> waiter = startWaiter(() -> QueryControl.withCancellation(token,
+            () -> singleFlight.execute(KEY, this::unexpectedCall, ArrayList::new)));
+        token.cancel();
+        
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof CancellationException);
+    }
+    
+    @Test
+    void waiterRetriesWhenLeaderIsCancelledByItsOwnToken() throws Exception {
+        CancellationToken leaderToken = new CancellationToken();
+        CountDownLatch started = new CountDownLatch(1);
+        Future<List<String>> leader = executor.submit(() -> QueryControl.withCancellation(leaderToken,
+            () -> singleFlight.execute(KEY, () -> {
+                started.countDown();
+                while (true) {
+                    QueryControl.checkCancelled();
+                    Thread.sleep(10);
+                }
+            }, ArrayList::new)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<List<String>> waiter = startWaiter(() -> singleFlight.execute(KEY, () -> {
+            List<String> rows = new ArrayList<>();
+            rows.add("row-1");
+            return rows;
+        }, ArrayList::new));
+        leaderToken.cancel();
+        
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertTrue(leaderFailure.getCause() instanceof CancellationException);
+        assertEquals(1, waiter.get(5, TimeUnit.SECONDS).size());
+        assertEquals(2, singleFlight.getExecutions());
+    }
+    
+    /**
+     * Lời gọi chính chờ release rồi mới chạy body, để lời gọi chờ kịp gộp vào
+     */
+    private Future<List<String>> startLeader(Callable<List<String>> body) throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Future<List<String>> leader = executor.submit(() -> singleFlight.execute(KEY, () -> {
+            started.countDown();
+            release.await();
+            return body.call();
+        }, ArrayList::new));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return leader;
+    }
+    
+    /**
+     * Chạy lời gọi chờ và đợi tới khi nó đã gộp vào lời gọi chính
+     */
+    private Future<List<String>> startWaiter(Callable<List<String>> call) throws Exception {
+        Future<List<String>> waiter = executor.submit(call);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.getDeduplicated() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, singleFlight.getDeduplicated());
+        return waiter;
+    }
+    
+    private List<String> blockedCall() throws Exception {
+        release.await();
+        return new ArrayList<>();
+    }
+    
+    private List<String> unexpectedCall() {
+        throw new AssertionError("Lời gọi chờ không được chạy truy vấn riêng");
+    }
+}